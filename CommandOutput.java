@@ -0,0 +1,151 @@
+package homework2;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A buffered text output for TestDriver. Text is appended straight into a
+ * char buffer, which is written to the underlying Writer when it fills up and
+ * on flush, instead of building a String per line and writing it through a
+ * PrintWriter.
+ * <p>
+ * As with PrintWriter, appending never throws: the first IOException of the
+ * underlying Writer is kept and thrown by flush.
+ * <p>
+ * A CommandOutput without a Writer keeps all its text in memory, so the
+ * output of a command can be collected and appended to another one later.
+ */
+final class CommandOutput {
+
+	private static final String NEWLINE = System.lineSeparator();
+
+	private final Writer out;
+	private char[] buffer;
+	private int size;
+	private IOException error;
+
+
+	CommandOutput(Writer out) {
+		this.out = out;
+		this.buffer = new char[1 << 16];
+	}
+
+
+	/**
+	 * Creates a CommandOutput which keeps all its text in memory.
+	 */
+	CommandOutput() {
+		this.out = null;
+		this.buffer = new char[128];
+	}
+
+
+	/**
+	 * Appends chars[from..to).
+	 */
+	CommandOutput append(char[] chars, int from, int to) {
+		while (from < to) {
+			if (size == buffer.length) {
+				drain();
+			}
+			int count = Math.min(to - from, buffer.length - size);
+			System.arraycopy(chars, from, buffer, size, count);
+			size += count;
+			from += count;
+		}
+		return this;
+	}
+
+
+	CommandOutput append(CharSequence text) {
+		String s = text.toString();
+		int from = 0;
+		while (from < s.length()) {
+			if (size == buffer.length) {
+				drain();
+			}
+			int count = Math.min(s.length() - from, buffer.length - size);
+			s.getChars(from, from + count, buffer, size);
+			size += count;
+			from += count;
+		}
+		return this;
+	}
+
+
+	CommandOutput append(char c) {
+		if (size == buffer.length) {
+			drain();
+		}
+		buffer[size++] = c;
+		return this;
+	}
+
+
+	/**
+	 * Appends the text buffered in other.
+	 */
+	CommandOutput append(CommandOutput other) {
+		return append(other.buffer, 0, other.size);
+	}
+
+
+	/**
+	 * Ends the current line.
+	 */
+	void newline() {
+		append(NEWLINE);
+	}
+
+
+	/**
+	 * Appends text and ends the line.
+	 */
+	void println(CharSequence text) {
+		append(text);
+		newline();
+	}
+
+
+	/**
+	 * Writes all buffered text and flushes the underlying Writer.
+	 * @throws IOException if writing failed, now or earlier
+	 */
+	void flush() throws IOException {
+		if (out == null) {
+			return;
+		}
+		drain();
+		if (error == null) {
+			try {
+				out.flush();
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+
+	/**
+	 * Writes the buffered text to the underlying Writer, or makes room for
+	 * more text if there is none.
+	 */
+	private void drain() {
+		if (out == null) {
+			buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+			return;
+		}
+		if (error == null && size > 0) {
+			try {
+				out.write(buffer, 0, size);
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+		size = 0;
+	}
+}
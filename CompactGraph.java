@@ -0,0 +1,330 @@
+package homework2;
+
+import java.util.*;
+
+/**
+ * An immutable snapshot of a directed graph where T is the type of each node.
+ * Every node is interned to a dense int id (its position in the sorted node
+ * list) and the children of all nodes are laid out in compressed sparse row
+ * form: the children of node i are targets[offsets[i]] .. targets[offsets[i+1]-1].
+ * <p>
+ * The parents of all nodes are laid out the same way in parentOffsets and
+ * parentTargets.
+ * <p>
+ * Since ids follow the sorted order of the nodes, the children and parents of
+ * every node are stored sorted, exactly as Graph.getListChildren returns them.
+ */
+public class CompactGraph<T extends Comparable<? super T>> implements DirectedGraph<T>, IdGraph<T> {
+
+    /**
+     * Representation Invariant:
+     * nodes != null, ids != null, offsets != null, targets != null
+     * nodes is sorted and contains no nulls
+     * ids.get(nodes[i]) == i for every 0 <= i < nodes.length
+     * offsets.length == nodes.length + 1, offsets[0] == 0,
+     * offsets[nodes.length] == targets.length and offsets is non-decreasing
+     * every target is a valid id, and the targets of each node are strictly increasing
+     * parentOffsets and parentTargets satisfy the same, and i is a parent
+     * target of j iff j is a target of i
+     */
+
+    /**
+     * Abstraction Function:
+     * A CompactGraph<T> is a directed graph G = (V, E)
+     * where V = {nodes[i] | 0 <= i < nodes.length}
+     * and E = {(nodes[i], nodes[targets[k]]) | offsets[i] <= k < offsets[i+1]}
+     * (parentOffsets and parentTargets are a reverse index of E)
+     */
+
+    private final Object[] nodes;
+    private final HashMap<T, Integer> ids;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] parentOffsets;
+    private final int[] parentTargets;
+
+    /**
+     * Checks the Representation Invariant
+     */
+    private void checkRep() {
+        assert nodes != null && ids != null : "node tables cannot be null";
+        assert offsets != null && targets != null : "adjacency arrays cannot be null";
+        assert offsets.length == nodes.length + 1 : "offsets must have one entry per node plus one";
+        assert offsets[0] == 0 && offsets[nodes.length] == targets.length : "offsets must cover targets";
+        assert parentOffsets.length == offsets.length && parentTargets.length == targets.length :
+                "every edge must appear in the reverse index";
+    }
+
+    /**
+     * Creates a compact snapshot of the given graph.
+     * @requires graph != null
+     * @effects creates a CompactGraph with the same nodes and edges as graph
+     */
+    public CompactGraph(DirectedGraph<T> graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        List<T> sortedNodes = graph.getListNodes();
+        int n = sortedNodes.size();
+        nodes = sortedNodes.toArray();
+        ids = new HashMap<>(Math.max(16, (int) (n / 0.75f) + 1));
+        for (int i = 0; i < n; i++) {
+            ids.put(sortedNodes.get(i), i);
+        }
+
+        // every children list is read once, and children which were not in
+        // the node list are dropped, so a graph which other threads keep
+        // adding to (see ConcurrentGraph) can be copied as well
+        offsets = new int[n + 1];
+        int[] childIds = new int[16];
+        for (int i = 0; i < n; i++) {
+            int k = offsets[i];
+            // children are sorted, so their ids come out increasing
+            for (T child : graph.getListChildren(sortedNodes.get(i))) {
+                Integer id = ids.get(child);
+                if (id != null) {
+                    if (k == childIds.length) {
+                        childIds = Arrays.copyOf(childIds, 2 * k);
+                    }
+                    childIds[k++] = id;
+                }
+            }
+            offsets[i + 1] = k;
+        }
+        targets = Arrays.copyOf(childIds, offsets[n]);
+
+        parentOffsets = new int[n + 1];
+        parentTargets = new int[targets.length];
+        reverse(offsets, targets, parentOffsets, parentTargets);
+        checkRep();
+    }
+
+    /**
+     * Creates a CompactGraph over the given sorted nodes and adjacency arrays,
+     * which it takes ownership of. The parents are computed from the children.
+     * @requires nodes, offsets and targets satisfy the representation invariant
+     * @effects creates a CompactGraph with the given nodes and edges
+     */
+    CompactGraph(Object[] nodes, int[] offsets, int[] targets) {
+        int n = nodes.length;
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.targets = targets;
+        ids = new HashMap<>(Math.max(16, (int) (n / 0.75f) + 1));
+        for (int i = 0; i < n; i++) {
+            @SuppressWarnings("unchecked")
+            T node = (T) nodes[i];
+            ids.put(node, i);
+        }
+        parentOffsets = new int[n + 1];
+        parentTargets = new int[targets.length];
+        reverse(offsets, targets, parentOffsets, parentTargets);
+        checkRep();
+    }
+
+    /**
+     * Fills parentOffsets and parentTargets with the reverse index of the
+     * edges in offsets and targets.
+     */
+    private static void reverse(int[] offsets, int[] targets, int[] parentOffsets, int[] parentTargets) {
+        int n = offsets.length - 1;
+        // scanning parents in increasing id order keeps each parent list sorted
+        for (int target : targets) {
+            parentOffsets[target + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            parentOffsets[i + 1] += parentOffsets[i];
+        }
+        int[] next = Arrays.copyOf(parentOffsets, n);
+        for (int i = 0; i < n; i++) {
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                parentTargets[next[targets[k]]++] = i;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the given node.
+     * @return the id of node, or -1 if node is not in this graph
+     */
+    public int idOf(T node) {
+        Integer id = ids.get(node);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the node with the given id.
+     * @requires 0 <= id < size()
+     * @return the node whose id is id
+     */
+    @SuppressWarnings("unchecked")
+    public T nodeAt(int id) {
+        return (T) nodes[id];
+    }
+
+    /**
+     * Returns the index in the targets array of the first child of a node.
+     * @requires 0 <= id < size()
+     */
+    public int childrenStart(int id) {
+        return offsets[id];
+    }
+
+    /**
+     * Returns the index in the targets array one past the last child of a node.
+     * @requires 0 <= id < size()
+     */
+    public int childrenEnd(int id) {
+        return offsets[id + 1];
+    }
+
+    /**
+     * Returns the id of the child stored at the given index of the targets array.
+     * @requires 0 <= index < edgeCount()
+     */
+    public int childAt(int index) {
+        return targets[index];
+    }
+
+    /**
+     * Returns the index in the parent targets of the first parent of a node.
+     * @requires 0 <= id < size()
+     */
+    public int parentsStart(int id) {
+        return parentOffsets[id];
+    }
+
+    /**
+     * Returns the index in the parent targets one past the last parent of a node.
+     * @requires 0 <= id < size()
+     */
+    public int parentsEnd(int id) {
+        return parentOffsets[id + 1];
+    }
+
+    /**
+     * Returns the id of the parent stored at the given index of the parent targets.
+     * @requires 0 <= index < edgeCount()
+     */
+    public int parentAt(int index) {
+        return parentTargets[index];
+    }
+
+    /**
+     * Returns whether there is an edge between the nodes with the given ids.
+     * @requires 0 <= parent < size() and 0 <= child < size()
+     */
+    public boolean containsEdge(int parent, int child) {
+        return Arrays.binarySearch(targets, offsets[parent], offsets[parent + 1], child) >= 0;
+    }
+
+    /**
+     * Returns the number of edges in this graph.
+     * @return the number of edges in this graph
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Returns a sorted list of all nodes in the graph.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getListNodes() {
+        List<T> sortedNodes = new ArrayList<>(nodes.length);
+        for (Object node : nodes) {
+            sortedNodes.add((T) node);
+        }
+        return sortedNodes;
+    }
+
+    /**
+     * Returns a sorted, unmodifiable list of the children for the given node.
+     * The list is a view over the adjacency arrays and copies nothing.
+     * @requires node exists in the graph and node != null
+     */
+    public List<T> getListChildren(T node) {
+        int id = ids.get(node);
+        return view(targets, offsets[id], offsets[id + 1]);
+    }
+
+    /**
+     * Returns a sorted, unmodifiable list of the parents for the given node.
+     * The list is a view over the adjacency arrays and copies nothing.
+     * @requires node exists in the graph and node != null
+     */
+    public List<T> getListParents(T node) {
+        int id = ids.get(node);
+        return view(parentTargets, parentOffsets[id], parentOffsets[id + 1]);
+    }
+
+    /**
+     * Returns an unmodifiable list of the nodes whose ids are in
+     * idArray[from..to).
+     */
+    private List<T> view(final int[] idArray, final int from, final int to) {
+        return new AbstractList<T>() {
+            @Override
+            public T get(int index) {
+                if (index < 0 || index >= to - from) {
+                    throw new IndexOutOfBoundsException("Index: " + index);
+                }
+                return nodeAt(idArray[from + index]);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    /**
+     * Returns whether this graph contains the given node.
+     * @param node the node to check
+     * @return true if this graph contains node, false otherwise
+     */
+    public boolean containsNode(T node) {
+        return ids.containsKey(node);
+    }
+
+    /**
+     * Returns whether this graph contains an edge from parent to child.
+     * @param parent the parent node
+     * @param child the child node
+     * @return true if there is an edge from parent to child, false otherwise
+     */
+    public boolean containsEdge(T parent, T child) {
+        Integer parentId = ids.get(parent);
+        Integer childId = ids.get(child);
+        if (parentId == null || childId == null) {
+            return false;
+        }
+        return containsEdge(parentId.intValue(), childId.intValue());
+    }
+
+    /**
+     * Returns the number of nodes in this graph.
+     * @return the number of nodes in this graph
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns whether this graph is empty.
+     * @return true if this graph contains no nodes, false otherwise
+     */
+    public boolean isEmpty() {
+        return nodes.length == 0;
+    }
+
+    /**
+     * Returns the modification version of this graph. A CompactGraph never
+     * changes, so its version is always 0.
+     * @return 0
+     */
+    public long getVersion() {
+        return 0;
+    }
+}
@@ -0,0 +1,445 @@
+package homework2;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * CompactPathFinder finds shortest paths in a CompactGraph, with the same
+ * results as PathFinder, without allocating per query.
+ * <p>
+ * It searches any IdGraph the same way: WeightedNodePathFinder runs it over
+ * a WeightedNodeGraph or an OffHeapGraph, with their own node costs.
+ * <p>
+ * The search works on int node ids: distances and predecessors live in
+ * primitive arrays of a workspace which is reused across the queries of this
+ * finder, and the frontier is an indexed binary heap with decrease-key. A Path object
+ * is only built for the goal that is returned.
+ * <p>
+ * The cost model must be node-weighted: extending a path with node n has to
+ * add exactly nodeCost(n) to its cost, as in WeightedNodePath
+ * (nodeCost = WeightedNode::getCost) and NodeCountingPath (nodeCost = 1).
+ *
+ * @param <T> the type of nodes in the graph
+ */
+public class CompactPathFinder<T extends Comparable<? super T>> {
+
+    /**
+     * Representation Invariant:
+     * - graph != null && nodeCost != null && workspaces != null
+     * - no workspace in workspaces is in use by a search
+     * Abstraction Function:
+     * CompactPathFinder finds shortest paths in graph, where entering the
+     * node with id i costs nodeCost.applyAsDouble(i).
+     */
+
+    private final IdGraph<T> graph;
+    private final IntToDoubleFunction nodeCost;
+    // workspaces free for the next search, one for each search that ran at
+    // the same time as others; they go away with the finder
+    private final Queue<SearchWorkspace> workspaces = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Checks the representation invariant.
+     */
+    private void checkRep() {
+        assert graph != null : "graph cannot be null";
+        assert nodeCost != null : "node cost cannot be null";
+        assert workspaces != null : "workspaces cannot be null";
+    }
+
+    /**
+     * Creates a new CompactPathFinder for the given graph and cost model.
+     * @param graph the graph to find paths in
+     * @param nodeCost the cost added to a path when it is extended with a node
+     * @requires graph != null && nodeCost != null
+     * @effects creates a new CompactPathFinder for the given graph
+     */
+    public CompactPathFinder(CompactGraph<T> graph, ToDoubleFunction<? super T> nodeCost) {
+        this(graph, costsOf(graph, nodeCost));
+    }
+
+    private CompactPathFinder(IdGraph<T> graph, IntToDoubleFunction nodeCost) {
+        if (graph == null || nodeCost == null) {
+            throw new IllegalArgumentException("Graph and node cost cannot be null");
+        }
+        this.graph = graph;
+        this.nodeCost = nodeCost;
+        checkRep();
+    }
+
+    /**
+     * Returns a new CompactPathFinder for a graph with int ids, whose nodes
+     * may be added to it between searches.
+     * @param graph the graph to find paths in
+     * @param nodeCost the cost added to a path when it is extended with the
+     *        node with a given id
+     * @requires graph != null && nodeCost != null
+     * @return a new CompactPathFinder for the given graph
+     */
+    static <T extends Comparable<? super T>> CompactPathFinder<T> overIds(IdGraph<T> graph,
+                                                                          IntToDoubleFunction nodeCost) {
+        return new CompactPathFinder<>(graph, nodeCost);
+    }
+
+    /**
+     * Returns the costs of the nodes of graph by id, computed once.
+     */
+    private static <T extends Comparable<? super T>> IntToDoubleFunction costsOf(
+            CompactGraph<T> graph, ToDoubleFunction<? super T> nodeCost) {
+        if (graph == null || nodeCost == null) {
+            throw new IllegalArgumentException("Graph and node cost cannot be null");
+        }
+        final double[] costs = new double[graph.size()];
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = nodeCost.applyAsDouble(graph.nodeAt(i));
+        }
+        return id -> costs[id];
+    }
+
+    /**
+     * Finds the shortest path from a start node to a goal node.
+     * @param startPath the initial path (containing one start node)
+     * @param goalNode the goal node
+     * @requires startPath != null && goalNode != null
+     * @return the shortest path from the start node to the goal node,
+     *         or null if no path exists
+     */
+    public <P extends Path<T, P>> P findShortestPath(P startPath, T goalNode) {
+        if (startPath == null || goalNode == null) {
+            throw new IllegalArgumentException("Start paths and goal nodes cannot be null");
+        }
+        SearchWorkspace ws = acquire();
+        try {
+            markStart(ws, startPath);
+            markGoal(ws, goalNode);
+            int goal = search(ws);
+            return goal < 0 ? null : buildPath(ws, goal, startPath, null);
+        } finally {
+            release(ws);
+        }
+    }
+
+    /**
+     * Finds the shortest path from any start node to any goal node, by id.
+     * Every start node begins a path whose cost is its own cost.
+     * @param startIds the ids of the start nodes
+     * @param goalIds the ids of the goal nodes
+     * @requires startIds != null && goalIds != null && all ids are ids of
+     *           nodes of the graph
+     * @return the ids of the nodes of the shortest path from any start node to
+     *         any goal node, in order, or null if no path exists
+     */
+    public int[] findShortestPath(int[] startIds, int[] goalIds) {
+        if (startIds == null || goalIds == null) {
+            throw new IllegalArgumentException("Start and goal ids cannot be null");
+        }
+        int size = graph.size();
+        SearchWorkspace ws = acquire();
+        try {
+            for (int s : startIds) {
+                checkId(s, size);
+                markStart(ws, s, nodeCost.applyAsDouble(s));
+            }
+            for (int g : goalIds) {
+                checkId(g, size);
+                ws.set(g, SearchWorkspace.GOAL);
+            }
+            int goal = search(ws);
+            if (goal < 0) {
+                return null;
+            }
+            int top = unwind(ws, goal);
+            int[] path = new int[top];
+            for (int i = 0; i < path.length; i++) {
+                path[i] = ws.stack[--top];
+            }
+            return path;
+        } finally {
+            release(ws);
+        }
+    }
+
+    private static void checkId(int id, int size) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("No node with id " + id);
+        }
+    }
+
+    /**
+     * Finds the shortest path from any start node to any goal node.
+     * @param startPaths a set of initial paths (each containing one start node)
+     * @param goalNodes a set of goal nodes
+     * @requires all paths in startPaths are non-null and contain exactly one node &&
+     *          all nodes in goalNodes are non-null
+     * @return the shortest path from any start node to any goal node,
+     *         or null if no path exists
+     */
+    public <P extends Path<T, P>> P findShortestPath(Set<P> startPaths, Set<T> goalNodes) {
+        if (startPaths == null || goalNodes == null ||
+                startPaths.isEmpty() || goalNodes.isEmpty()) {
+            return null;
+        }
+        SearchWorkspace ws = acquire();
+        try {
+            for (P startPath : startPaths) {
+                markStart(ws, startPath);
+            }
+            for (T goalNode : goalNodes) {
+                markGoal(ws, goalNode);
+            }
+            int goal = search(ws);
+            return goal < 0 ? null : buildPath(ws, goal, null, startPaths);
+        } finally {
+            release(ws);
+        }
+    }
+
+    /**
+     * Returns a free workspace, or a new one if every workspace is in use,
+     * ready for a search of graph.
+     */
+    private SearchWorkspace acquire() {
+        SearchWorkspace ws = workspaces.poll();
+        if (ws == null) {
+            ws = new SearchWorkspace();
+        }
+        ws.begin(graph.size());
+        return ws;
+    }
+
+    /**
+     * Makes ws free for the next search.
+     * @requires ws was returned by acquire and is no longer used
+     */
+    private void release(SearchWorkspace ws) {
+        workspaces.offer(ws);
+    }
+
+    /**
+     * Puts the end of startPath in the frontier. Nodes outside the graph
+     * cannot lead anywhere, so they are ignored.
+     */
+    private <P extends Path<T, P>> void markStart(SearchWorkspace ws, P startPath) {
+        int s = graph.idOf(startPath.getEnd());
+        if (s >= 0) {
+            markStart(ws, s, startPath.getCost());
+        }
+    }
+
+    private static void markStart(SearchWorkspace ws, int s, double cost) {
+        ws.set(s, SearchWorkspace.START);
+        if (cost < ws.dist[s]) {
+            ws.dist[s] = cost;
+            ws.heap.insertOrDecrease(s, cost);
+        }
+    }
+
+    private void markGoal(SearchWorkspace ws, T goalNode) {
+        int g = graph.idOf(goalNode);
+        if (g >= 0) {
+            ws.set(g, SearchWorkspace.GOAL);
+        }
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from the marked starts to the marked goals.
+     * A start node which is also a goal only counts as reached through a
+     * cycle back to it, unless it has an edge to itself, exactly as in
+     * PathFinder.
+     * @return the first goal settled, or -1 if no goal is reachable
+     */
+    private int search(SearchWorkspace ws) {
+        IndexedMinHeap heap = ws.heap;
+        IdGraph<T> graph = this.graph;
+        IntToDoubleFunction nodeCost = this.nodeCost;
+        while (!heap.isEmpty()) {
+            double d = heap.minKey();
+            int u = heap.poll();
+
+            if (ws.has(u, SearchWorkspace.GOAL)) {
+                if (ws.has(u, SearchWorkspace.START) && !ws.has(u, SearchWorkspace.SECOND_CHANCE) &&
+                        !graph.containsEdge(u, u)) {
+                    // a path of a single node is not a loop
+                    ws.flags[u] |= SearchWorkspace.SECOND_CHANCE;
+                } else {
+                    return u;
+                }
+            }
+
+            if (ws.has(u, SearchWorkspace.SETTLED)) {
+                continue;
+            }
+
+            for (int k = graph.childrenStart(u), end = graph.childrenEnd(u); k < end; k++) {
+                int v = graph.childAt(k);
+                double childCost = d + nodeCost.applyAsDouble(v);
+                ws.touch(v);
+                if (ws.has(v, SearchWorkspace.SECOND_CHANCE)) {
+                    if (childCost < ws.loopDist[v]) {
+                        ws.loopDist[v] = childCost;
+                        ws.loopPred[v] = u;
+                        heap.insertOrDecrease(v, childCost);
+                    }
+                } else if (!ws.has(v, SearchWorkspace.SETTLED) && childCost < ws.dist[v]) {
+                    ws.dist[v] = childCost;
+                    ws.pred[v] = u;
+                    heap.insertOrDecrease(v, childCost);
+                }
+            }
+            ws.flags[u] |= SearchWorkspace.SETTLED;
+        }
+        return -1;
+    }
+
+    /**
+     * Pushes the path to goal on the workspace stack, goal first and the
+     * start node last.
+     * @return the number of nodes pushed
+     */
+    private static int unwind(SearchWorkspace ws, int goal) {
+        int[] stack = ws.stack;
+        int top = 0;
+        int v = goal;
+        if (ws.has(goal, SearchWorkspace.SECOND_CHANCE)) {
+            // the goal closes a loop: its own pred chain ends at itself
+            stack[top++] = goal;
+            v = ws.loopPred[goal];
+        }
+        while (ws.pred[v] >= 0) {
+            stack[top++] = v;
+            v = ws.pred[v];
+        }
+        stack[top++] = v;
+        return top;
+    }
+
+    /**
+     * Builds the path to goal by extending the start path it originates from.
+     */
+    private <P extends Path<T, P>> P buildPath(SearchWorkspace ws, int goal,
+                                               P startPath, Set<P> startPaths) {
+        int top = unwind(ws, goal);
+        int[] stack = ws.stack;
+        T root = graph.nodeAt(stack[--top]);
+        P path = startPath;
+        if (path == null) {
+            for (P candidate : startPaths) {
+                if (root.equals(candidate.getEnd())) {
+                    path = candidate;
+                    break;
+                }
+            }
+        }
+        while (top > 0) {
+            path = path.extend(graph.nodeAt(stack[--top]));
+        }
+        return path;
+    }
+
+    /**
+     * Computes the costs of the shortest paths from every source to every
+     * goal. The rows are computed in parallel on the common ForkJoinPool,
+     * one search per source, each stopping once all goals are settled. The
+     * searches share the workspaces of this finder, so they need no more
+     * workspaces than there are worker threads, and none stay pinned to
+     * the threads of the pool afterwards.
+     * <p>
+     * A goal which is the start node of a source is reached by the start
+     * path itself, as in PathFinder.shortestPathTree.
+     * @param sources the initial paths (each containing one start node)
+     * @param goals the goal nodes
+     * @param withPredecessors whether to also find the node before every
+     *        goal on the shortest path to it
+     * @requires sources != null && goals != null && all their elements are non-null
+     * @return a sources.size() by goals.size() matrix of the costs of the
+     *         shortest paths from sources to goals, with their predecessors if
+     *         withPredecessors
+     */
+    public <P extends Path<T, P>> DistanceMatrix<T> distanceMatrix(List<P> sources, List<T> goals,
+                                                                   boolean withPredecessors) {
+        if (sources == null || goals == null) {
+            throw new IllegalArgumentException("Sources and goals cannot be null");
+        }
+        final int rows = sources.size();
+        final int columns = goals.size();
+        final int[] sourceIds = new int[rows];
+        final double[] sourceCosts = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            sourceIds[i] = graph.idOf(sources.get(i).getEnd());
+            sourceCosts[i] = sources.get(i).getCost();
+        }
+        final int[] goalIds = new int[columns];
+        for (int j = 0; j < columns; j++) {
+            goalIds[j] = graph.idOf(goals.get(j));
+        }
+
+        final double[][] costs = new double[rows][columns];
+        final int[][] preds = withPredecessors ? new int[rows][columns] : null;
+        IntStream.range(0, rows).parallel().forEach(i ->
+                distanceRow(sourceIds[i], sourceCosts[i], goalIds, costs[i],
+                        preds == null ? null : preds[i]));
+        return new DistanceMatrix<>(graph, costs, preds, columns);
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from source until all goals are settled, and
+     * writes their costs to row and the ids of their predecessors to predRow.
+     */
+    private void distanceRow(int source, double startCost, int[] goalIds,
+                             double[] row, int[] predRow) {
+        SearchWorkspace ws = acquire();
+        try {
+            distanceRow(ws, source, startCost, goalIds, row, predRow);
+        } finally {
+            release(ws);
+        }
+    }
+
+    private void distanceRow(SearchWorkspace ws, int source, double startCost, int[] goalIds,
+                             double[] row, int[] predRow) {
+        int remaining = 0;
+        for (int g : goalIds) {
+            if (g >= 0 && !ws.has(g, SearchWorkspace.GOAL)) {
+                ws.set(g, SearchWorkspace.GOAL);
+                remaining++;
+            }
+        }
+        if (source >= 0) {
+            ws.touch(source);
+            ws.dist[source] = startCost;
+            ws.heap.insertOrDecrease(source, startCost);
+        }
+
+        IndexedMinHeap heap = ws.heap;
+        while (remaining > 0 && !heap.isEmpty()) {
+            double d = heap.minKey();
+            int u = heap.poll();
+            ws.flags[u] |= SearchWorkspace.SETTLED;
+            if (ws.has(u, SearchWorkspace.GOAL)) {
+                remaining--;
+            }
+            for (int k = graph.childrenStart(u), end = graph.childrenEnd(u); k < end; k++) {
+                int v = graph.childAt(k);
+                double childCost = d + nodeCost.applyAsDouble(v);
+                ws.touch(v);
+                if (!ws.has(v, SearchWorkspace.SETTLED) && childCost < ws.dist[v]) {
+                    ws.dist[v] = childCost;
+                    ws.pred[v] = u;
+                    heap.insertOrDecrease(v, childCost);
+                }
+            }
+        }
+
+        for (int j = 0; j < goalIds.length; j++) {
+            int g = goalIds[j];
+            boolean reached = g >= 0 && ws.has(g, SearchWorkspace.SETTLED);
+            row[j] = reached ? ws.dist[g] : Double.POSITIVE_INFINITY;
+            if (predRow != null) {
+                predRow[j] = reached ? ws.pred[g] : -1;
+            }
+        }
+    }
+}
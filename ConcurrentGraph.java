@@ -0,0 +1,245 @@
+package homework2;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A directed graph where T is the type of each node, which can be modified
+ * by several threads while other threads read and search it.
+ * Every edge is going from parent to child.
+ * <p>
+ * Nodes are kept in a ConcurrentHashMap, and the children and parents of
+ * every node in sorted copy-on-write arrays: adding an edge copies the two
+ * arrays it changes and publishes the copies, under a lock of the node whose
+ * array is replaced. Readers never lock. Every list they get is an immutable
+ * snapshot of the children (or parents) of a node at some moment, so a search
+ * sees every node's edges either before or after any concurrent addEdge.
+ * <p>
+ * Nodes and edges are only ever added, so a path found while the graph is
+ * being modified is a path of the graph as it is afterwards too. The parents
+ * of a node may briefly lag behind its children while an edge is added.
+ * PathFinder searches handle nodes added while they run, including the
+ * shortestPathTree search, which sizes its arrays for the nodes it reaches
+ * rather than for the size of the graph when it starts; distanceMatrix
+ * searches a CompactGraph copied from the graph, and copies it again once
+ * the version has changed.
+ * <p>
+ * A PathFinder searching a ConcurrentGraph must not be shared between threads
+ * (it keeps per-search statistics and its cache); each query thread should
+ * use its own. The version is incremented after a change is published, so a
+ * caching PathFinder never keeps a result computed before a change it missed.
+ * The natural ordering of T must be consistent with equals.
+ */
+public class ConcurrentGraph<T extends Comparable<? super T>> implements DirectedGraph<T> {
+
+    /**
+     * Representation Invariant:
+     * no null keys or values in nodes
+     * every children and parents array contains no nulls and no duplicates,
+     * is sorted in increasing order, and only contains nodes of the graph
+     * once no addEdge is running: parent is in the parents of child
+     * iff child is in the children of parent
+     */
+
+    /**
+     * Abstraction Function:
+     * A ConcurrentGraph<T> is a directed graph G = (V, E)
+     * where V = nodes.keySet()
+     * and E = {(p, c) | c is in nodes.get(p).children}
+     */
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private static final boolean ASSERTIONS_ENABLED = ConcurrentGraph.class.desiredAssertionStatus();
+
+    /**
+     * The edges of a node. The arrays are never modified once published;
+     * writers replace them while holding the lock of this object.
+     */
+    private static final class Adjacency {
+        volatile Object[] children = EMPTY;
+        volatile Object[] parents = EMPTY;
+    }
+
+    private final ConcurrentHashMap<T, Adjacency> nodes = new ConcurrentHashMap<>();
+    // incremented after every change to the nodes or edges of the graph
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Checks the Representation Invariant for an edge that was just added
+     */
+    private void checkRep(T parent, T child) {
+        assert parent != null && child != null : "edge nodes cannot be null";
+        assert nodes.containsKey(parent) && nodes.containsKey(child) : "edge nodes must be in the graph";
+        assert indexOf(nodes.get(parent).children, child) >= 0 : "the child must have been added";
+        assert indexOf(nodes.get(child).parents, parent) >= 0 : "the parent must have been added";
+    }
+
+    /**
+     * Creates an empty graph.
+     * @effects creates an empty graph
+     */
+    public ConcurrentGraph() {
+    }
+
+    /**
+     * Adds a node to the graph.
+     * @requires node != null and the node doesn't exist yet in the graph
+     * @modifies this
+     * @effects adds the node to the graph if it doesn't already exist
+     * @throws IllegalArgumentException when node already exists
+     */
+    public void addNode(T node) {
+        if (node == null) {
+            throw new IllegalArgumentException("Nodes cannot be null");
+        }
+        if (nodes.putIfAbsent(node, new Adjacency()) != null) {
+            throw new IllegalArgumentException("The node already exists");
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * Adds a directed edge from parent to child. This takes time linear in
+     * the number of children of parent and parents of child.
+     * @requires parent and child are non-null and already exist in the graph
+     * @modifies this
+     * @effects adds a directed edge from parent to child node
+     * @return true if the edge was added, false if it already existed
+     */
+    public boolean addEdge(T parent, T child) {
+        if (parent == null || child == null) {
+            throw new IllegalArgumentException("Nodes cannot be null");
+        }
+        Adjacency from = nodes.get(parent);
+        Adjacency to = nodes.get(child);
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Both nodes must be in the graph");
+        }
+        // the two locks are never held together, so writers cannot deadlock
+        synchronized (from) {
+            Object[] children = insert(from.children, child);
+            if (children == null) {
+                return false;
+            }
+            from.children = children;
+        }
+        synchronized (to) {
+            to.parents = insert(to.parents, parent);
+        }
+        version.incrementAndGet();
+        if (ASSERTIONS_ENABLED) {
+            checkRep(parent, child);
+        }
+        return true;
+    }
+
+    /**
+     * Returns a copy of the sorted array with node inserted in order, or
+     * null if node is already in it.
+     */
+    private static Object[] insert(Object[] sorted, Object node) {
+        int index = indexOf(sorted, node);
+        if (index >= 0) {
+            return null;
+        }
+        index = -index - 1;
+        Object[] copy = new Object[sorted.length + 1];
+        System.arraycopy(sorted, 0, copy, 0, index);
+        copy[index] = node;
+        System.arraycopy(sorted, index, copy, index + 1, sorted.length - index);
+        return copy;
+    }
+
+    private static int indexOf(Object[] sorted, Object node) {
+        return Arrays.binarySearch(sorted, node);
+    }
+
+    /**
+     * Returns a sorted list of all nodes in the graph, including at least
+     * the nodes added before this call.
+     */
+    public List<T> getListNodes() {
+        List<T> sortedNodes = new ArrayList<>(nodes.keySet());
+        Collections.sort(sortedNodes);
+        return sortedNodes;
+    }
+
+    /**
+     * Returns a sorted list of the children for the given node.
+     * The list is an immutable snapshot, so it does not reflect edges added
+     * to node after this call.
+     * @requires node exists in the graph and node != null
+     */
+    public List<T> getListChildren(T node) {
+        return view(nodes.get(node).children);
+    }
+
+    /**
+     * Returns a sorted list of the parents for the given node, i.e. the nodes
+     * which have an edge to it.
+     * The list is an immutable snapshot, so it does not reflect edges added
+     * to node after this call.
+     * @requires node exists in the graph and node != null
+     */
+    public List<T> getListParents(T node) {
+        return view(nodes.get(node).parents);
+    }
+
+    /**
+     * Returns an unmodifiable list over an array which is never modified.
+     */
+    @SuppressWarnings("unchecked")
+    private List<T> view(Object[] snapshot) {
+        return (List<T>) (List<?>) Collections.unmodifiableList(Arrays.asList(snapshot));
+    }
+
+    /**
+     * Returns whether this graph contains the given node.
+     * @param node the node to check
+     * @return true if this graph contains node, false otherwise
+     */
+    public boolean containsNode(T node) {
+        return node != null && nodes.containsKey(node);
+    }
+
+    /**
+     * Returns whether this graph contains an edge from parent to child.
+     * @param parent the parent node
+     * @param child the child node
+     * @return true if there is an edge from parent to child, false otherwise
+     */
+    public boolean containsEdge(T parent, T child) {
+        if (parent == null || child == null) {
+            return false;
+        }
+        Adjacency from = nodes.get(parent);
+        return from != null && indexOf(from.children, child) >= 0;
+    }
+
+    /**
+     * Returns the number of nodes in this graph.
+     * @return the number of nodes in this graph
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Returns whether this graph is empty.
+     * @return true if this graph contains no nodes, false otherwise
+     */
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    /**
+     * Returns the modification version of this graph, which grows every time
+     * a node or an edge is added, after the change is visible to readers.
+     * @return the modification version of this graph
+     */
+    public long getVersion() {
+        return version.get();
+    }
+}
@@ -0,0 +1,477 @@
+package homework2;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A ContractionHierarchy answers shortest path queries on a graph which does
+ * not change, by preprocessing it once.
+ * <p>
+ * Nodes are contracted one by one in order of importance. Contracting a node
+ * v removes it, adding a shortcut u -> w for every pair of edges u -> v -> w
+ * unless a path from u to w which avoids v is as cheap (a witness). A node's
+ * rank is its position in the contraction order. A query then runs Dijkstra's
+ * algorithm upward (towards higher ranks) from the start and backward upward
+ * from the goal; the shortest path is found at the highest ranked node on it,
+ * and its shortcuts are unpacked back into the original nodes.
+ * <p>
+ * Costs are node weights, as in Path: an edge u -> v weighs nodeCost(v), and
+ * a path costs the cost of its start plus the weights of its edges.
+ *
+ * @param <T> the type of nodes in the graph
+ */
+public class ContractionHierarchy<T extends Comparable<? super T>> {
+
+    /**
+     * Representation Invariant:
+     * - graph != null && compact != null && cost != null && rank != null
+     * - cost.length == rank.length == compact.size() and rank is a permutation
+     * - every upward arc u -> x has rank[u] < rank[x], and every downward arc
+     *   stored at x (from u) has rank[u] > rank[x]
+     * Abstraction Function:
+     * the upward arcs of u are upTargets/upWeights[upOffsets[u] .. upOffsets[u+1]);
+     * the arcs u -> x with higher ranked u are downSources/downWeights
+     * [downOffsets[x] .. downOffsets[x+1]); an arc a -> b is a shortcut through
+     * middles.get(key(a, b)) if that is present, and an edge of graph otherwise.
+     */
+
+    // a witness search gives up after settling this many nodes per child of
+    // the contracted node (up to a maximum), and the shortcut is added, which
+    // is always correct; estimating priorities uses a cheaper search
+    private static final int WITNESS_SETTLES_PER_TARGET = 20;
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private static final int ESTIMATE_SETTLE_LIMIT = 20;
+
+    private static final ThreadLocal<SearchWorkspace[]> WORKSPACES =
+            ThreadLocal.withInitial(() -> new SearchWorkspace[] {new SearchWorkspace(), new SearchWorkspace()});
+
+    private final Graph<T> graph;
+    private final long version;
+    private final CompactGraph<T> compact;
+    private final double[] cost;
+    private final int[] rank;
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final double[] upWeights;
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final double[] downWeights;
+    private final HashMap<Long, Integer> middles = new HashMap<>();
+    private final long preprocessingNanos;
+
+    /**
+     * Checks the representation invariant.
+     */
+    private void checkRep() {
+        assert graph != null && compact != null : "graph cannot be null";
+        assert cost.length == compact.size() && rank.length == compact.size() :
+                "there must be a cost and a rank for every node";
+        assert upOffsets.length == compact.size() + 1 && downOffsets.length == compact.size() + 1 :
+                "offsets must have one entry per node plus one";
+    }
+
+    /**
+     * The arcs leaving (or entering) a node while the hierarchy is built.
+     */
+    private static final class Arcs {
+        private int[] nodes = new int[4];
+        private double[] weights = new double[4];
+        private int size;
+
+        /**
+         * Adds an arc to node, or lowers the weight of the existing one.
+         * @return true iff an arc was added or lowered
+         */
+        boolean put(int node, double weight) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    if (weight < weights[i]) {
+                        weights[i] = weight;
+                        return true;
+                    }
+                    return false;
+                }
+            }
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * size);
+                weights = Arrays.copyOf(weights, 2 * size);
+            }
+            nodes[size] = node;
+            weights[size] = weight;
+            size++;
+            return true;
+        }
+
+        /**
+         * Removes the arc to node, if there is one.
+         */
+        void remove(int node) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    size--;
+                    nodes[i] = nodes[size];
+                    weights[i] = weights[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Preprocesses the current state of graph.
+     * @param graph the graph to preprocess
+     * @param nodeCost the cost added to a path when it is extended with a node
+     * @requires graph != null && nodeCost != null
+     * @effects creates a ContractionHierarchy for the current state of graph
+     */
+    public ContractionHierarchy(Graph<T> graph, ToDoubleFunction<? super T> nodeCost) {
+        if (graph == null || nodeCost == null) {
+            throw new IllegalArgumentException("Graph and node cost cannot be null");
+        }
+        long start = System.nanoTime();
+        this.graph = graph;
+        this.version = graph.getVersion();
+        this.compact = graph.freeze();
+        int n = compact.size();
+        cost = new double[n];
+        for (int v = 0; v < n; v++) {
+            cost[v] = nodeCost.applyAsDouble(compact.nodeAt(v));
+        }
+
+        Arcs[] out = new Arcs[n];
+        Arcs[] in = new Arcs[n];
+        for (int v = 0; v < n; v++) {
+            out[v] = new Arcs();
+            in[v] = new Arcs();
+        }
+        for (int u = 0; u < n; u++) {
+            for (int k = compact.childrenStart(u); k < compact.childrenEnd(u); k++) {
+                int v = compact.childAt(k);
+                // self loops never shorten a path between two other nodes
+                if (v != u) {
+                    out[u].put(v, cost[v]);
+                    in[v].put(u, cost[v]);
+                }
+            }
+        }
+
+        rank = new int[n];
+        // the arcs of each node to higher ranked nodes, recorded when it is contracted
+        Arcs[] up = new Arcs[n];
+        Arcs[] down = new Arcs[n];
+        int[] contractedNeighbors = new int[n];
+        SearchWorkspace witness = new SearchWorkspace();
+        IndexedMinHeap order = new IndexedMinHeap(n);
+        for (int v = 0; v < n; v++) {
+            order.insertOrDecrease(v, priority(v, out, in, contractedNeighbors, witness));
+        }
+        int nextRank = 0;
+        while (!order.isEmpty()) {
+            int v = order.poll();
+            // priorities go stale as neighbours are contracted, so they are
+            // recomputed lazily when a node comes up
+            double priority = priority(v, out, in, contractedNeighbors, witness);
+            if (!order.isEmpty() && priority > order.minKey()) {
+                order.insertOrDecrease(v, priority);
+                continue;
+            }
+            contract(v, out, in, witness, false);
+            rank[v] = nextRank++;
+            // the remaining neighbours of v are ranked above it
+            up[v] = out[v];
+            down[v] = in[v];
+            for (int i = 0; i < out[v].size; i++) {
+                in[out[v].nodes[i]].remove(v);
+                contractedNeighbors[out[v].nodes[i]]++;
+            }
+            for (int i = 0; i < in[v].size; i++) {
+                out[in[v].nodes[i]].remove(v);
+                contractedNeighbors[in[v].nodes[i]]++;
+            }
+        }
+
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            upOffsets[v + 1] = upOffsets[v] + up[v].size;
+            downOffsets[v + 1] = downOffsets[v] + down[v].size;
+        }
+        upTargets = new int[upOffsets[n]];
+        upWeights = new double[upOffsets[n]];
+        downSources = new int[downOffsets[n]];
+        downWeights = new double[downOffsets[n]];
+        for (int v = 0; v < n; v++) {
+            System.arraycopy(up[v].nodes, 0, upTargets, upOffsets[v], up[v].size);
+            System.arraycopy(up[v].weights, 0, upWeights, upOffsets[v], up[v].size);
+            System.arraycopy(down[v].nodes, 0, downSources, downOffsets[v], down[v].size);
+            System.arraycopy(down[v].weights, 0, downWeights, downOffsets[v], down[v].size);
+        }
+        preprocessingNanos = System.nanoTime() - start;
+        checkRep();
+    }
+
+    private static long key(int from, int to) {
+        return ((long) from << 32) | (to & 0xffffffffL);
+    }
+
+    /**
+     * Returns the contraction priority of v: the number of shortcuts its
+     * contraction adds, minus the arcs it removes, plus its contracted
+     * neighbours (which spreads the contraction evenly over the graph).
+     */
+    private double priority(int v, Arcs[] out, Arcs[] in, int[] contractedNeighbors,
+                            SearchWorkspace witness) {
+        int shortcuts = contract(v, out, in, witness, true);
+        return shortcuts - out[v].size - in[v].size + contractedNeighbors[v];
+    }
+
+    /**
+     * Finds the shortcuts needed to contract v, and adds them unless simulate.
+     * The arcs in out and in are those between nodes not contracted yet.
+     * @return the number of shortcuts needed
+     */
+    private int contract(int v, Arcs[] out, Arcs[] in, SearchWorkspace witness, boolean simulate) {
+        int shortcuts = 0;
+        double maxOut = 0;
+        for (int j = 0; j < out[v].size; j++) {
+            maxOut = Math.max(maxOut, out[v].weights[j]);
+        }
+        int settleLimit = simulate ? ESTIMATE_SETTLE_LIMIT :
+                Math.min(WITNESS_SETTLE_LIMIT, WITNESS_SETTLES_PER_TARGET * out[v].size);
+        for (int i = 0; i < in[v].size; i++) {
+            int u = in[v].nodes[i];
+            double toV = in[v].weights[i];
+            witnessSearch(u, v, toV + maxOut, settleLimit, out, witness);
+            for (int j = 0; j < out[v].size; j++) {
+                int w = out[v].nodes[j];
+                if (w == u) {
+                    continue;
+                }
+                double through = toV + out[v].weights[j];
+                if (witness.touched(w) && witness.dist[w] <= through) {
+                    continue;
+                }
+                shortcuts++;
+                if (!simulate && out[u].put(w, through)) {
+                    in[w].put(u, through);
+                    middles.put(key(u, w), v);
+                }
+            }
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Runs a bounded Dijkstra search from source, avoiding skipped, leaving
+     * the costs in witness. It stops beyond limit, or once it settled
+     * settleLimit nodes.
+     */
+    private void witnessSearch(int source, int skipped, double limit, int settleLimit,
+                               Arcs[] out, SearchWorkspace witness) {
+        witness.begin(compact.size());
+        witness.touch(source);
+        witness.dist[source] = 0;
+        witness.heap.insertOrDecrease(source, 0);
+        int settled = 0;
+        while (!witness.heap.isEmpty() && witness.heap.minKey() <= limit && settled < settleLimit) {
+            double d = witness.heap.minKey();
+            int u = witness.heap.poll();
+            settled++;
+            for (int i = 0; i < out[u].size; i++) {
+                int x = out[u].nodes[i];
+                if (x == skipped) {
+                    continue;
+                }
+                double through = d + out[u].weights[i];
+                witness.touch(x);
+                if (through < witness.dist[x]) {
+                    witness.dist[x] = through;
+                    witness.heap.insertOrDecrease(x, through);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the hierarchy still describes the graph.
+     * @return true iff the graph was not changed since it was preprocessed
+     */
+    public boolean isValid() {
+        return version == graph.getVersion();
+    }
+
+    /**
+     * Returns the number of shortcuts added by the preprocessing.
+     */
+    public int getShortcutCount() {
+        return middles.size();
+    }
+
+    /**
+     * Returns how long the preprocessing took.
+     * @return the preprocessing time in nanoseconds
+     */
+    public long getPreprocessingNanos() {
+        return preprocessingNanos;
+    }
+
+    /**
+     * Finds the shortest path from a start node to a goal node, with the
+     * same result as PathFinder.findShortestPath.
+     * @param startPath the initial path (containing one start node)
+     * @param goalNode the goal node
+     * @requires startPath != null && goalNode != null && isValid() &&
+     *           extending a path with node n adds nodeCost(n) to its cost
+     * @return the shortest path from the start node to the goal node,
+     *         or null if no path exists
+     */
+    public <P extends Path<T, P>> P findShortestPath(P startPath, T goalNode) {
+        if (startPath == null || goalNode == null) {
+            throw new IllegalArgumentException("Start paths and goal nodes cannot be null");
+        }
+        if (!isValid()) {
+            throw new IllegalStateException("The graph was changed since it was preprocessed");
+        }
+        int s = compact.idOf(startPath.getEnd());
+        int t = compact.idOf(goalNode);
+        if (s < 0 || t < 0) {
+            return null;
+        }
+        SearchWorkspace[] workspaces = WORKSPACES.get();
+        SearchWorkspace forward = workspaces[0];
+        SearchWorkspace backward = workspaces[1];
+
+        if (s != t) {
+            int meeting = query(forward, backward, s, startPath.getCost(), t);
+            return meeting < 0 ? null : buildPath(forward, backward, meeting, s, startPath);
+        }
+
+        // from a node to itself: the node alone through its self loop,
+        // or else the cheapest cycle through one of its children
+        if (compact.containsEdge(s, s)) {
+            return startPath;
+        }
+        double best = Double.POSITIVE_INFINITY;
+        int bestChild = -1;
+        for (int k = compact.childrenStart(s); k < compact.childrenEnd(s); k++) {
+            int child = compact.childAt(k);
+            int meeting = query(forward, backward, child, startPath.getCost() + cost[child], t);
+            if (meeting >= 0 && forward.dist[meeting] + backward.dist[meeting] < best) {
+                best = forward.dist[meeting] + backward.dist[meeting];
+                bestChild = child;
+            }
+        }
+        if (bestChild < 0) {
+            return null;
+        }
+        int meeting = query(forward, backward, bestChild, startPath.getCost() + cost[bestChild], t);
+        return buildPath(forward, backward, meeting, bestChild, startPath.extend(compact.nodeAt(bestChild)));
+    }
+
+    /**
+     * Runs the upward searches from s (whose path costs startCost) and from t.
+     * @return the node where the shortest path from s to t peaks, or -1 if
+     *         there is no path
+     */
+    private int query(SearchWorkspace forward, SearchWorkspace backward, int s, double startCost, int t) {
+        int n = compact.size();
+        forward.begin(n);
+        backward.begin(n);
+        forward.touch(s);
+        forward.dist[s] = startCost;
+        forward.heap.insertOrDecrease(s, startCost);
+        backward.touch(t);
+        backward.dist[t] = 0;
+        backward.heap.insertOrDecrease(t, 0);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        while (true) {
+            boolean forwardOpen = !forward.heap.isEmpty() && forward.heap.minKey() < best;
+            boolean backwardOpen = !backward.heap.isEmpty() && backward.heap.minKey() < best;
+            if (!forwardOpen && !backwardOpen) {
+                break;
+            }
+            boolean isForward = forwardOpen &&
+                    (!backwardOpen || forward.heap.size() <= backward.heap.size());
+            SearchWorkspace ws = isForward ? forward : backward;
+            SearchWorkspace other = isForward ? backward : forward;
+            double d = ws.heap.minKey();
+            int u = ws.heap.poll();
+            if (other.touched(u) && d + other.dist[u] < best) {
+                best = d + other.dist[u];
+                meeting = u;
+            }
+            int from = isForward ? upOffsets[u] : downOffsets[u];
+            int to = isForward ? upOffsets[u + 1] : downOffsets[u + 1];
+            int[] nodes = isForward ? upTargets : downSources;
+            double[] weights = isForward ? upWeights : downWeights;
+            for (int k = from; k < to; k++) {
+                int x = nodes[k];
+                double through = d + weights[k];
+                ws.touch(x);
+                if (through < ws.dist[x]) {
+                    ws.dist[x] = through;
+                    ws.pred[x] = u;
+                    ws.heap.insertOrDecrease(x, through);
+                }
+            }
+        }
+        return meeting;
+    }
+
+    /**
+     * Builds the path s -> meeting -> goal found by query, unpacking shortcuts.
+     */
+    private <P extends Path<T, P>> P buildPath(SearchWorkspace forward, SearchWorkspace backward,
+                                               int meeting, int s, P startPath) {
+        // the upward arcs from s to meeting, recovered backwards
+        int[] chain = forward.stack;
+        int top = 0;
+        for (int v = meeting; v != s; v = forward.pred[v]) {
+            chain[top++] = v;
+        }
+        P path = startPath;
+        int previous = s;
+        while (top > 0) {
+            int v = chain[--top];
+            path = unpack(previous, v, path);
+            previous = v;
+        }
+        for (int v = meeting; backward.pred[v] >= 0; v = backward.pred[v]) {
+            path = unpack(v, backward.pred[v], path);
+        }
+        return path;
+    }
+
+    /**
+     * Extends path with the original nodes of the arc from -> to, after from
+     * up to and including to.
+     * @requires path ends at from
+     */
+    private <P extends Path<T, P>> P unpack(int from, int to, P path) {
+        // pending arcs, the next one to unpack on top
+        int[] pending = new int[16];
+        int top = 0;
+        pending[top++] = from;
+        pending[top++] = to;
+        while (top > 0) {
+            int b = pending[--top];
+            int a = pending[--top];
+            Integer middle = middles.get(key(a, b));
+            if (middle == null) {
+                path = path.extend(compact.nodeAt(b));
+            } else {
+                if (top + 4 > pending.length) {
+                    pending = Arrays.copyOf(pending, 2 * pending.length);
+                }
+                // (a, middle) is unpacked first, so it goes on top
+                pending[top++] = middle;
+                pending[top++] = b;
+                pending[top++] = a;
+                pending[top++] = middle;
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,66 @@
+package homework2;
+
+import java.util.List;
+
+/**
+ * A read-only view of a directed graph where T is the type of each node.
+ * Every edge is going from parent to child.
+ * <p>
+ * This is the part of a graph that PathFinder needs in order to search it,
+ * so any graph representation implementing it can be searched.
+ */
+public interface DirectedGraph<T extends Comparable<? super T>> {
+
+    /**
+     * Returns a sorted list of all nodes in the graph.
+     * @return a sorted list of all nodes in the graph
+     */
+    public List<T> getListNodes();
+
+    /**
+     * Returns a sorted list of the children of the given node.
+     * @requires node != null and node exists in the graph
+     * @return a sorted list of the children of node
+     */
+    public List<T> getListChildren(T node);
+
+    /**
+     * Returns a sorted list of the parents of the given node, i.e. the nodes
+     * which have an edge to it.
+     * @requires node != null and node exists in the graph
+     * @return a sorted list of the parents of node
+     */
+    public List<T> getListParents(T node);
+
+    /**
+     * Returns whether this graph contains the given node.
+     * @return true if this graph contains node, false otherwise
+     */
+    public boolean containsNode(T node);
+
+    /**
+     * Returns whether this graph contains an edge from parent to child.
+     * @return true if there is an edge from parent to child, false otherwise
+     */
+    public boolean containsEdge(T parent, T child);
+
+    /**
+     * Returns the number of nodes in this graph.
+     * @return the number of nodes in this graph
+     */
+    public int size();
+
+    /**
+     * Returns whether this graph is empty.
+     * @return true if this graph contains no nodes, false otherwise
+     */
+    public boolean isEmpty();
+
+    /**
+     * Returns the modification version of this graph, which changes whenever
+     * the graph does. Results computed from the graph can record it to tell
+     * whether they are still up to date.
+     * @return the modification version of this graph
+     */
+    public long getVersion();
+}
@@ -0,0 +1,105 @@
+package homework2;
+
+/**
+ * A DistanceMatrix holds the costs of the shortest paths from a list of
+ * sources to a list of goals, as computed by PathFinder.distanceMatrix, and
+ * optionally the node before every goal on those paths.
+ * <p>
+ * Rows are indexed by source and columns by goal, in the order of the lists
+ * the matrix was computed for. The predecessors are kept as node ids of the
+ * frozen graph which was searched, so a node is only looked up when it is
+ * asked for.
+ * <p>
+ * A DistanceMatrix describes the graph as it was when it was computed and
+ * is not affected by later changes to the graph.
+ *
+ * @param <T> the type of nodes in the graph
+ */
+public class DistanceMatrix<T> {
+
+    /**
+     * Representation Invariant:
+     * - graph != null && costs != null
+     * - costs[i].length == columns for every row i
+     * - preds == null || (preds.length == costs.length &&
+     *   preds[i].length == columns for every row i)
+     * - every preds[i][j] is -1 or the id of a node of graph
+     * Abstraction Function:
+     * The shortest path from source i to goal j costs costs[i][j]
+     * (Double.POSITIVE_INFINITY if there is none). If preds != null, the node
+     * before goal j on it is graph.nodeAt(preds[i][j]), or there is none if
+     * preds[i][j] == -1.
+     */
+
+    private final IdGraph<T> graph;
+    private final double[][] costs;
+    private final int[][] preds;
+    private final int columns;
+
+    /**
+     * Checks the representation invariant.
+     */
+    private void checkRep() {
+        assert graph != null && costs != null : "graph and costs cannot be null";
+        assert preds == null || preds.length == costs.length :
+                "there must be a row of predecessors for every source";
+    }
+
+    /**
+     * Creates a matrix over the given search results, which it takes ownership of.
+     * @requires the arguments satisfy the representation invariant
+     */
+    DistanceMatrix(IdGraph<T> graph, double[][] costs, int[][] preds, int columns) {
+        this.graph = graph;
+        this.costs = costs;
+        this.preds = preds;
+        this.columns = columns;
+        checkRep();
+    }
+
+    /**
+     * Returns the number of sources.
+     */
+    public int rows() {
+        return costs.length;
+    }
+
+    /**
+     * Returns the number of goals.
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * Returns the cost of the shortest path from a source to a goal.
+     * @requires 0 <= source < rows() && 0 <= goal < columns()
+     * @return the cost of the shortest path from the source to the goal, or
+     *         Double.POSITIVE_INFINITY if there is none
+     */
+    public double getCost(int source, int goal) {
+        return costs[source][goal];
+    }
+
+    /**
+     * Returns whether the predecessors were computed.
+     */
+    public boolean hasPredecessors() {
+        return preds != null;
+    }
+
+    /**
+     * Returns the node before a goal on the shortest path from a source.
+     * @requires 0 <= source < rows() && 0 <= goal < columns()
+     * @return the node before the goal on the shortest path from the source,
+     *         or null if there is no such path or it has a single node
+     * @throws IllegalStateException if the predecessors were not computed
+     */
+    public T getPredecessor(int source, int goal) {
+        if (preds == null) {
+            throw new IllegalStateException("The predecessors were not computed");
+        }
+        int id = preds[source][goal];
+        return id < 0 ? null : graph.nodeAt(id);
+    }
+}
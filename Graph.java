@@ -6,14 +6,20 @@ import java.util.*;
  * A directed graph where T is the type of each node
  * Every edge is going from parent to child
  * The class contains functions that adds nodes and edges to the graph
+ * The natural ordering of T must be consistent with equals
  */
-public class Graph< T extends Comparable<? super T>> {
+public class Graph< T extends Comparable<? super T>> implements DirectedGraph<T> {
 
     /**
      * Representation Invariant:
      * name != null
      * no null keys or values in nodesList
-     * all children sets are not null and contain no nulls
+     * all children lists are not null, contain no nulls and no duplicates,
+     * and are sorted in increasing order
+     * parentsList has the same keys as nodesList, and the same holds for its lists
+     * parent is in parentsList.get(child) iff child is in nodesList.get(parent)
+     * dirty == null iff lastSnapshot == null, and otherwise lastSnapshot has
+     * the same edges as this graph for every node not in dirty
      */
 
     /**
@@ -23,11 +29,169 @@ public class Graph< T extends Comparable<? super T>> {
      * An edge is the connection of the child being in parents map
      */
 
+    /**
+     * How much of the Representation Invariant is verified while the graph
+     * is used. Checks only run when assertions are enabled.
+     * OFF - never check.
+     * INCREMENTAL - on mutation, check only the node or edge that was added.
+     * SAMPLED - like INCREMENTAL, plus a full check every SAMPLE_PERIOD mutations.
+     * FULL - check the whole graph before and after every operation.
+     */
+    public enum RepCheck { OFF, INCREMENTAL, SAMPLED, FULL }
+
+    // number of mutations between two full checks in SAMPLED mode
+    private static final int SAMPLE_PERIOD = 1024;
+
+    private static final boolean ASSERTIONS_ENABLED = Graph.class.desiredAssertionStatus();
+
+    /**
+     * The children (or parents) of a node, kept sorted as edges are added,
+     * together with an unmodifiable view of them which is handed out by
+     * getListChildren (or getListParents).
+     */
+    private static final class Children<T extends Comparable<? super T>> {
+        // the longest list sortAndDeduplicate sorts by insertion
+        private static final int INSERTION_SORT_MAX = 16;
+
+        private final ArrayList<T> sorted = new ArrayList<>();
+        private final List<T> view = Collections.unmodifiableList(sorted);
+
+        boolean contains(T child) {
+            return Collections.binarySearch(sorted, child) >= 0;
+        }
+
+        boolean add(T child) {
+            int index = Collections.binarySearch(sorted, child);
+            if (index >= 0) {
+                return false;
+            }
+            sorted.add(-index - 1, child);
+            return true;
+        }
+
+        boolean remove(T child) {
+            int index = Collections.binarySearch(sorted, child);
+            if (index < 0) {
+                return false;
+            }
+            sorted.remove(index);
+            return true;
+        }
+
+        /**
+         * Merges children into the list in one pass from its end, and
+         * returns the ones which were not in it yet, in order.
+         * @requires children is sorted and has no duplicates
+         */
+        List<T> merge(List<T> children) {
+            // find the place of every child by a binary search from the place
+            // of the previous one, so a long list is not compared to in full
+            int size = sorted.size();
+            List<T> added = new ArrayList<>();
+            int[] places = new int[children.size()];
+            int from = 0;
+            for (T child : children) {
+                int index = Collections.binarySearch(sorted.subList(from, size), child);
+                if (index >= 0) {
+                    from += index;
+                    continue;
+                }
+                from += -index - 1;
+                places[added.size()] = from;
+                added.add(child);
+            }
+            // grow the list, then fill it from its end, moving up the old
+            // children after the place of each new one
+            sorted.addAll(added);
+            int k = sorted.size();
+            int i = size;
+            for (int j = added.size() - 1; j >= 0; j--) {
+                while (i > places[j]) {
+                    sorted.set(--k, sorted.get(--i));
+                }
+                sorted.set(--k, added.get(j));
+            }
+            return added;
+        }
+
+        /**
+         * Restores the order of the list after nodes were appended to it out
+         * of order, dropping duplicates. Short lists, which most are, are
+         * sorted in place by insertion, which costs less for them than
+         * setting up Collections.sort.
+         */
+        void sortAndDeduplicate() {
+            int size = sorted.size();
+            if (size > INSERTION_SORT_MAX) {
+                Collections.sort(sorted);
+            }
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                T node = sorted.get(i);
+                // find the place of node among the kept nodes, which are sorted
+                int place = kept;
+                int c = 1;
+                while (place > 0 && (c = sorted.get(place - 1).compareTo(node)) > 0) {
+                    place--;
+                }
+                if (place > 0 && c == 0) {
+                    continue;
+                }
+                for (int k = kept; k > place; k--) {
+                    sorted.set(k, sorted.get(k - 1));
+                }
+                sorted.set(place, node);
+                kept++;
+            }
+            if (kept < size) {
+                sorted.subList(kept, size).clear();
+            }
+        }
+    }
+
+    /**
+     * A listener which is told about every edge added to or removed from a
+     * Graph, right after the graph changed.
+     */
+    public interface EdgeListener<T> {
+        /**
+         * Called after an edge from parent to child was added.
+         */
+        void edgeAdded(T parent, T child);
+
+        /**
+         * Called after an edge from parent to child was removed. When a node
+         * is removed, this is called for each of its edges, children first,
+         * once the node is no longer in the graph.
+         */
+        default void edgeRemoved(T parent, T child) {
+        }
+
+        /**
+         * Called after a node was removed, following edgeRemoved for its edges.
+         */
+        default void nodeRemoved(T node) {
+        }
+    }
+
     //private final String name;
-    private final HashMap<T, Set<T>> nodesList;
+    private final HashMap<T, Children<T>> nodesList;
+    // the reverse index of nodesList: maps every node to its parents
+    private final HashMap<T, Children<T>> parentsList;
+    private final RepCheck repCheck;
+    private int mutations;
+    // incremented by every change to the nodes or edges of the graph
+    private long version;
+    // the last snapshot taken, and the nodes whose edges changed since then;
+    // dirty is null until the first snapshot, so graphs that are never
+    // snapshotted do not track changes
+    private GraphSnapshot<T> lastSnapshot;
+    private HashSet<T> dirty;
+    // told about every added or removed edge; null until the first listener is added
+    private ArrayList<EdgeListener<? super T>> listeners;
 
     /**
-     * Checks the Representation Invariant
+     * Checks the whole Representation Invariant
      */
     private void checkRep() {
         //assert this.name != null;
@@ -36,16 +200,116 @@ public class Graph< T extends Comparable<? super T>> {
             assert node != null : "nodes cannot be null";
             assert nodesList.get(node) != null : "nodes sets cannot be null";
 
-            for (T child : nodesList.get(node)) {
+            T previous = null;
+            for (T child : nodesList.get(node).sorted) {
                 assert child != null : "child nodes cannot be null";
+                assert previous == null || previous.compareTo(child) < 0 :
+                        "children must be sorted and distinct";
+                previous = child;
+                assert parentsList.get(child).contains(node) : "parents must mirror children";
             }
         }
     }
 
+    /**
+     * Checks the Representation Invariant for a node that was just added
+     */
+    private void checkRep(T node) {
+        assert node != null : "nodes cannot be null";
+        assert nodesList.get(node) != null : "nodes sets cannot be null";
+        assert parentsList.get(node) != null : "nodes sets cannot be null";
+    }
+
+    /**
+     * Checks the Representation Invariant for an edge that was just added
+     */
+    private void checkRep(T parent, T child) {
+        assert parent != null && child != null : "edge nodes cannot be null";
+        assert nodesList.get(parent) != null : "nodes sets cannot be null";
+        assert nodesList.containsKey(child) : "child nodes must be in the graph";
+        assert nodesList.get(parent).contains(child) == parentsList.get(child).contains(parent) :
+                "parents must mirror children";
+    }
+
+    /**
+     * Checks the Representation Invariant for a node that was just removed,
+     * together with its edges to and from the given neighbors
+     */
+    private void checkRepRemoved(T node, Collection<T> children, Collection<T> parents) {
+        assert !nodesList.containsKey(node) && !parentsList.containsKey(node) :
+                "removed nodes cannot be in the graph";
+        for (T child : children) {
+            assert !parentsList.containsKey(child) || !parentsList.get(child).contains(node) :
+                    "removed nodes cannot be parents";
+        }
+        for (T parent : parents) {
+            assert !nodesList.containsKey(parent) || !nodesList.get(parent).contains(node) :
+                    "removed nodes cannot be children";
+        }
+    }
+
+    /**
+     * Checks the Representation Invariant around an operation, according to repCheck.
+     * Only FULL mode verifies anything around read-only operations.
+     */
+    private void checkRepIfFull() {
+        if (ASSERTIONS_ENABLED && repCheck == RepCheck.FULL) {
+            checkRep();
+        }
+    }
+
+    /**
+     * Checks the Representation Invariant after a mutation, according to repCheck.
+     * @param parent the node that was added, or the parent of the edge that was added
+     * @param child the child of the edge that was added, or null if a node was added
+     */
+    private void checkRepMutated(T parent, T child) {
+        if (!ASSERTIONS_ENABLED || repCheck == RepCheck.OFF) {
+            return;
+        }
+        mutations++;
+        if (repCheck == RepCheck.FULL ||
+                (repCheck == RepCheck.SAMPLED && mutations % SAMPLE_PERIOD == 0)) {
+            checkRep();
+        } else if (child == null) {
+            checkRep(parent);
+        } else {
+            checkRep(parent, child);
+        }
+    }
+
+    /**
+     * Creates an empty graph which checks its representation incrementally.
+     * @effects creates an empty graph
+     */
     public Graph() {
-        nodesList = new HashMap<>();
+        this(RepCheck.INCREMENTAL);
+    }
+
+    /**
+     * Creates an empty graph with the given Representation Invariant checking mode.
+     * @requires repCheck != null
+     * @effects creates an empty graph
+     */
+    public Graph(RepCheck repCheck) {
+        this(repCheck, 0);
+    }
+
+    /**
+     * Creates an empty graph whose tables are sized for expectedNodes nodes.
+     * @requires repCheck != null && expectedNodes >= 0
+     * @effects creates an empty graph
+     */
+    Graph(RepCheck repCheck, int expectedNodes) {
+        if (repCheck == null) {
+            throw new IllegalArgumentException("repCheck cannot be null");
+        }
+        int capacity = Math.max(16, (int) (expectedNodes / 0.75f) + 1);
+        nodesList = new HashMap<>(capacity);
+        parentsList = new HashMap<>(capacity);
+        this.repCheck = repCheck;
         //this.name = name;
-        checkRep();
+        checkRepIfFull();
     }
 
     /*public String getName() {
@@ -61,24 +325,31 @@ public class Graph< T extends Comparable<? super T>> {
      * @throws IllegalArgumentException when node already exists
      */
     public void addNode(T node) {
-        checkRep();
+        checkRepIfFull();
         assert node != null;
         // adds the node if it doesn't already exist
         if(this.nodesList.containsKey(node)) {
             throw new IllegalArgumentException("The node already exists");
         }
-        this.nodesList.put(node, new HashSet<>());
-        checkRep();
+        this.nodesList.put(node, new Children<>());
+        this.parentsList.put(node, new Children<>());
+        version++;
+        if (dirty != null) {
+            dirty.add(node);
+        }
+        checkRepMutated(node, null);
     }
 
     /**
      * Adds a directed edge from parent to child.
+     * The children of parent are kept sorted, so this takes time linear in
+     * the number of children of parent.
      * @requires parent and child are non-null and already exist in the graph
      * @modifies this
      * @effects adds a directed edge from parent to child node
      */
     public boolean addEdge(T parent, T child) {
-        checkRep();
+        checkRepIfFull();
         if (parent == null || child == null) {
             throw new IllegalArgumentException("Nodes cannot be null");
         }
@@ -86,15 +357,329 @@ public class Graph< T extends Comparable<? super T>> {
             throw new IllegalArgumentException("Both nodes must be in the graph");
         }
         boolean added = nodesList.get(parent).add(child);
-        checkRep();
+        if (added) {
+            parentsList.get(child).add(parent);
+            version++;
+            if (dirty != null) {
+                dirty.add(parent);
+                dirty.add(child);
+            }
+        }
+        checkRepMutated(parent, child);
+        if (added && listeners != null) {
+            edgesAdded(parent, Collections.singletonList(child));
+        }
         return added;
     }
 
+    /**
+     * Removes the directed edge from parent to child, if there is one.
+     * This takes time linear in the number of children of parent and
+     * parents of child.
+     * @requires parent and child are non-null and exist in the graph
+     * @modifies this
+     * @effects removes the directed edge from parent to child node
+     * @return true if the edge was removed, false if it did not exist
+     */
+    public boolean removeEdge(T parent, T child) {
+        checkRepIfFull();
+        if (parent == null || child == null) {
+            throw new IllegalArgumentException("Nodes cannot be null");
+        }
+        if (!nodesList.containsKey(parent) || !nodesList.containsKey(child)) {
+            throw new IllegalArgumentException("Both nodes must be in the graph");
+        }
+        boolean removed = nodesList.get(parent).remove(child);
+        if (removed) {
+            parentsList.get(child).remove(parent);
+            version++;
+            if (dirty != null) {
+                dirty.add(parent);
+                dirty.add(child);
+            }
+        }
+        checkRepMutated(parent, child);
+        if (removed && listeners != null) {
+            for (EdgeListener<? super T> listener : new ArrayList<>(listeners)) {
+                listener.edgeRemoved(parent, child);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes a node and all the edges from and to it. The nodes with an
+     * edge to it are found in the reverse index, so this takes time linear
+     * in the number of edges of the node and of its neighbors, rather than
+     * in the size of the graph.
+     * @requires node != null and the node exists in the graph
+     * @modifies this
+     * @effects removes the node and its edges from the graph
+     * @throws IllegalArgumentException when node does not exist
+     */
+    public void removeNode(T node) {
+        checkRepIfFull();
+        if (node == null) {
+            throw new IllegalArgumentException("Nodes cannot be null");
+        }
+        if (!nodesList.containsKey(node)) {
+            throw new IllegalArgumentException("The node does not exist");
+        }
+        List<T> children = nodesList.remove(node).sorted;
+        List<T> parents = parentsList.remove(node).sorted;
+        for (T child : children) {
+            if (!child.equals(node)) {
+                parentsList.get(child).remove(node);
+            }
+        }
+        for (T parent : parents) {
+            if (!parent.equals(node)) {
+                nodesList.get(parent).remove(node);
+            }
+        }
+        version++;
+        if (dirty != null) {
+            dirty.add(node);
+            dirty.addAll(children);
+            dirty.addAll(parents);
+        }
+        if (ASSERTIONS_ENABLED && repCheck != RepCheck.OFF) {
+            mutations++;
+            if (repCheck == RepCheck.FULL ||
+                    (repCheck == RepCheck.SAMPLED && mutations % SAMPLE_PERIOD == 0)) {
+                checkRep();
+            } else {
+                checkRepRemoved(node, children, parents);
+            }
+        }
+        if (listeners != null) {
+            for (EdgeListener<? super T> listener : new ArrayList<>(listeners)) {
+                for (T child : children) {
+                    listener.edgeRemoved(node, child);
+                }
+                for (T parent : parents) {
+                    if (!parent.equals(node)) {
+                        listener.edgeRemoved(parent, node);
+                    }
+                }
+                listener.nodeRemoved(node);
+            }
+        }
+    }
+
+    /**
+     * Adds all the given nodes to the graph. Either all of them are added or,
+     * if one of them is invalid, none is.
+     * @requires nodes != null and its nodes are non-null, distinct and don't
+     *           exist yet in the graph
+     * @modifies this
+     * @effects adds all the nodes to the graph
+     * @throws IllegalArgumentException when a node is null or already exists
+     */
+    public void addNodes(Collection<? extends T> nodes) {
+        checkRepIfFull();
+        if (nodes == null) {
+            throw new IllegalArgumentException("Nodes cannot be null");
+        }
+        Set<T> distinct = new HashSet<>(Math.max(16, (int) (nodes.size() / 0.75f) + 1));
+        for (T node : nodes) {
+            if (node == null) {
+                throw new IllegalArgumentException("Nodes cannot be null");
+            }
+            if (nodesList.containsKey(node) || !distinct.add(node)) {
+                throw new IllegalArgumentException("The node already exists");
+            }
+        }
+        for (T node : nodes) {
+            nodesList.put(node, new Children<>());
+            parentsList.put(node, new Children<>());
+        }
+        version++;
+        if (dirty != null) {
+            dirty.addAll(nodes);
+        }
+        checkRepBulk(nodes, null);
+    }
+
+    /**
+     * Adds directed edges from parent to all the given children. The given
+     * children are sorted once and merged into the children of parent in one
+     * pass, instead of one insertion each, with their places found by binary
+     * search. Every new child gets a single new
+     * parent, which is inserted into its parents at its place. Either all the
+     * edges are added or, if a child is invalid, none is.
+     * @requires parent and all children are non-null and already exist in the graph
+     * @modifies this
+     * @effects adds a directed edge from parent to every node in children
+     * @return the number of edges which were added, i.e. did not exist yet
+     */
+    public int addEdges(T parent, Collection<? extends T> children) {
+        checkRepIfFull();
+        if (parent == null || children == null) {
+            throw new IllegalArgumentException("Nodes cannot be null");
+        }
+        if (!nodesList.containsKey(parent)) {
+            throw new IllegalArgumentException("Both nodes must be in the graph");
+        }
+        for (T child : children) {
+            if (child == null) {
+                throw new IllegalArgumentException("Nodes cannot be null");
+            }
+            if (!nodesList.containsKey(child)) {
+                throw new IllegalArgumentException("Both nodes must be in the graph");
+            }
+        }
+        Children<T> sortedChildren = new Children<>();
+        sortedChildren.sorted.addAll(children);
+        sortedChildren.sortAndDeduplicate();
+        List<T> added = nodesList.get(parent).merge(sortedChildren.sorted);
+        if (added.isEmpty()) {
+            return 0;
+        }
+        for (T child : added) {
+            parentsList.get(child).add(parent);
+        }
+        version++;
+        if (dirty != null) {
+            dirty.add(parent);
+            dirty.addAll(added);
+        }
+        checkRepBulk(Collections.singleton(parent), added);
+        if (listeners != null) {
+            edgesAdded(parent, added);
+        }
+        return added.size();
+    }
+
+    /**
+     * Adds the given nodes, and the edges edgeParents[i] -> edgeChildren[i]
+     * for 0 <= i < edgeCount, to this graph which must be empty. Edges are
+     * appended to the children and parents lists unordered, and every list
+     * is then sorted and deduplicated once. Used by GraphBuilder.
+     * @requires this is empty && the arrays have at least edgeCount elements
+     * @modifies this
+     * @effects adds the nodes and the edges to this graph
+     * @throws IllegalArgumentException when a node is null or appears twice,
+     *         or an edge has a node which is not among nodes
+     */
+    void load(Collection<? extends T> nodes, Object[] edgeParents, Object[] edgeChildren, int edgeCount) {
+        assert nodesList.isEmpty() : "only an empty graph can be loaded";
+        for (T node : nodes) {
+            if (node == null) {
+                throw new IllegalArgumentException("Nodes cannot be null");
+            }
+            if (nodesList.put(node, new Children<>()) != null) {
+                throw new IllegalArgumentException("The node already exists");
+            }
+            parentsList.put(node, new Children<>());
+        }
+        // the edges of a parent usually come one after the other, so its
+        // children are only looked up again when the parent changes
+        Object lastParent = null;
+        Children<T> parentChildren = null;
+        for (int i = 0; i < edgeCount; i++) {
+            @SuppressWarnings("unchecked")
+            T parent = (T) edgeParents[i];
+            @SuppressWarnings("unchecked")
+            T child = (T) edgeChildren[i];
+            if (parent != lastParent) {
+                parentChildren = nodesList.get(parent);
+                lastParent = parent;
+            }
+            Children<T> childParents = parentsList.get(child);
+            if (parentChildren == null || childParents == null) {
+                throw new IllegalArgumentException("Both nodes must be in the graph");
+            }
+            parentChildren.sorted.add(child);
+            childParents.sorted.add(parent);
+        }
+        for (Children<T> children : nodesList.values()) {
+            children.sortAndDeduplicate();
+        }
+        for (Children<T> parents : parentsList.values()) {
+            parents.sortAndDeduplicate();
+        }
+        version++;
+        if (dirty != null) {
+            dirty.addAll(nodesList.keySet());
+        }
+        if (ASSERTIONS_ENABLED && repCheck != RepCheck.OFF) {
+            checkRep();
+        }
+    }
+
+    /**
+     * Checks the Representation Invariant once after a bulk mutation,
+     * according to repCheck.
+     * @param nodes the nodes that were added, or the parent of the edges that were added
+     * @param children the children of the edges that were added, or null if nodes were added
+     */
+    private void checkRepBulk(Collection<? extends T> nodes, Collection<? extends T> children) {
+        if (!ASSERTIONS_ENABLED || repCheck == RepCheck.OFF) {
+            return;
+        }
+        mutations++;
+        if (repCheck == RepCheck.FULL ||
+                (repCheck == RepCheck.SAMPLED && mutations % SAMPLE_PERIOD == 0)) {
+            checkRep();
+        } else if (children == null) {
+            for (T node : nodes) {
+                checkRep(node);
+            }
+        } else {
+            for (T parent : nodes) {
+                for (T child : children) {
+                    checkRep(parent, child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells the listeners about the edges from parent to children.
+     */
+    private void edgesAdded(T parent, List<? extends T> children) {
+        // a listener may remove itself while it is being told
+        for (EdgeListener<? super T> listener : new ArrayList<>(listeners)) {
+            for (T child : children) {
+                listener.edgeAdded(parent, child);
+            }
+        }
+    }
+
+    /**
+     * Registers a listener to be told about every edge added to or removed
+     * from this graph from now on. Listeners are told in the order they were added.
+     * @requires listener != null
+     * @modifies this
+     * @effects adds listener to the listeners of this graph
+     */
+    public void addEdgeListener(EdgeListener<? super T> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops telling a listener about the changes to this graph.
+     * @modifies this
+     * @effects removes listener from the listeners of this graph, if it is there
+     */
+    public void removeEdgeListener(EdgeListener<? super T> listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
     /**
      * Returns a sorted list to all nodes in the graph.
      */
     public ArrayList<T> getListNodes() {
-        checkRep();
+        checkRepIfFull();
 
         Set<T> nodeSet = this.nodesList.keySet();
         ArrayList<T> sortedNodes = new ArrayList<>(nodeSet);
@@ -106,15 +691,27 @@ public class Graph< T extends Comparable<? super T>> {
 
     /**
      * Returns a sorted list of the children for the given node.
+     * The list is an unmodifiable view which nothing is copied into, so it
+     * reflects edges added to node after this call.
      * @requires node exists in the graph and parent != null
      */
     public List<T> getListChildren(T node) {
-        checkRep();
+        checkRepIfFull();
         assert node != null;
-        Set<T> nodeSet = this.nodesList.get(node);
-        List<T> sortedNodes = new ArrayList<>(nodeSet);
-        Collections.sort(sortedNodes);
-        return sortedNodes;
+        return this.nodesList.get(node).view;
+    }
+
+    /**
+     * Returns a sorted list of the parents for the given node, i.e. the nodes
+     * which have an edge to it.
+     * The list is an unmodifiable view, so it reflects edges added to node
+     * after this call.
+     * @requires node exists in the graph and node != null
+     */
+    public List<T> getListParents(T node) {
+        checkRepIfFull();
+        assert node != null;
+        return this.parentsList.get(node).view;
     }
 
     /**
@@ -123,7 +720,7 @@ public class Graph< T extends Comparable<? super T>> {
      * @return true if this graph contains node, false otherwise
      */
     public boolean containsNode(T node) {
-        checkRep();
+        checkRepIfFull();
         return nodesList.containsKey(node);
     }
 
@@ -135,7 +732,7 @@ public class Graph< T extends Comparable<? super T>> {
      * @return true if there is an edge from parent to child, false otherwise
      */
     public boolean containsEdge(T parent, T child) {
-        checkRep();
+        checkRepIfFull();
         if (parent == null || child == null) {
             return false;
         }
@@ -150,7 +747,7 @@ public class Graph< T extends Comparable<? super T>> {
      * @return the number of nodes in this graph
      */
     public int size() {
-        checkRep();
+        checkRepIfFull();
         return nodesList.size();
     }
 
@@ -160,7 +757,62 @@ public class Graph< T extends Comparable<? super T>> {
      * @return true if this graph contains no nodes, false otherwise
      */
     public boolean isEmpty() {
-        checkRep();
+        checkRepIfFull();
         return nodesList.isEmpty();
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the modification version of this graph, which grows every time
+     * a node or an edge is added or removed. Data derived from the graph can record the
+     * version it was computed at, to tell whether it is still up to date.
+     * @return the modification version of this graph
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the Representation Invariant checking mode of this graph.
+     * @return the Representation Invariant checking mode of this graph
+     */
+    public RepCheck getRepCheck() {
+        return repCheck;
+    }
+
+    /**
+     * Returns an immutable compact snapshot of this graph, with nodes interned
+     * to int ids and the children stored in flat arrays.
+     * Later changes to this graph are not reflected in the snapshot.
+     * @return a CompactGraph with the same nodes and edges as this graph
+     */
+    public CompactGraph<T> freeze() {
+        checkRepIfFull();
+        return new CompactGraph<>(this);
+    }
+
+    /**
+     * Returns an immutable snapshot of this graph, which later changes to
+     * this graph do not affect. Consecutive snapshots share the edges of
+     * the nodes which did not change between them, so after the first one,
+     * taking a snapshot costs time proportional to the edges of the nodes
+     * changed since the previous snapshot (amortized over snapshots).
+     * @return a GraphSnapshot with the same nodes and edges as this graph
+     */
+    public GraphSnapshot<T> snapshot() {
+        checkRepIfFull();
+        if (lastSnapshot != null && lastSnapshot.getVersion() == version) {
+            return lastSnapshot;
+        }
+        Collection<T> changedNodes = dirty == null ? nodesList.keySet() : dirty;
+        HashMap<T, GraphSnapshot.Edges> changed =
+                new HashMap<>(Math.max(16, (int) (changedNodes.size() / 0.75f) + 1));
+        for (T node : changedNodes) {
+            Children<T> children = nodesList.get(node);
+            changed.put(node, children == null ? GraphSnapshot.REMOVED :
+                    new GraphSnapshot.Edges(children.sorted.toArray(), parentsList.get(node).sorted.toArray()));
+        }
+        dirty = new HashSet<>();
+        lastSnapshot = GraphSnapshot.create(lastSnapshot, changed, nodesList.size(), version);
+        return lastSnapshot;
+    }
+}
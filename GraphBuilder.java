@@ -0,0 +1,130 @@
+package homework2;
+
+import java.util.*;
+
+/**
+ * A GraphBuilder collects nodes and edges and then builds a Graph from all
+ * of them at once, which takes less time than adding the edges one by one.
+ * <p>
+ * Nodes and edges are only appended to presized buffers while they are
+ * added. build() sizes the graph's tables for all the nodes, appends every
+ * edge to the children and parents lists unordered, sorts and deduplicates
+ * each list once, and validates the graph once at the end, instead of
+ * keeping every list sorted and checking the graph on every edge. Adding
+ * the edges of a node one after the other saves looking the node up again.
+ * <p>
+ * Duplicate edges are allowed and added once. Nodes that appear twice, and
+ * edges with a node that was not added, are only reported by build().
+ */
+public class GraphBuilder<T extends Comparable<? super T>> {
+
+    /**
+     * Representation Invariant:
+     * nodes != null && edgeParents != null && edgeChildren != null
+     * 0 <= edgeCount <= edgeParents.length == edgeChildren.length
+     * no nulls in nodes, edgeParents[0..edgeCount) and edgeChildren[0..edgeCount)
+     * Abstraction Function:
+     * the graph to build has the nodes in nodes and the edges
+     * edgeParents[i] -> edgeChildren[i] for 0 <= i < edgeCount
+     */
+
+    private final ArrayList<T> nodes;
+    private Object[] edgeParents;
+    private Object[] edgeChildren;
+    private int edgeCount;
+
+    /**
+     * Checks the representation invariant.
+     */
+    private void checkRep() {
+        assert nodes != null && edgeParents != null && edgeChildren != null : "buffers cannot be null";
+        assert edgeParents.length == edgeChildren.length && edgeCount <= edgeParents.length :
+                "every edge must have a parent and a child";
+    }
+
+    /**
+     * Creates an empty GraphBuilder.
+     * @effects creates a GraphBuilder with no nodes and edges
+     */
+    public GraphBuilder() {
+        this(16, 16);
+    }
+
+    /**
+     * Creates an empty GraphBuilder whose buffers are sized for the
+     * expected numbers of nodes and edges.
+     * @requires expectedNodes >= 0 && expectedEdges >= 0
+     * @effects creates a GraphBuilder with no nodes and edges
+     */
+    public GraphBuilder(int expectedNodes, int expectedEdges) {
+        if (expectedNodes < 0 || expectedEdges < 0) {
+            throw new IllegalArgumentException("Expected counts cannot be negative");
+        }
+        nodes = new ArrayList<>(expectedNodes);
+        edgeParents = new Object[expectedEdges];
+        edgeChildren = new Object[expectedEdges];
+        checkRep();
+    }
+
+    /**
+     * Adds a node to the graph to build.
+     * @requires node != null
+     * @modifies this
+     * @effects adds node to the graph to build
+     * @return this
+     */
+    public GraphBuilder<T> addNode(T node) {
+        if (node == null) {
+            throw new IllegalArgumentException("Nodes cannot be null");
+        }
+        nodes.add(node);
+        return this;
+    }
+
+    /**
+     * Adds a directed edge from parent to child to the graph to build.
+     * @requires parent != null && child != null
+     * @modifies this
+     * @effects adds an edge from parent to child to the graph to build
+     * @return this
+     */
+    public GraphBuilder<T> addEdge(T parent, T child) {
+        if (parent == null || child == null) {
+            throw new IllegalArgumentException("Nodes cannot be null");
+        }
+        if (edgeCount == edgeParents.length) {
+            int capacity = Math.max(16, 2 * edgeCount);
+            edgeParents = Arrays.copyOf(edgeParents, capacity);
+            edgeChildren = Arrays.copyOf(edgeChildren, capacity);
+        }
+        edgeParents[edgeCount] = parent;
+        edgeChildren[edgeCount] = child;
+        edgeCount++;
+        return this;
+    }
+
+    /**
+     * Builds a graph which checks its representation incrementally.
+     * @see #build(Graph.RepCheck)
+     */
+    public Graph<T> build() {
+        return build(Graph.RepCheck.INCREMENTAL);
+    }
+
+    /**
+     * Builds a graph with all the nodes and edges added so far. The builder
+     * is not changed, so more nodes and edges can be added and another graph
+     * built.
+     * @requires repCheck != null
+     * @return a new Graph with the added nodes and edges and the given
+     *         Representation Invariant checking mode
+     * @throws IllegalArgumentException if a node was added twice, or an edge
+     *         has a node which was not added
+     */
+    public Graph<T> build(Graph.RepCheck repCheck) {
+        checkRep();
+        Graph<T> graph = new Graph<>(repCheck, nodes.size());
+        graph.load(nodes, edgeParents, edgeChildren, edgeCount);
+        return graph;
+    }
+}
@@ -0,0 +1,270 @@
+package homework2;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * GraphFile reads and writes graphs of WeightedNodes in a compact binary
+ * format, which loads much faster than replaying text commands.
+ * <p>
+ * The file holds the nodes sorted, so that a node's id is its position, and
+ * the edges in compressed sparse row form, as in CompactGraph. All numbers
+ * are big-endian 32 bit ints:
+ * <pre>
+ *   magic, format version, node count n, edge count m, name byte count b
+ *   costs[n]            the cost of every node
+ *   nameOffsets[n + 1]  node i's name is names[nameOffsets[i] .. nameOffsets[i+1])
+ *   offsets[n + 1]      node i's children are targets[offsets[i] .. offsets[i+1])
+ *   targets[m]          the child ids, increasing for every node
+ *   names[b]            the UTF-8 bytes of all names
+ * </pre>
+ * Files are read by mapping them into memory (FileChannel.map) and copying
+ * the arrays out in bulk, so the only per-node work is creating the node.
+ * readOffHeap does not even copy them, and searches the mapped file itself.
+ */
+public final class GraphFile {
+
+    private static final int MAGIC = 0x48574731; // "HWG1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_INTS = 5;
+
+    private GraphFile() {
+    }
+
+    /**
+     * Writes the given graph to a file.
+     * @param graph the graph to write
+     * @param file the file to write to, which is replaced if it exists
+     * @requires graph != null && file != null
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(DirectedGraph<WeightedNode> graph, File file) throws IOException {
+        if (graph == null || file == null) {
+            throw new IllegalArgumentException("Graph and file cannot be null");
+        }
+        CompactGraph<WeightedNode> compact = graph instanceof CompactGraph ?
+                (CompactGraph<WeightedNode>) graph : new CompactGraph<>(graph);
+        int n = compact.size();
+        byte[][] names = new byte[n][];
+        int[] nameOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            names[i] = compact.nodeAt(i).getName().getBytes(StandardCharsets.UTF_8);
+            nameOffsets[i + 1] = nameOffsets[i] + names[i].length;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(n);
+            out.writeInt(compact.edgeCount());
+            out.writeInt(nameOffsets[n]);
+            for (int i = 0; i < n; i++) {
+                out.writeInt(compact.nodeAt(i).getCost());
+            }
+            for (int offset : nameOffsets) {
+                out.writeInt(offset);
+            }
+            for (int i = 0; i <= n; i++) {
+                out.writeInt(i < n ? compact.childrenStart(i) : compact.edgeCount());
+            }
+            for (int k = 0; k < compact.edgeCount(); k++) {
+                out.writeInt(compact.childAt(k));
+            }
+            for (byte[] name : names) {
+                out.write(name);
+            }
+        }
+    }
+
+    /**
+     * Reads a graph from a file written by write.
+     * @param file the file to read
+     * @requires file != null
+     * @return an immutable CompactGraph with the nodes and edges in the file
+     * @throws IOException if the file cannot be read or is not a valid graph file
+     */
+    public static CompactGraph<WeightedNode> read(File file) throws IOException {
+        MappedByteBuffer buffer = map(file);
+        int n = buffer.getInt(2 * Integer.BYTES);
+        int m = buffer.getInt(3 * Integer.BYTES);
+        int nameBytes = buffer.getInt(4 * Integer.BYTES);
+
+        int[] costs = ints(buffer, n);
+        int[] nameOffsets = ints(buffer, n + 1);
+        int[] offsets = ints(buffer, n + 1);
+        int[] targets = ints(buffer, m);
+        byte[] names = new byte[nameBytes];
+        buffer.get(names);
+        checkOffsets(IntBuffer.wrap(nameOffsets), nameBytes, file);
+        checkOffsets(IntBuffer.wrap(offsets), m, file);
+        checkTargets(IntBuffer.wrap(offsets), IntBuffer.wrap(targets), file);
+
+        Object[] nodes = new Object[n];
+        for (int i = 0; i < n; i++) {
+            String name = new String(names, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i],
+                    StandardCharsets.UTF_8);
+            nodes[i] = new WeightedNode(name, costs[i]);
+            if (i > 0 && ((WeightedNode) nodes[i - 1]).compareTo((WeightedNode) nodes[i]) >= 0) {
+                throw new IOException("Corrupt graph file: " + file);
+            }
+        }
+        return new CompactGraph<>(nodes, offsets, targets);
+    }
+
+    /**
+     * Reads a graph from a file written by write, without copying it into
+     * the heap: the nodes and children of the graph are read straight from
+     * the mapped file, so the operating system pages them in and out as
+     * they are used. Only the parents and the name index of the graph are
+     * built, outside the heap as well.
+     * <p>
+     * The file must not be changed while the graph is in use.
+     * @param file the file to read
+     * @requires file != null
+     * @return an OffHeapGraph with the nodes and edges in the file
+     * @throws IOException if the file cannot be read or is not a valid graph file
+     */
+    public static OffHeapGraph readOffHeap(File file) throws IOException {
+        MappedByteBuffer buffer = map(file);
+        int n = buffer.getInt(2 * Integer.BYTES);
+        int m = buffer.getInt(3 * Integer.BYTES);
+        int nameBytes = buffer.getInt(4 * Integer.BYTES);
+
+        IntBuffer costs = intView(buffer, n);
+        IntBuffer nameOffsets = intView(buffer, n + 1);
+        IntBuffer offsets = intView(buffer, n + 1);
+        IntBuffer targets = intView(buffer, m);
+        ByteBuffer names = buffer.slice();
+        checkOffsets(nameOffsets, nameBytes, file);
+        checkOffsets(offsets, m, file);
+        checkTargets(offsets, targets, file);
+
+        // only two nodes are created at a time to check the order of the names
+        WeightedNode previous = null;
+        byte[] name = new byte[0];
+        for (int i = 0; i < n; i++) {
+            int length = nameOffsets.get(i + 1) - nameOffsets.get(i);
+            if (name.length < length) {
+                name = new byte[Math.max(length, 2 * name.length)];
+            }
+            names.position(nameOffsets.get(i));
+            names.get(name, 0, length);
+            WeightedNode node = new WeightedNode(new String(name, 0, length, StandardCharsets.UTF_8), costs.get(i));
+            if (previous != null && previous.compareTo(node) >= 0) {
+                throw new IOException("Corrupt graph file: " + file);
+            }
+            previous = node;
+        }
+        names.position(0);
+        return new OffHeapGraph(costs, nameOffsets, names, offsets, targets);
+    }
+
+    /**
+     * Maps a file into memory and checks that its header and length are
+     * those of a graph file.
+     * @return the mapped file, positioned after the header
+     */
+    private static MappedByteBuffer map(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_INTS * Integer.BYTES) {
+                throw new IOException("Not a graph file: " + file);
+            }
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a graph file: " + file);
+            }
+            int n = buffer.getInt();
+            int m = buffer.getInt();
+            int nameBytes = buffer.getInt();
+            long expected = Integer.BYTES * (HEADER_INTS + 3L * n + 2 + m) + nameBytes;
+            if (n < 0 || m < 0 || nameBytes < 0 || expected != length) {
+                throw new IOException("Corrupt graph file: " + file);
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Reads a graph from a file written by write, into a Graph which can be
+     * modified further.
+     * @param file the file to read
+     * @requires file != null
+     * @return a Graph with the nodes and edges in the file
+     * @throws IOException if the file cannot be read or is not a valid graph file
+     */
+    public static Graph<WeightedNode> readGraph(File file) throws IOException {
+        CompactGraph<WeightedNode> compact = read(file);
+        GraphBuilder<WeightedNode> builder = new GraphBuilder<>(compact.size(), compact.edgeCount());
+        List<WeightedNode> nodes = compact.getListNodes();
+        for (WeightedNode node : nodes) {
+            builder.addNode(node);
+        }
+        for (int i = 0; i < compact.size(); i++) {
+            for (int k = compact.childrenStart(i); k < compact.childrenEnd(i); k++) {
+                builder.addEdge(nodes.get(i), nodes.get(compact.childAt(k)));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Copies the next count ints of buffer into a new array.
+     */
+    private static int[] ints(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    /**
+     * Returns a view of the next count ints of buffer, and skips them.
+     */
+    private static IntBuffer intView(ByteBuffer buffer, int count) {
+        IntBuffer values = buffer.asIntBuffer();
+        values.limit(count);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    /**
+     * Checks that offsets start at 0, never decrease and end at total.
+     */
+    private static void checkOffsets(IntBuffer offsets, int total, File file) throws IOException {
+        int last = offsets.limit() - 1;
+        boolean valid = offsets.get(0) == 0 && offsets.get(last) == total;
+        for (int i = 1; valid && i <= last; i++) {
+            valid = offsets.get(i - 1) <= offsets.get(i);
+        }
+        if (!valid) {
+            throw new IOException("Corrupt graph file: " + file);
+        }
+    }
+
+    /**
+     * Checks that the children of every node are valid ids and increasing.
+     */
+    private static void checkTargets(IntBuffer offsets, IntBuffer targets, File file) throws IOException {
+        int n = offsets.limit() - 1;
+        for (int i = 0; i < n; i++) {
+            for (int k = offsets.get(i); k < offsets.get(i + 1); k++) {
+                int target = targets.get(k);
+                if (target < 0 || target >= n || (k > offsets.get(i) && targets.get(k - 1) >= target)) {
+                    throw new IOException("Corrupt graph file: " + file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package homework2;
+
+import java.util.*;
+
+/**
+ * An immutable view of a Graph as it was at some version, obtained from
+ * Graph.snapshot(). Later changes to the graph do not affect it, so long
+ * searches can run on it while the graph keeps changing.
+ * <p>
+ * Snapshots share structure: a snapshot only stores the edges of the nodes
+ * which changed since the previous snapshot of the same graph, on top of that
+ * previous snapshot (its base). A node removed since then is stored as
+ * REMOVED, which hides it in the layers below. To keep lookups fast, a layer
+ * is merged into its base whenever the base holds fewer than twice as many
+ * nodes, so each base holds more than twice as many nodes as the layer above
+ * it and there are O(log n) layers. Layers that no snapshot refers to anymore are
+ * reclaimed by the garbage collector.
+ * <p>
+ * Looking up a node takes a hash lookup per layer. Searches which run many
+ * queries on one snapshot can freeze it first (new CompactGraph(snapshot)).
+ */
+public final class GraphSnapshot<T extends Comparable<? super T>> implements DirectedGraph<T> {
+
+    /**
+     * Representation Invariant:
+     * changed != null && no null keys or values in changed
+     * all children and parents arrays of the values other than REMOVED contain
+     * no nulls and no duplicates, and are sorted in increasing order
+     * base != null || REMOVED is not a value of changed
+     * base == null || base.changed.size() > 2 * changed.size()
+     * size >= 0
+     */
+
+    /**
+     * Abstraction Function:
+     * A GraphSnapshot<T> is a directed graph G = (V, E)
+     * where V = {v in changed.keySet() | changed.get(v) != REMOVED} union
+     * {v in the nodes of base | v is not in changed.keySet()}
+     * and the children (parents) of v are changed.get(v).children (.parents)
+     * if v is in changed, and the children (parents) of v in base otherwise
+     */
+
+    /**
+     * The children and parents of a node, as sorted arrays which are never modified.
+     */
+    static final class Edges {
+        final Object[] children;
+        final Object[] parents;
+
+        Edges(Object[] children, Object[] parents) {
+            this.children = children;
+            this.parents = parents;
+        }
+    }
+
+    // the edges of a node which was removed from the graph
+    static final Edges REMOVED = new Edges(null, null);
+
+    private final GraphSnapshot<T> base;
+    private final HashMap<T, Edges> changed;
+    private final int size;
+    private final long version;
+
+    /**
+     * Checks the Representation Invariant
+     */
+    private void checkRep() {
+        assert changed != null : "changed cannot be null";
+        assert base == null || base.changed.size() > 2 * changed.size() :
+                "every layer must be less than half the size of its base";
+        assert size >= 0 : "size cannot be negative";
+    }
+
+    private GraphSnapshot(GraphSnapshot<T> base, HashMap<T, Edges> changed, int size, long version) {
+        this.base = base;
+        this.changed = changed;
+        this.size = size;
+        this.version = version;
+        checkRep();
+    }
+
+    /**
+     * Creates a snapshot from the previous snapshot of a graph and the edges
+     * of the nodes which changed since then, which it takes ownership of.
+     * @requires changed != null
+     * @param previous the previous snapshot, or null if there is none
+     * @param changed the edges of the nodes which changed since previous
+     * @param size the number of nodes in the graph
+     * @param version the version of the graph
+     */
+    static <T extends Comparable<? super T>> GraphSnapshot<T> create(GraphSnapshot<T> previous,
+                                                                     HashMap<T, Edges> changed,
+                                                                     int size, long version) {
+        GraphSnapshot<T> base = previous;
+        // merge with bases which are not much larger, like carries in a binary counter
+        while (base != null && base.changed.size() <= 2 * changed.size()) {
+            HashMap<T, Edges> merged = new HashMap<>(base.changed);
+            merged.putAll(changed);
+            changed = merged;
+            base = base.base;
+        }
+        if (base == null) {
+            // there are no layers below for removed nodes to hide
+            changed.values().removeIf(edges -> edges == REMOVED);
+        }
+        return new GraphSnapshot<>(base, changed, size, version);
+    }
+
+    /**
+     * Returns the edges of node, or null if it is not in this snapshot.
+     */
+    private Edges edges(T node) {
+        for (GraphSnapshot<T> layer = this; layer != null; layer = layer.base) {
+            Edges edges = layer.changed.get(node);
+            if (edges != null) {
+                return edges == REMOVED ? null : edges;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of layers this snapshot is made of.
+     */
+    int depth() {
+        int depth = 0;
+        for (GraphSnapshot<T> layer = this; layer != null; layer = layer.base) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Returns a sorted list of all nodes in the snapshot.
+     */
+    public List<T> getListNodes() {
+        // the first layer which holds a node tells whether it was removed
+        Set<T> seen = new HashSet<>(Math.max(16, (int) (size / 0.75f) + 1));
+        List<T> sortedNodes = new ArrayList<>(size);
+        for (GraphSnapshot<T> layer = this; layer != null; layer = layer.base) {
+            for (Map.Entry<T, Edges> entry : layer.changed.entrySet()) {
+                if (seen.add(entry.getKey()) && entry.getValue() != REMOVED) {
+                    sortedNodes.add(entry.getKey());
+                }
+            }
+        }
+        Collections.sort(sortedNodes);
+        return sortedNodes;
+    }
+
+    /**
+     * Returns a sorted, unmodifiable list of the children for the given node.
+     * @requires node exists in the snapshot and node != null
+     */
+    public List<T> getListChildren(T node) {
+        return view(edges(node).children);
+    }
+
+    /**
+     * Returns a sorted, unmodifiable list of the parents for the given node.
+     * @requires node exists in the snapshot and node != null
+     */
+    public List<T> getListParents(T node) {
+        return view(edges(node).parents);
+    }
+
+    /**
+     * Returns an unmodifiable list over an array which is never modified.
+     */
+    @SuppressWarnings("unchecked")
+    private List<T> view(Object[] sorted) {
+        return (List<T>) (List<?>) Collections.unmodifiableList(Arrays.asList(sorted));
+    }
+
+    /**
+     * Returns whether this snapshot contains the given node.
+     * @param node the node to check
+     * @return true if this snapshot contains node, false otherwise
+     */
+    public boolean containsNode(T node) {
+        return node != null && edges(node) != null;
+    }
+
+    /**
+     * Returns whether this snapshot contains an edge from parent to child.
+     * @param parent the parent node
+     * @param child the child node
+     * @return true if there is an edge from parent to child, false otherwise
+     */
+    public boolean containsEdge(T parent, T child) {
+        if (parent == null || child == null) {
+            return false;
+        }
+        Edges edges = edges(parent);
+        return edges != null && Arrays.binarySearch(edges.children, child) >= 0;
+    }
+
+    /**
+     * Returns the number of nodes in this snapshot.
+     * @return the number of nodes in this snapshot
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether this snapshot is empty.
+     * @return true if this snapshot contains no nodes, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the version of the graph this snapshot was taken at. A
+     * snapshot never changes, so its version does not either.
+     * @return the version of the graph when the snapshot was taken
+     */
+    public long getVersion() {
+        return version;
+    }
+}
@@ -22,7 +22,7 @@ public class GraphTests extends ScriptFileTests {
 
 	@Before
 	public void setUp() {
-		graph = new Graph<>();
+		graph = new Graph<>(Graph.RepCheck.FULL);
 		pathFinder = new PathFinder<>(graph);
 	}
 	@Test(expected = IllegalArgumentException.class)
@@ -0,0 +1,1640 @@
+package homework2;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+/**
+ * This class contains unit tests of the graph and path finding classes which
+ * do not depend on the script files, so unlike GraphTests each of them runs
+ * once instead of once per script file.
+ */
+public class GraphUnitTests {
+
+	private Graph<WeightedNode> graph;
+	private PathFinder<WeightedNode> pathFinder;
+
+	@Before
+	public void setUp() {
+		graph = new Graph<>(Graph.RepCheck.FULL);
+		pathFinder = new PathFinder<>(graph);
+	}
+
+	// ==== CompactGraph Tests ====
+	@Test
+	public void testFreezeKeepsNodesAndEdges() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 2);
+		WeightedNode c = new WeightedNode("C", 3);
+		graph.addNode(c);
+		graph.addNode(a);
+		graph.addNode(b);
+		graph.addEdge(a, c);
+		graph.addEdge(a, b);
+		graph.addEdge(c, c);
+		CompactGraph<WeightedNode> compact = graph.freeze();
+		assertEquals(3, compact.size());
+		assertEquals(3, compact.edgeCount());
+		assertEquals(graph.getListNodes(), compact.getListNodes());
+		for (WeightedNode node : graph.getListNodes()) {
+			assertEquals(graph.getListChildren(node), compact.getListChildren(node));
+			assertEquals(graph.getListParents(node), compact.getListParents(node));
+		}
+		assertEquals(Arrays.asList(a, c), graph.getListParents(c));
+		assertTrue(compact.containsEdge(c, c));
+		assertFalse(compact.containsEdge(b, a));
+		assertFalse(compact.containsNode(new WeightedNode("D", 1)));
+	}
+
+	@Test
+	public void testFindPathOnFrozenGraph() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 5);
+		WeightedNode c = new WeightedNode("C", 1);
+		WeightedNode d = new WeightedNode("D", 1);
+		graph.addNode(a);
+		graph.addNode(b);
+		graph.addNode(c);
+		graph.addNode(d);
+		graph.addEdge(a, b);
+		graph.addEdge(a, c);
+		graph.addEdge(b, d);
+		graph.addEdge(c, d);
+		graph.addEdge(d, a);
+		PathFinder<WeightedNode> compactFinder = new PathFinder<>(graph.freeze());
+		Set<WeightedNodePath> startPaths = new HashSet<>();
+		startPaths.add(new WeightedNodePath(a));
+		Set<WeightedNode> goalNodes = new HashSet<>();
+		goalNodes.add(a);
+		assertEquals(pathFinder.findShortestPath(startPaths, goalNodes),
+				compactFinder.findShortestPath(startPaths, goalNodes));
+		goalNodes.clear();
+		goalNodes.add(d);
+		WeightedNodePath result = compactFinder.findShortestPath(startPaths, goalNodes);
+		assertEquals(pathFinder.findShortestPath(startPaths, goalNodes), result);
+		assertEquals(3.0, result.getCost(), 0.001);
+	}
+
+	@Test
+	public void testRepCheckModes() {
+		for (Graph.RepCheck mode : Graph.RepCheck.values()) {
+			Graph<WeightedNode> checked = new Graph<>(mode);
+			assertEquals(mode, checked.getRepCheck());
+			WeightedNode a = new WeightedNode("A", 1);
+			WeightedNode b = new WeightedNode("B", 1);
+			checked.addNode(a);
+			checked.addNode(b);
+			assertTrue(checked.addEdge(a, b));
+			assertFalse(checked.addEdge(a, b));
+			assertTrue(checked.containsEdge(a, b));
+			assertEquals(2, checked.size());
+		}
+		assertEquals(Graph.RepCheck.INCREMENTAL, new Graph<WeightedNode>().getRepCheck());
+	}
+
+	@Test
+	public void testListChildrenSortedView() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 1);
+		WeightedNode c = new WeightedNode("C", 1);
+		graph.addNode(a);
+		graph.addNode(b);
+		graph.addNode(c);
+		graph.addEdge(a, c);
+		graph.addEdge(a, a);
+		graph.addEdge(a, b);
+		List<WeightedNode> children = graph.getListChildren(a);
+		assertEquals(Arrays.asList(a, b, c), children);
+		assertSame(children, graph.getListChildren(a));
+		try {
+			children.add(a);
+			fail("children view should be unmodifiable");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Builds a random graph of n nodes with the given number of edges.
+	 */
+	private static Graph<WeightedNode> randomGraph(Random random, int n, int edges) {
+		Graph<WeightedNode> g = new Graph<>();
+		WeightedNode[] nodes = new WeightedNode[n];
+		for (int i = 0; i < n; i++) {
+			nodes[i] = new WeightedNode("n" + i, random.nextInt(10));
+			g.addNode(nodes[i]);
+		}
+		for (int i = 0; i < edges; i++) {
+			g.addEdge(nodes[random.nextInt(n)], nodes[random.nextInt(n)]);
+		}
+		return g;
+	}
+
+	// ==== CompactPathFinder Tests ====
+	@Test
+	public void testCompactPathFinderMatchesPathFinder() {
+		Random random = new Random(42);
+		for (int round = 0; round < 20; round++) {
+			Graph<WeightedNode> g = randomGraph(random, 30, 60);
+			List<WeightedNode> nodes = g.getListNodes();
+			PathFinder<WeightedNode> finder = new PathFinder<>(g);
+			CompactPathFinder<WeightedNode> compactFinder =
+					new CompactPathFinder<>(g.freeze(), WeightedNode::getCost);
+			CompactPathFinder<WeightedNode> countingFinder =
+					new CompactPathFinder<>(g.freeze(), n -> 1);
+			for (int query = 0; query < 20; query++) {
+				Set<WeightedNodePath> starts = new HashSet<>();
+				Set<NodeCountingPath> countingStarts = new HashSet<>();
+				Set<WeightedNode> goals = new HashSet<>();
+				for (int i = random.nextInt(3); i >= 0; i--) {
+					WeightedNode start = nodes.get(random.nextInt(nodes.size()));
+					starts.add(new WeightedNodePath(start));
+					countingStarts.add(new NodeCountingPath(start));
+				}
+				for (int i = random.nextInt(3); i >= 0; i--) {
+					goals.add(nodes.get(random.nextInt(nodes.size())));
+				}
+				assertSamePath(finder.findShortestPath(starts, goals),
+						compactFinder.findShortestPath(starts, goals), goals);
+				assertSamePath(finder.findShortestPath(countingStarts, goals),
+						countingFinder.findShortestPath(countingStarts, goals), goals);
+				WeightedNodePath start = starts.iterator().next();
+				WeightedNode goal = goals.iterator().next();
+				assertSamePath(finder.findShortestPath(start, goal),
+						compactFinder.findShortestPath(start, goal), goals);
+			}
+		}
+	}
+
+	/**
+	 * Asserts both paths are missing, or are paths to a goal of the same cost.
+	 */
+	private static <P extends Path<WeightedNode, P>> void assertSamePath(
+			P expected, P actual, Set<WeightedNode> goals) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertNotNull(actual);
+		assertEquals(expected.getCost(), actual.getCost(), 0.001);
+		assertTrue(goals.contains(actual.getEnd()));
+		double cost = 0;
+		WeightedNode previous = null;
+		for (WeightedNode node : actual) {
+			cost += actual instanceof NodeCountingPath ? 1 : node.getCost();
+			previous = node;
+		}
+		assertEquals(actual.getCost(), cost, 0.001);
+		assertEquals(actual.getEnd(), previous);
+	}
+
+	@Test
+	public void testCompactPathFinderLoopBackToStart() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 2);
+		graph.addNode(a);
+		graph.addNode(b);
+		graph.addEdge(a, b);
+		CompactPathFinder<WeightedNode> compactFinder =
+				new CompactPathFinder<>(graph.freeze(), WeightedNode::getCost);
+		WeightedNodePath start = new WeightedNodePath(a);
+		assertNull(compactFinder.findShortestPath(start, a));
+		graph.addEdge(b, a);
+		compactFinder = new CompactPathFinder<>(graph.freeze(), WeightedNode::getCost);
+		WeightedNodePath loop = compactFinder.findShortestPath(start, a);
+		assertEquals(start.extend(b).extend(a), loop);
+		graph.addEdge(a, a);
+		compactFinder = new CompactPathFinder<>(graph.freeze(), WeightedNode::getCost);
+		assertEquals(start, compactFinder.findShortestPath(start, a));
+	}
+
+	@Test
+	public void testCompactPathFinderConcurrentSearches() {
+		Graph<WeightedNode> g = randomGraph(new Random(13), 200, 600);
+		final List<WeightedNode> nodes = g.getListNodes();
+		final PathFinder<WeightedNode> finder = new PathFinder<>(g);
+		final CompactPathFinder<WeightedNode> compactFinder =
+				new CompactPathFinder<>(g.freeze(), WeightedNode::getCost);
+		final List<WeightedNodePath> expected = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			expected.add(finder.findShortestPath(new WeightedNodePath(nodes.get(i % nodes.size())),
+					nodes.get((i * 37) % nodes.size())));
+		}
+		// the searches running at the same time each need a workspace of their own
+		java.util.stream.IntStream.range(0, 400).parallel().forEach(i -> {
+			WeightedNodePath start = new WeightedNodePath(nodes.get(i % nodes.size()));
+			WeightedNode goal = nodes.get((i * 37) % nodes.size());
+			assertSamePath(expected.get(i), compactFinder.findShortestPath(start, goal),
+					Collections.singleton(goal));
+		});
+	}
+
+	// ==== Bidirectional search Tests ====
+	@Test
+	public void testBidirectionalMatchesPathFinder() {
+		Random random = new Random(7);
+		for (int round = 0; round < 20; round++) {
+			Graph<WeightedNode> g = randomGraph(random, 30, 60);
+			List<WeightedNode> nodes = g.getListNodes();
+			PathFinder<WeightedNode> finder = new PathFinder<>(g);
+			for (int query = 0; query < 30; query++) {
+				WeightedNode start = nodes.get(random.nextInt(nodes.size()));
+				WeightedNode goal = query % 5 == 0 ? start : nodes.get(random.nextInt(nodes.size()));
+				Set<WeightedNode> goals = new HashSet<>();
+				goals.add(goal);
+				assertSamePath(finder.findShortestPath(new WeightedNodePath(start), goal),
+						finder.findShortestPathBidirectional(new WeightedNodePath(start), goal,
+								WeightedNode::getCost), goals);
+				assertSamePath(finder.findShortestPath(new NodeCountingPath(start), goal),
+						finder.findShortestPathBidirectional(new NodeCountingPath(start), goal,
+								n -> 1), goals);
+			}
+		}
+	}
+
+	@Test
+	public void testBidirectionalSettlesFewerNodes() {
+		// a long chain with a bushy tree hanging off every node
+		WeightedNode[] chain = new WeightedNode[100];
+		for (int i = 0; i < chain.length; i++) {
+			chain[i] = new WeightedNode("c" + i, 1);
+			graph.addNode(chain[i]);
+			for (int j = 0; j < 5; j++) {
+				WeightedNode leaf = new WeightedNode("l" + i + "_" + j, 1);
+				graph.addNode(leaf);
+				graph.addEdge(chain[i], leaf);
+				graph.addEdge(leaf, chain[i]);
+			}
+			if (i > 0) {
+				graph.addEdge(chain[i - 1], chain[i]);
+			}
+		}
+		WeightedNodePath start = new WeightedNodePath(chain[0]);
+		WeightedNode goal = chain[50];
+		WeightedNodePath oneWay = pathFinder.findShortestPath(start, goal);
+		int oneWaySettled = pathFinder.getNodesSettled();
+		WeightedNodePath twoWay = pathFinder.findShortestPathBidirectional(start, goal,
+				WeightedNode::getCost);
+		assertEquals(oneWay, twoWay);
+		assertTrue(pathFinder.getNodesSettled() < oneWaySettled);
+	}
+
+	// ==== A* Tests ====
+	@Test
+	public void testAStarWithZeroHeuristicMatchesPathFinder() {
+		Random random = new Random(11);
+		for (int round = 0; round < 20; round++) {
+			Graph<WeightedNode> g = randomGraph(random, 30, 60);
+			List<WeightedNode> nodes = g.getListNodes();
+			PathFinder<WeightedNode> finder = new PathFinder<>(g);
+			for (int query = 0; query < 30; query++) {
+				Set<WeightedNodePath> starts = new HashSet<>();
+				Set<WeightedNode> goals = new HashSet<>();
+				for (int i = random.nextInt(3); i >= 0; i--) {
+					starts.add(new WeightedNodePath(nodes.get(random.nextInt(nodes.size()))));
+					goals.add(nodes.get(random.nextInt(nodes.size())));
+				}
+				assertSamePath(finder.findShortestPath(starts, goals),
+						finder.findShortestPathAStar(starts, goals, Heuristic.zero()), goals);
+			}
+		}
+	}
+
+	@Test
+	public void testAStarOnGridSettlesFewerNodes() {
+		final int side = 20;
+		WeightedNode[][] grid = new WeightedNode[side][side];
+		Random random = new Random(3);
+		for (int row = 0; row < side; row++) {
+			for (int col = 0; col < side; col++) {
+				grid[row][col] = new WeightedNode(row + "_" + col, 1 + random.nextInt(3));
+				graph.addNode(grid[row][col]);
+			}
+		}
+		for (int row = 0; row < side; row++) {
+			for (int col = 0; col < side; col++) {
+				if (row + 1 < side) {
+					graph.addEdge(grid[row][col], grid[row + 1][col]);
+					graph.addEdge(grid[row + 1][col], grid[row][col]);
+				}
+				if (col + 1 < side) {
+					graph.addEdge(grid[row][col], grid[row][col + 1]);
+					graph.addEdge(grid[row][col + 1], grid[row][col]);
+				}
+			}
+		}
+		// every step costs at least 1, so the grid distance is a lower bound
+		Heuristic<WeightedNode> manhattan = node -> {
+			String[] rowCol = node.getName().split("_");
+			return Math.abs(Integer.parseInt(rowCol[0]) - (side - 1)) +
+					Math.abs(Integer.parseInt(rowCol[1]) - (side - 1));
+		};
+		WeightedNodePath start = new WeightedNodePath(grid[0][0]);
+		WeightedNode goal = grid[side - 1][side - 1];
+		WeightedNodePath dijkstra = pathFinder.findShortestPath(start, goal);
+		int dijkstraSettled = pathFinder.getNodesSettled();
+		WeightedNodePath aStar = pathFinder.findShortestPathAStar(start, goal, manhattan);
+		assertEquals(dijkstra.getCost(), aStar.getCost(), 0.001);
+		assertTrue(pathFinder.getNodesSettled() < dijkstraSettled);
+	}
+
+	// ==== ALT Tests ====
+	@Test
+	public void testALTMatchesPathFinder() {
+		Random random = new Random(5);
+		for (int round = 0; round < 10; round++) {
+			Graph<WeightedNode> g = randomGraph(random, 40, 100);
+			List<WeightedNode> nodes = g.getListNodes();
+			PathFinder<WeightedNode> finder = new PathFinder<>(g);
+			Landmarks<WeightedNode> landmarks = new Landmarks<>(g, 4, WeightedNode::getCost);
+			assertEquals(4, landmarks.getLandmarks().size());
+			for (int query = 0; query < 30; query++) {
+				Set<WeightedNodePath> starts = new HashSet<>();
+				Set<WeightedNode> goals = new HashSet<>();
+				for (int i = random.nextInt(2); i >= 0; i--) {
+					starts.add(new WeightedNodePath(nodes.get(random.nextInt(nodes.size()))));
+					goals.add(nodes.get(random.nextInt(nodes.size())));
+				}
+				assertSamePath(finder.findShortestPath(starts, goals),
+						finder.findShortestPathALT(starts, goals, landmarks), goals);
+			}
+		}
+	}
+
+	@Test
+	public void testLandmarksInvalidatedByMutation() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 1);
+		graph.addNode(a);
+		graph.addNode(b);
+		Landmarks<WeightedNode> landmarks = new Landmarks<>(graph, 2, WeightedNode::getCost);
+		assertTrue(landmarks.isValid());
+		graph.addEdge(a, b);
+		assertFalse(landmarks.isValid());
+		Set<WeightedNodePath> starts = new HashSet<>();
+		starts.add(new WeightedNodePath(a));
+		Set<WeightedNode> goals = new HashSet<>();
+		goals.add(b);
+		// stale tables are not used, so the new edge is still found
+		assertEquals(2.0, pathFinder.findShortestPathALT(starts, goals, landmarks).getCost(), 0.001);
+		try {
+			landmarks.heuristicTo(goals);
+			fail("stale landmarks should not give a heuristic");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		landmarks.rebuild();
+		assertTrue(landmarks.isValid());
+		assertEquals(1.0, landmarks.heuristicTo(goals).estimate(a), 0.001);
+	}
+
+	// ==== ContractionHierarchy Tests ====
+	@Test
+	public void testContractionHierarchyMatchesPathFinder() {
+		Random random = new Random(13);
+		for (int round = 0; round < 20; round++) {
+			Graph<WeightedNode> g = randomGraph(random, 40, 90);
+			List<WeightedNode> nodes = g.getListNodes();
+			PathFinder<WeightedNode> finder = new PathFinder<>(g);
+			ContractionHierarchy<WeightedNode> hierarchy =
+					new ContractionHierarchy<>(g, WeightedNode::getCost);
+			ContractionHierarchy<WeightedNode> countingHierarchy =
+					new ContractionHierarchy<>(g, n -> 1);
+			for (int query = 0; query < 40; query++) {
+				WeightedNode start = nodes.get(random.nextInt(nodes.size()));
+				WeightedNode goal = query % 5 == 0 ? start : nodes.get(random.nextInt(nodes.size()));
+				Set<WeightedNode> goals = new HashSet<>();
+				goals.add(goal);
+				assertSamePath(finder.findShortestPath(new WeightedNodePath(start), goal),
+						hierarchy.findShortestPath(new WeightedNodePath(start), goal), goals);
+				assertSamePath(finder.findShortestPath(new NodeCountingPath(start), goal),
+						countingHierarchy.findShortestPath(new NodeCountingPath(start), goal), goals);
+			}
+		}
+	}
+
+	// ==== PathFinder Cache Tests ====
+	@Test
+	public void testCachedPathFinderReturnsCachedPath() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 2);
+		graph.addNode(a);
+		graph.addNode(b);
+		graph.addEdge(a, b);
+		PathFinder<WeightedNode> cached = new PathFinder<>(graph, 4);
+		Set<WeightedNodePath> starts = new HashSet<>();
+		starts.add(new WeightedNodePath(a));
+		Set<WeightedNode> goals = new HashSet<>();
+		goals.add(b);
+		WeightedNodePath first = cached.findShortestPath(starts, goals);
+		assertEquals(3.0, first.getCost(), 0.001);
+		assertSame(first, cached.findShortestPath(new HashSet<>(starts), new HashSet<>(goals)));
+		assertEquals(1, cached.getCacheHits());
+		assertEquals(1, cached.getCacheMisses());
+		// a different path type is a different query
+		assertEquals(2.0, cached.findShortestPath(new NodeCountingPath(a), b).getCost(), 0.001);
+		assertNull(cached.findShortestPath(new WeightedNodePath(b), a));
+		assertNull(cached.findShortestPath(new WeightedNodePath(b), a));
+		assertEquals(2, cached.getCacheHits());
+		assertEquals(3, cached.getCacheMisses());
+	}
+
+	@Test
+	public void testCachedPathFinderInvalidatedByMutation() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 2);
+		graph.addNode(a);
+		graph.addNode(b);
+		PathFinder<WeightedNode> cached = new PathFinder<>(graph, 4);
+		assertNull(cached.findShortestPath(new WeightedNodePath(a), b));
+		graph.addEdge(a, b);
+		assertEquals(3.0, cached.findShortestPath(new WeightedNodePath(a), b).getCost(), 0.001);
+		assertEquals(0, cached.getCacheHits());
+		assertEquals(2, cached.getCacheMisses());
+	}
+
+	@Test
+	public void testCachedPathFinderEvictsLeastRecentlyUsed() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 2);
+		WeightedNode c = new WeightedNode("C", 3);
+		graph.addNode(a);
+		graph.addNode(b);
+		graph.addNode(c);
+		graph.addEdge(a, b);
+		graph.addEdge(a, c);
+		PathFinder<WeightedNode> cached = new PathFinder<>(graph, 2);
+		cached.findShortestPath(new WeightedNodePath(a), b);
+		cached.findShortestPath(new WeightedNodePath(a), c);
+		cached.findShortestPath(new WeightedNodePath(a), b);
+		// evicts A->C, the least recently used
+		cached.findShortestPath(new WeightedNodePath(b), c);
+		assertEquals(1, cached.getCacheEvictions());
+		cached.findShortestPath(new WeightedNodePath(a), b);
+		assertEquals(2, cached.getCacheHits());
+		cached.findShortestPath(new WeightedNodePath(a), c);
+		assertEquals(2, cached.getCacheHits());
+		assertEquals(2, cached.getCacheEvictions());
+	}
+
+	// ==== ShortestPathTree Tests ====
+	@Test
+	public void testShortestPathTreeMatchesPathFinder() {
+		Random random = new Random(17);
+		for (int round = 0; round < 20; round++) {
+			Graph<WeightedNode> g = randomGraph(random, 40, 90);
+			List<WeightedNode> nodes = g.getListNodes();
+			PathFinder<WeightedNode> finder = new PathFinder<>(g);
+			WeightedNode start = nodes.get(random.nextInt(nodes.size()));
+			ShortestPathTree<WeightedNode, WeightedNodePath> tree =
+					finder.shortestPathTree(new WeightedNodePath(start), WeightedNode::getCost);
+			assertEquals(start.getCost(), tree.getCost(start), 0.001);
+			for (WeightedNode goal : nodes) {
+				if (goal.equals(start)) {
+					continue;
+				}
+				WeightedNodePath expected = finder.findShortestPath(new WeightedNodePath(start), goal);
+				assertEquals(expected != null, tree.isReached(goal));
+				if (expected != null) {
+					assertEquals(expected.getCost(), tree.getCost(goal), 0.001);
+					Set<WeightedNode> goals = new HashSet<>();
+					goals.add(goal);
+					assertSamePath(expected, tree.getPath(goal), goals);
+				} else {
+					assertEquals(Double.POSITIVE_INFINITY, tree.getCost(goal), 0);
+					assertNull(tree.getPath(goal));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testShortestPathTreeMultipleStarts() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 5);
+		WeightedNode c = new WeightedNode("C", 2);
+		WeightedNode d = new WeightedNode("D", 3);
+		graph.addNode(a);
+		graph.addNode(b);
+		graph.addNode(c);
+		graph.addNode(d);
+		graph.addEdge(a, c);
+		graph.addEdge(b, c);
+		graph.addEdge(c, d);
+		Set<WeightedNodePath> starts = new HashSet<>();
+		starts.add(new WeightedNodePath(a));
+		starts.add(new WeightedNodePath(b));
+		ShortestPathTree<WeightedNode, WeightedNodePath> tree =
+				pathFinder.shortestPathTree(starts, WeightedNode::getCost);
+		assertEquals(4, tree.size());
+		assertEquals(Arrays.asList(a, c, b, d), tree.getReachedNodes());
+		assertEquals(6.0, tree.getCost(d), 0.001);
+		Iterator<WeightedNode> path = tree.getPath(d).iterator();
+		assertEquals(a, path.next());
+		assertEquals(c, path.next());
+		assertEquals(d, path.next());
+		assertFalse(path.hasNext());
+		assertEquals(5.0, tree.getPath(b).getCost(), 0.001);
+	}
+
+	// ==== Distance Matrix Tests ====
+	@Test
+	public void testDistanceMatrixMatchesShortestPathTree() {
+		Random random = new Random(19);
+		Graph<WeightedNode> g = randomGraph(random, 200, 600);
+		List<WeightedNode> nodes = g.getListNodes();
+		PathFinder<WeightedNode> finder = new PathFinder<>(g);
+		List<WeightedNodePath> sources = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			sources.add(new WeightedNodePath(nodes.get(random.nextInt(nodes.size()))));
+		}
+		List<WeightedNode> goals = new ArrayList<>();
+		for (int j = 0; j < 80; j++) {
+			goals.add(nodes.get(random.nextInt(nodes.size())));
+		}
+		DistanceMatrix<WeightedNode> matrix = finder.distanceMatrix(sources, goals, WeightedNode::getCost, true);
+		assertEquals(sources.size(), matrix.rows());
+		assertEquals(goals.size(), matrix.columns());
+		assertTrue(matrix.hasPredecessors());
+		for (int i = 0; i < sources.size(); i++) {
+			ShortestPathTree<WeightedNode, WeightedNodePath> tree =
+					finder.shortestPathTree(sources.get(i), WeightedNode::getCost);
+			for (int j = 0; j < goals.size(); j++) {
+				assertEquals(tree.getCost(goals.get(j)), matrix.getCost(i, j), 0.001);
+				if (tree.isReached(goals.get(j)) && !goals.get(j).equals(sources.get(i).getEnd())) {
+					WeightedNode pred = matrix.getPredecessor(i, j);
+					assertTrue(g.containsEdge(pred, goals.get(j)));
+					assertEquals(tree.getCost(pred) + goals.get(j).getCost(), matrix.getCost(i, j), 0.001);
+				} else {
+					assertNull(matrix.getPredecessor(i, j));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDistanceMatrixUnknownNodes() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 2);
+		WeightedNode outside = new WeightedNode("X", 1);
+		graph.addNode(a);
+		graph.addNode(b);
+		graph.addEdge(a, b);
+		DistanceMatrix<WeightedNode> matrix = pathFinder.distanceMatrix(
+				Arrays.asList(new WeightedNodePath(a), new WeightedNodePath(outside)),
+				Arrays.asList(b, outside, a), WeightedNode::getCost);
+		assertEquals(3.0, matrix.getCost(0, 0), 0.001);
+		assertEquals(Double.POSITIVE_INFINITY, matrix.getCost(0, 1), 0);
+		assertEquals(1.0, matrix.getCost(0, 2), 0.001);
+		assertEquals(Double.POSITIVE_INFINITY, matrix.getCost(1, 0), 0);
+		assertEquals(Double.POSITIVE_INFINITY, matrix.getCost(1, 1), 0);
+		assertFalse(matrix.hasPredecessors());
+	}
+
+	@Test
+	public void testDistanceMatrixSeesChangesToTheGraph() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 2);
+		WeightedNode c = new WeightedNode("C", 4);
+		graph.addNode(a);
+		graph.addNode(b);
+		graph.addNode(c);
+		graph.addEdge(a, b);
+		List<WeightedNodePath> sources = Collections.singletonList(new WeightedNodePath(a));
+		List<WeightedNode> goals = Arrays.asList(b, c);
+		ToDoubleFunction<WeightedNode> cost = WeightedNode::getCost;
+		DistanceMatrix<WeightedNode> before = pathFinder.distanceMatrix(sources, goals, cost, true);
+		assertEquals(Double.POSITIVE_INFINITY, before.getCost(0, 1), 0);
+		assertEquals(before.getCost(0, 0), pathFinder.distanceMatrix(sources, goals, cost).getCost(0, 0), 0);
+		graph.addEdge(b, c);
+		DistanceMatrix<WeightedNode> after = pathFinder.distanceMatrix(sources, goals, cost, true);
+		assertEquals(7.0, after.getCost(0, 1), 0.001);
+		assertEquals(b, after.getPredecessor(0, 1));
+		// the start path keeps its own cost of 1
+		assertEquals(5.0, pathFinder.distanceMatrix(sources, goals, n -> 2).getCost(0, 1), 0.001);
+		// a matrix is not affected by later changes to the graph
+		assertEquals(Double.POSITIVE_INFINITY, before.getCost(0, 1), 0);
+		try {
+			pathFinder.distanceMatrix(sources, goals, cost).getPredecessor(0, 0);
+			fail("predecessors which were not asked for should not be given");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	// ==== ConcurrentGraph Tests ====
+	@Test
+	public void testConcurrentGraphParallelWriters() throws InterruptedException {
+		final ConcurrentGraph<WeightedNode> g = new ConcurrentGraph<>();
+		final int n = 200;
+		final List<WeightedNode> nodes = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			WeightedNode node = new WeightedNode("N" + i, 1);
+			nodes.add(node);
+			g.addNode(node);
+		}
+		Thread[] writers = new Thread[4];
+		for (int w = 0; w < writers.length; w++) {
+			final int offset = w;
+			writers[w] = new Thread(() -> {
+				// every writer adds all edges, in a different order
+				for (int i = 0; i < n; i++) {
+					int from = (i * 7 + offset * 13) % n;
+					g.addEdge(nodes.get(from), nodes.get((from + 1) % n));
+					g.addEdge(nodes.get(from), nodes.get((from * 3) % n));
+				}
+			});
+			writers[w].start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		Graph<WeightedNode> expected = new Graph<>();
+		for (WeightedNode node : nodes) {
+			expected.addNode(node);
+		}
+		for (int from = 0; from < n; from++) {
+			expected.addEdge(nodes.get(from), nodes.get((from + 1) % n));
+			expected.addEdge(nodes.get(from), nodes.get((from * 3) % n));
+		}
+		for (WeightedNode node : nodes) {
+			assertEquals(expected.getListChildren(node), g.getListChildren(node));
+			assertEquals(expected.getListParents(node), g.getListParents(node));
+		}
+	}
+
+	@Test
+	public void testConcurrentGraphSearchDuringWrites() throws InterruptedException {
+		final ConcurrentGraph<WeightedNode> g = new ConcurrentGraph<>();
+		final int n = 300;
+		final List<WeightedNode> nodes = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			WeightedNode node = new WeightedNode("N" + i, i % 5 + 1);
+			nodes.add(node);
+			g.addNode(node);
+		}
+		Thread writer = new Thread(() -> {
+			Random random = new Random(23);
+			for (int e = 0; e < 3 * n; e++) {
+				g.addEdge(nodes.get(random.nextInt(n)), nodes.get(random.nextInt(n)));
+			}
+		});
+		writer.start();
+		PathFinder<WeightedNode> finder = new PathFinder<>(g);
+		Random random = new Random(29);
+		while (writer.isAlive()) {
+			WeightedNode start = nodes.get(random.nextInt(n));
+			WeightedNodePath path = finder.findShortestPath(new WeightedNodePath(start),
+					nodes.get(random.nextInt(n)));
+			if (path != null) {
+				// edges are never removed, so every path found is in the graph
+				WeightedNode previous = null;
+				for (WeightedNode node : path) {
+					assertTrue(previous == null || g.containsEdge(previous, node));
+					previous = node;
+				}
+			}
+		}
+		writer.join();
+		assertEquals(n, g.size());
+	}
+
+	@Test
+	public void testShortestPathTreeWhileNodesAreAdded() {
+		// a writer adds a new child to every node the search expands, so the
+		// graph keeps growing past the size it had when the search started
+		final int added = 1000;
+		final ConcurrentGraph<WeightedNode> g = new ConcurrentGraph<WeightedNode>() {
+			private int count;
+
+			@Override
+			public List<WeightedNode> getListChildren(WeightedNode node) {
+				if (count < added) {
+					WeightedNode child = new WeightedNode("added" + count++, 1);
+					addNode(child);
+					addEdge(node, child);
+				}
+				return super.getListChildren(node);
+			}
+		};
+		WeightedNode start = new WeightedNode("start", 1);
+		g.addNode(start);
+		g.addNode(new WeightedNode("other", 1));
+		ShortestPathTree<WeightedNode, WeightedNodePath> tree = new PathFinder<>(g)
+				.shortestPathTree(Collections.singleton(new WeightedNodePath(start)), WeightedNode::getCost);
+		assertEquals(added + 1, tree.size());
+		assertEquals(added + 2, g.size());
+		// every new node was added as the child of the last one expanded
+		assertEquals(added + 1, tree.getCost(new WeightedNode("added" + (added - 1), 1)), 0);
+	}
+
+	@Test
+	public void testShortestPathTreeWithConcurrentWriter() throws InterruptedException {
+		final ConcurrentGraph<WeightedNode> g = new ConcurrentGraph<>();
+		final WeightedNode start = new WeightedNode("start", 1);
+		g.addNode(start);
+		Thread writer = new Thread(() -> {
+			WeightedNode previous = start;
+			for (int i = 0; i < 20000; i++) {
+				WeightedNode node = new WeightedNode("w" + i, 1);
+				g.addNode(node);
+				g.addEdge(previous, node);
+				previous = node;
+			}
+		});
+		writer.start();
+		PathFinder<WeightedNode> finder = new PathFinder<>(g);
+		Set<WeightedNodePath> starts = Collections.singleton(new WeightedNodePath(start));
+		while (writer.isAlive()) {
+			ShortestPathTree<WeightedNode, WeightedNodePath> tree = finder.shortestPathTree(starts, WeightedNode::getCost);
+			// the nodes form a chain, and a search sees a prefix of it
+			assertEquals(tree.size(), tree.getCost(tree.getReachedNodes().get(tree.size() - 1)), 0);
+		}
+		writer.join();
+		assertEquals(20001, finder.shortestPathTree(starts, WeightedNode::getCost).size());
+	}
+
+	// ==== GraphSnapshot Tests ====
+	@Test
+	public void testSnapshotUnaffectedByLaterChanges() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 2);
+		WeightedNode c = new WeightedNode("C", 3);
+		graph.addNode(a);
+		graph.addNode(b);
+		graph.addEdge(a, b);
+		GraphSnapshot<WeightedNode> before = graph.snapshot();
+		assertSame(before, graph.snapshot());
+		graph.addNode(c);
+		graph.addEdge(b, c);
+		graph.addEdge(a, c);
+		GraphSnapshot<WeightedNode> after = graph.snapshot();
+
+		assertEquals(2, before.size());
+		assertFalse(before.containsNode(c));
+		assertFalse(before.containsEdge(a, c));
+		assertEquals(Arrays.asList(b), before.getListChildren(a));
+		assertEquals(Arrays.asList(a), before.getListParents(b));
+		assertEquals(3, after.size());
+		assertEquals(Arrays.asList(b, c), after.getListChildren(a));
+		assertEquals(Arrays.asList(a, b), after.getListParents(c));
+		assertEquals(Arrays.asList(a, b, c), after.getListNodes());
+		assertNull(new PathFinder<>(before).findShortestPath(new WeightedNodePath(b), c));
+		assertEquals(5.0, new PathFinder<>(after).findShortestPath(new WeightedNodePath(b), c).getCost(), 0.001);
+	}
+
+	@Test
+	public void testSnapshotsMatchGraphAsItGrows() {
+		Random random = new Random(31);
+		Graph<WeightedNode> g = new Graph<>();
+		List<WeightedNode> nodes = new ArrayList<>();
+		List<GraphSnapshot<WeightedNode>> snapshots = new ArrayList<>();
+		List<CompactGraph<WeightedNode>> copies = new ArrayList<>();
+		for (int round = 0; round < 60; round++) {
+			for (int i = 0; i < 3; i++) {
+				WeightedNode node = new WeightedNode("N" + nodes.size(), 1);
+				nodes.add(node);
+				g.addNode(node);
+			}
+			for (int e = 0; e < 5; e++) {
+				g.addEdge(nodes.get(random.nextInt(nodes.size())), nodes.get(random.nextInt(nodes.size())));
+			}
+			snapshots.add(g.snapshot());
+			copies.add(g.freeze());
+		}
+		for (int i = 0; i < snapshots.size(); i++) {
+			GraphSnapshot<WeightedNode> snapshot = snapshots.get(i);
+			CompactGraph<WeightedNode> copy = copies.get(i);
+			assertTrue(snapshot.depth() <= 8);
+			assertEquals(copy.getListNodes(), snapshot.getListNodes());
+			for (WeightedNode node : copy.getListNodes()) {
+				assertEquals(copy.getListChildren(node), snapshot.getListChildren(node));
+				assertEquals(copy.getListParents(node), snapshot.getListParents(node));
+			}
+		}
+	}
+
+	// ==== Bulk Loading Tests ====
+	@Test
+	public void testGraphBuilderMatchesAddEdge() {
+		Random random = new Random(37);
+		List<WeightedNode> nodes = new ArrayList<>();
+		GraphBuilder<WeightedNode> builder = new GraphBuilder<>(50, 10);
+		Graph<WeightedNode> expected = new Graph<>();
+		for (int i = 0; i < 50; i++) {
+			WeightedNode node = new WeightedNode("N" + i, 1);
+			nodes.add(node);
+			builder.addNode(node);
+			expected.addNode(node);
+		}
+		for (int e = 0; e < 300; e++) {
+			WeightedNode parent = nodes.get(random.nextInt(nodes.size()));
+			WeightedNode child = nodes.get(random.nextInt(nodes.size()));
+			builder.addEdge(parent, child);
+			expected.addEdge(parent, child);
+		}
+		// runs of edges of one parent, some longer than the lists sorted by
+		// insertion, with repeated edges
+		for (int round = 0; round < 2; round++) {
+			for (int i = nodes.size() - 1; i >= 0; i -= 1 + round) {
+				builder.addEdge(nodes.get(round), nodes.get(i));
+				expected.addEdge(nodes.get(round), nodes.get(i));
+				builder.addEdge(nodes.get(round), nodes.get(i / 2));
+				expected.addEdge(nodes.get(round), nodes.get(i / 2));
+			}
+		}
+		Graph<WeightedNode> built = builder.build(Graph.RepCheck.FULL);
+		assertEquals(expected.getListNodes(), built.getListNodes());
+		for (WeightedNode node : nodes) {
+			assertEquals(expected.getListChildren(node), built.getListChildren(node));
+			assertEquals(expected.getListParents(node), built.getListParents(node));
+		}
+	}
+
+	@Test
+	public void testGraphBuilderRejectsUnknownNodes() {
+		WeightedNode a = new WeightedNode("A", 1);
+		GraphBuilder<WeightedNode> builder = new GraphBuilder<>();
+		builder.addNode(a).addEdge(a, new WeightedNode("B", 1));
+		try {
+			builder.build();
+			fail("an edge to a node which was not added should be rejected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		builder.addNode(a);
+		try {
+			builder.build();
+			fail("a node added twice should be rejected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testAddNodesAndAddEdges() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 2);
+		WeightedNode c = new WeightedNode("C", 3);
+		WeightedNode d = new WeightedNode("D", 4);
+		graph.addNodes(Arrays.asList(c, a, b));
+		assertEquals(Arrays.asList(a, b, c), graph.getListNodes());
+		try {
+			graph.addNodes(Arrays.asList(d, a));
+			fail("an existing node should be rejected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertFalse(graph.containsNode(d));
+
+		graph.addEdge(a, b);
+		assertEquals(2, graph.addEdges(a, Arrays.asList(c, b, a, c)));
+		assertEquals(Arrays.asList(a, b, c), graph.getListChildren(a));
+		assertEquals(Arrays.asList(a), graph.getListParents(c));
+		try {
+			graph.addEdges(b, Arrays.asList(c, d));
+			fail("an edge to a missing node should be rejected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertFalse(graph.containsEdge(b, c));
+	}
+
+	@Test
+	public void testAddEdgesMergesIntoExistingChildren() {
+		List<WeightedNode> nodes = new ArrayList<>();
+		for (char name = 'A'; name <= 'H'; name++) {
+			nodes.add(new WeightedNode(String.valueOf(name), 1));
+		}
+		graph.addNodes(nodes);
+		WeightedNode a = nodes.get(0);
+		graph.addEdges(a, Arrays.asList(nodes.get(1), nodes.get(3), nodes.get(5)));
+		// new children before, between and after the existing ones, repeated and existing
+		assertEquals(4, graph.addEdges(a, Arrays.asList(nodes.get(7), nodes.get(2), nodes.get(3),
+				nodes.get(0), nodes.get(2), nodes.get(6))));
+		assertEquals(Arrays.asList(nodes.get(0), nodes.get(1), nodes.get(2), nodes.get(3),
+				nodes.get(5), nodes.get(6), nodes.get(7)), graph.getListChildren(a));
+		for (WeightedNode child : graph.getListChildren(a)) {
+			assertEquals(Collections.singletonList(a), graph.getListParents(child));
+		}
+		assertEquals(0, graph.addEdges(a, Arrays.asList(nodes.get(7), nodes.get(1))));
+	}
+
+	// ==== GraphFile Tests ====
+	@Test
+	public void testGraphFileRoundTrip() throws IOException {
+		Graph<WeightedNode> g = randomGraph(new Random(41), 100, 300);
+		g.addNode(new WeightedNode("\u05e9\u05dc\u05d5\u05dd", 7));
+		File file = File.createTempFile("graph", ".bin");
+		file.deleteOnExit();
+		GraphFile.write(g, file);
+
+		CompactGraph<WeightedNode> compact = GraphFile.read(file);
+		Graph<WeightedNode> loaded = GraphFile.readGraph(file);
+		assertEquals(g.getListNodes(), compact.getListNodes());
+		assertEquals(g.getListNodes(), loaded.getListNodes());
+		for (WeightedNode node : g.getListNodes()) {
+			assertEquals(g.getListChildren(node), compact.getListChildren(node));
+			assertEquals(g.getListParents(node), compact.getListParents(node));
+			assertEquals(g.getListChildren(node), loaded.getListChildren(node));
+		}
+		WeightedNode start = g.getListNodes().get(0);
+		WeightedNode goal = g.getListNodes().get(50);
+		PathFinder<WeightedNode> finder = new PathFinder<>(g);
+		Set<WeightedNode> goals = new HashSet<>();
+		goals.add(goal);
+		assertSamePath(finder.findShortestPath(new WeightedNodePath(start), goal),
+				new PathFinder<>(compact).findShortestPath(new WeightedNodePath(start), goal), goals);
+	}
+
+	@Test
+	public void testGraphFileRejectsCorruptFile() throws IOException {
+		File file = File.createTempFile("graph", ".bin");
+		file.deleteOnExit();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write("CreateGraph g1\n".getBytes("UTF-8"));
+		}
+		try {
+			GraphFile.read(file);
+			fail("a text file is not a graph file");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	// ==== Path Tests ====
+	@Test
+	public void testLongPathElements() {
+		int length = 100000;
+		WeightedNode[] nodes = new WeightedNode[length];
+		WeightedNodePath weighted = null;
+		NodeCountingPath counting = null;
+		for (int i = 0; i < length; i++) {
+			nodes[i] = new WeightedNode("n" + i, i % 7);
+			weighted = weighted == null ? new WeightedNodePath(nodes[i]) : weighted.extend(nodes[i]);
+			counting = counting == null ? new NodeCountingPath(nodes[i]) : counting.extend(nodes[i]);
+			if (i == length / 2) {
+				// a prefix whose elements are known already is copied by longer paths
+				assertEquals(i + 1, weighted.toArray().length);
+			}
+		}
+		assertEquals(length, weighted.length());
+		assertEquals(length, counting.length());
+		assertArrayEquals(nodes, weighted.toArray());
+		assertArrayEquals(nodes, counting.toArray());
+
+		List<WeightedNode> visited = new ArrayList<>();
+		weighted.forEachInOrder(visited::add);
+		assertEquals(Arrays.asList(nodes), visited);
+		int i = 0;
+		for (WeightedNode node : counting) {
+			assertSame(nodes[i++], node);
+		}
+		assertEquals(length, i);
+
+		// the returned array is a copy
+		weighted.toArray()[0] = nodes[1];
+		assertSame(nodes[0], weighted.iterator().next());
+		assertEquals("[WeightedNodePath: [n0: 0], [n1: 1]]",
+				new WeightedNodePath(nodes[0]).extend(nodes[1]).toString());
+	}
+
+	@Test
+	public void testMillionNodePathEqualsAndHashCode() {
+		int length = 1000000;
+		WeightedNode first = new WeightedNode("first", 1);
+		WeightedNodePath a = new WeightedNodePath(first);
+		WeightedNodePath b = new WeightedNodePath(first);
+		WeightedNodePath other = new WeightedNodePath(new WeightedNode("other", 1));
+		NodeCountingPath c = new NodeCountingPath(first);
+		NodeCountingPath d = new NodeCountingPath(first);
+		for (int i = 1; i < length; i++) {
+			WeightedNode node = new WeightedNode("n" + i, 1);
+			a = a.extend(node);
+			b = b.extend(node);
+			other = other.extend(node);
+			c = c.extend(node);
+			d = d.extend(node);
+		}
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+		assertEquals(c, d);
+		assertEquals(c.hashCode(), d.hashCode());
+		// the paths differ only in their first node
+		assertNotEquals(a, other);
+
+		Set<WeightedNodePath> paths = new HashSet<>();
+		paths.add(a);
+		assertTrue(paths.contains(b));
+		assertFalse(paths.contains(other));
+		assertFalse(paths.contains(a.extend(first)));
+	}
+
+	@Test
+	public void testPathsOfDifferentLengthsWithCollidingHashes() {
+		// "" has cost and hash code 0, so both paths have the same cost and hash
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNodePath shorter = new WeightedNodePath(a);
+		WeightedNodePath longer = new WeightedNodePath(new WeightedNode("", 0)).extend(a);
+		assertEquals(shorter.getCost(), longer.getCost(), 0);
+		assertEquals(shorter.hashCode(), longer.hashCode());
+		assertNotEquals(shorter, longer);
+		assertNotEquals(longer, shorter);
+
+		Set<WeightedNodePath> paths = new HashSet<>();
+		paths.add(shorter);
+		assertFalse(paths.contains(longer));
+		assertTrue(paths.contains(new WeightedNodePath(a)));
+	}
+
+	// ==== IncrementalShortestPaths Tests ====
+	@Test
+	public void testIncrementalShortestPathsMatchesRecomputation() {
+		Random random = new Random(23);
+		for (int round = 0; round < 10; round++) {
+			Graph<WeightedNode> g = randomGraph(random, 60, 40);
+			List<WeightedNode> nodes = g.getListNodes();
+			Set<WeightedNodePath> starts = new HashSet<>();
+			starts.add(new WeightedNodePath(nodes.get(random.nextInt(nodes.size()))));
+			starts.add(new WeightedNodePath(nodes.get(random.nextInt(nodes.size()))));
+			IncrementalShortestPaths<WeightedNode, WeightedNodePath> paths =
+					new IncrementalShortestPaths<>(g, starts, WeightedNode::getCost);
+			for (int edge = 0; edge < 120; edge++) {
+				WeightedNode parent = nodes.get(random.nextInt(nodes.size()));
+				WeightedNode child = nodes.get(random.nextInt(nodes.size()));
+				if (edge % 10 == 0) {
+					g.addEdges(parent, Arrays.asList(child, nodes.get(random.nextInt(nodes.size()))));
+				} else {
+					g.addEdge(parent, child);
+				}
+				ShortestPathTree<WeightedNode, WeightedNodePath> tree =
+						new PathFinder<>(g).shortestPathTree(starts, WeightedNode::getCost);
+				assertEquals(tree.size(), paths.size());
+				for (WeightedNode node : nodes) {
+					assertEquals(tree.getCost(node), paths.getCost(node), 0.001);
+					WeightedNodePath path = paths.getPath(node);
+					if (path != null) {
+						assertEquals(paths.getCost(node), path.getCost(), 0.001);
+						assertEquals(node, path.getEnd());
+					}
+				}
+			}
+			paths.detach();
+		}
+	}
+
+	@Test
+	public void testIncrementalShortestPathsOnlyRepairsImprovedNodes() {
+		Graph<WeightedNode> g = new Graph<>();
+		WeightedNode[] chain = new WeightedNode[100];
+		for (int i = 0; i < chain.length; i++) {
+			chain[i] = new WeightedNode("c" + i, 1);
+			g.addNode(chain[i]);
+			if (i > 0) {
+				g.addEdge(chain[i - 1], chain[i]);
+			}
+		}
+		WeightedNode unreached = new WeightedNode("u", 1);
+		g.addNode(unreached);
+		IncrementalShortestPaths<WeightedNode, WeightedNodePath> paths = new IncrementalShortestPaths<>(
+				g, Collections.singleton(new WeightedNodePath(chain[0])), WeightedNode::getCost);
+		assertEquals(100, paths.getCost(chain[99]), 0);
+
+		// edges which cannot shorten any path do no work
+		g.addEdge(unreached, chain[1]);
+		g.addEdge(chain[50], chain[10]);
+		assertEquals(0, paths.getNodesUpdated());
+
+		// a shortcut only repairs the nodes after it
+		g.addEdge(chain[0], chain[90]);
+		assertEquals(10, paths.getNodesUpdated());
+		assertEquals(11, paths.getCost(chain[99]), 0);
+		assertEquals(11, paths.getPath(chain[99]).length());
+		assertEquals(chain[90], paths.getPath(new HashSet<>(Arrays.asList(chain[95], chain[90]))).getEnd());
+
+		paths.detach();
+		g.addEdge(chain[0], chain[99]);
+		assertEquals(11, paths.getCost(chain[99]), 0);
+	}
+
+	// ==== Removal Tests ====
+	@Test
+	public void testRemoveEdgeAndNode() {
+		WeightedNode a = new WeightedNode("a", 1);
+		WeightedNode b = new WeightedNode("b", 2);
+		WeightedNode c = new WeightedNode("c", 3);
+		graph.addNodes(Arrays.asList(a, b, c));
+		graph.addEdges(a, Arrays.asList(a, b, c));
+		graph.addEdge(b, a);
+		graph.addEdge(c, b);
+
+		long version = graph.getVersion();
+		assertTrue(graph.removeEdge(a, c));
+		assertFalse(graph.removeEdge(a, c));
+		assertTrue(graph.getVersion() > version);
+		assertEquals(Arrays.asList(a, b), graph.getListChildren(a));
+		assertTrue(graph.getListParents(c).isEmpty());
+
+		graph.removeNode(a);
+		assertFalse(graph.containsNode(a));
+		assertEquals(2, graph.size());
+		assertTrue(graph.getListChildren(b).isEmpty());
+		assertEquals(Collections.singletonList(c), graph.getListParents(b));
+		assertFalse(graph.containsEdge(b, a));
+
+		// the node can be added again, without its old edges
+		graph.addNode(a);
+		assertTrue(graph.getListChildren(a).isEmpty());
+		assertTrue(graph.getListParents(a).isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRemoveNodeNotInGraph() {
+		graph.removeNode(new WeightedNode("missing", 1));
+	}
+
+	@Test
+	public void testRemovalInvalidatesCacheAndSnapshots() {
+		WeightedNode a = new WeightedNode("a", 1);
+		WeightedNode b = new WeightedNode("b", 1);
+		WeightedNode c = new WeightedNode("c", 1);
+		Graph<WeightedNode> g = new Graph<>();
+		g.addNodes(Arrays.asList(a, b, c));
+		g.addEdge(a, b);
+		g.addEdge(b, c);
+		PathFinder<WeightedNode> cached = new PathFinder<>(g, 8);
+		assertNotNull(cached.findShortestPath(new WeightedNodePath(a), c));
+		GraphSnapshot<WeightedNode> before = g.snapshot();
+
+		g.removeEdge(b, c);
+		assertNull(cached.findShortestPath(new WeightedNodePath(a), c));
+		g.removeNode(b);
+		GraphSnapshot<WeightedNode> after = g.snapshot();
+		for (int i = 0; i < 8; i++) {
+			// later snapshots are merged into the layers which hide b
+			WeightedNode node = new WeightedNode("x" + i, 1);
+			g.addNode(node);
+			g.addEdge(a, node);
+			after = g.snapshot();
+		}
+		assertFalse(after.containsNode(b));
+		assertFalse(after.getListNodes().contains(b));
+		assertEquals(g.getListNodes(), after.getListNodes());
+		assertEquals(g.getListChildren(a), after.getListChildren(a));
+		assertEquals(Arrays.asList(a, b, c), before.getListNodes());
+		assertEquals(Collections.singletonList(c), before.getListChildren(b));
+	}
+
+	@Test
+	public void testIncrementalShortestPathsWithRemovals() {
+		Random random = new Random(29);
+		for (int round = 0; round < 10; round++) {
+			Graph<WeightedNode> g = randomGraph(random, 50, 150);
+			List<WeightedNode> nodes = new ArrayList<>(g.getListNodes());
+			Set<WeightedNodePath> starts = new HashSet<>();
+			for (int i = 0; i < 3; i++) {
+				starts.add(new WeightedNodePath(nodes.get(random.nextInt(nodes.size()))));
+			}
+			IncrementalShortestPaths<WeightedNode, WeightedNodePath> paths =
+					new IncrementalShortestPaths<>(g, starts, WeightedNode::getCost);
+			for (int step = 0; step < 100; step++) {
+				WeightedNode parent = nodes.get(random.nextInt(nodes.size()));
+				int action = random.nextInt(10);
+				if (action < 4 && !g.getListChildren(parent).isEmpty()) {
+					List<WeightedNode> children = g.getListChildren(parent);
+					g.removeEdge(parent, children.get(random.nextInt(children.size())));
+				} else if (action == 4 && nodes.size() > 10) {
+					g.removeNode(parent);
+					nodes.remove(parent);
+					starts.removeIf(start -> start.getEnd().equals(parent));
+				} else {
+					g.addEdge(parent, nodes.get(random.nextInt(nodes.size())));
+				}
+				ShortestPathTree<WeightedNode, WeightedNodePath> tree =
+						new PathFinder<>(g).shortestPathTree(starts, WeightedNode::getCost);
+				assertEquals(tree.size(), paths.size());
+				for (WeightedNode node : nodes) {
+					assertEquals(tree.getCost(node), paths.getCost(node), 0.001);
+					WeightedNodePath path = paths.getPath(node);
+					assertEquals(tree.isReached(node), path != null);
+					if (path != null) {
+						assertEquals(paths.getCost(node), path.getCost(), 0.001);
+						WeightedNode previous = null;
+						for (WeightedNode next : path) {
+							assertTrue(previous == null || g.containsEdge(previous, next));
+							previous = next;
+						}
+					}
+				}
+			}
+			paths.detach();
+		}
+	}
+
+	// ==== WeightedNodeGraph Tests ====
+	@Test
+	public void testWeightedNodeGraphMatchesGraph() {
+		Random random = new Random(23);
+		for (int round = 0; round < 20; round++) {
+			Graph<WeightedNode> g = randomGraph(random, 30, 60);
+			List<WeightedNode> nodes = g.getListNodes();
+			WeightedNodeGraph weighted = new WeightedNodeGraph();
+			for (WeightedNode node : nodes) {
+				assertEquals(weighted.size(), weighted.addNode(node));
+			}
+			for (WeightedNode node : nodes) {
+				for (WeightedNode child : g.getListChildren(node)) {
+					assertTrue(weighted.addEdge(node.getName(), child.getName()));
+				}
+			}
+			assertEquals(nodes, weighted.getListNodes());
+			for (WeightedNode node : nodes) {
+				assertEquals(node, weighted.nodeAt(weighted.idOf(node.getName())));
+				assertEquals(g.getListChildren(node), weighted.getListChildren(node));
+				assertEquals(g.getListParents(node), weighted.getListParents(node));
+			}
+
+			PathFinder<WeightedNode> finder = new PathFinder<>(g);
+			WeightedNodePathFinder weightedFinder = new WeightedNodePathFinder(weighted);
+			for (int query = 0; query < 20; query++) {
+				Set<WeightedNodePath> starts = new HashSet<>();
+				Set<WeightedNode> goals = new HashSet<>();
+				for (int i = random.nextInt(3); i >= 0; i--) {
+					starts.add(new WeightedNodePath(nodes.get(random.nextInt(nodes.size()))));
+				}
+				for (int i = random.nextInt(3); i >= 0; i--) {
+					goals.add(nodes.get(random.nextInt(nodes.size())));
+				}
+				WeightedNodePath expected = finder.findShortestPath(starts, goals);
+				assertSamePath(expected, weightedFinder.findShortestPath(starts, goals), goals);
+
+				int[] startIds = starts.stream().mapToInt(p -> weighted.idOf(p.getEnd())).toArray();
+				int[] goalIds = goals.stream().mapToInt(weighted::idOf).toArray();
+				int[] ids = weightedFinder.findShortestPath(startIds, goalIds);
+				if (expected == null) {
+					assertNull(ids);
+				} else {
+					double cost = 0;
+					for (int i = 0; i < ids.length; i++) {
+						assertTrue(i == 0 || weighted.containsEdge(ids[i - 1], ids[i]));
+						cost += weighted.costOf(ids[i]);
+					}
+					assertEquals(expected.getCost(), cost, 0.001);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testWeightedNodeGraphKeepsEdgesSorted() {
+		Random random = new Random(123);
+		Graph<WeightedNode> g = new Graph<>();
+		WeightedNodeGraph weighted = new WeightedNodeGraph();
+		List<WeightedNode> nodes = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			WeightedNode node = new WeightedNode("n" + random.nextInt(100000) + "_" + i, random.nextInt(10));
+			nodes.add(node);
+			g.addNode(node);
+			weighted.addNode(node);
+		}
+		// edges in random order, with some nodes of high degree so that their
+		// blocks move and the shared arrays are compacted
+		for (int e = 0; e < 3000; e++) {
+			WeightedNode parent = nodes.get(random.nextInt(e % 3 == 0 ? 5 : nodes.size()));
+			WeightedNode child = nodes.get(random.nextInt(nodes.size()));
+			boolean added = !g.containsEdge(parent, child);
+			if (added) {
+				g.addEdge(parent, child);
+			}
+			assertEquals(added, weighted.addEdge(weighted.idOf(parent), weighted.idOf(child)));
+		}
+		for (WeightedNode node : nodes) {
+			int id = weighted.idOf(node);
+			List<WeightedNode> children = new ArrayList<>();
+			for (int k = weighted.childrenStart(id); k < weighted.childrenEnd(id); k++) {
+				children.add(weighted.nodeAt(weighted.childAt(k)));
+			}
+			assertEquals(g.getListChildren(node), children);
+			assertEquals(g.getListChildren(node), weighted.getListChildren(node));
+			assertEquals(g.getListParents(node), weighted.getListParents(node));
+			for (WeightedNode child : nodes) {
+				assertEquals(g.containsEdge(node, child), weighted.containsEdge(node, child));
+			}
+		}
+	}
+
+	@Test
+	public void testWeightedNodeGraphNames() {
+		WeightedNodeGraph weighted = new WeightedNodeGraph();
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, weighted.addNode("node" + i, i % 7));
+		}
+		assertEquals(1000, weighted.size());
+		assertEquals(123, weighted.idOf("node123"));
+		assertEquals("node999", weighted.nameOf(999));
+		assertEquals(-1, weighted.idOf("node1000"));
+		assertEquals(-1, weighted.idOf(new WeightedNode("node5", 6)));
+		assertTrue(weighted.containsNode(new WeightedNode("node5", 5)));
+		assertTrue(weighted.addEdge(1, 2));
+		assertFalse(weighted.addEdge(1, 2));
+		assertEquals(1, weighted.edgeCount());
+		try {
+			weighted.addNode("node7", 0);
+			fail("Expected IllegalArgumentException for a duplicate name");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			weighted.addEdge(1, 1000);
+			fail("Expected IllegalArgumentException for a missing node");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	// ==== OffHeapGraph Tests ====
+	@Test
+	public void testOffHeapGraphMatchesGraph() throws IOException {
+		Graph<WeightedNode> g = randomGraph(new Random(24), 100, 300);
+		g.addNode(new WeightedNode("\u05e9\u05dc\u05d5\u05dd", 7));
+		g.addNode(new WeightedNode("n1", 100));
+		File file = File.createTempFile("graph", ".bin");
+		file.deleteOnExit();
+		GraphFile.write(g, file);
+
+		List<WeightedNode> nodes = g.getListNodes();
+		PathFinder<WeightedNode> finder = new PathFinder<>(g);
+		for (OffHeapGraph offHeap : Arrays.asList(new OffHeapGraph(g), GraphFile.readOffHeap(file))) {
+			assertEquals(nodes, offHeap.getListNodes());
+			assertEquals(g.size(), offHeap.size());
+			for (WeightedNode node : nodes) {
+				assertEquals(node, offHeap.nodeAt(offHeap.idOf(node)));
+				assertEquals(g.getListChildren(node), offHeap.getListChildren(node));
+				assertEquals(g.getListParents(node), offHeap.getListParents(node));
+			}
+			assertFalse(offHeap.containsNode(new WeightedNode("n1", 101)));
+			assertFalse(offHeap.containsNode(new WeightedNode("missing", 0)));
+
+			PathFinder<WeightedNode> offHeapFinder = new PathFinder<>(offHeap);
+			WeightedNodePathFinder idFinder = new WeightedNodePathFinder(offHeap);
+			for (int i = 0; i < nodes.size(); i += 7) {
+				WeightedNodePath start = new WeightedNodePath(nodes.get(i));
+				WeightedNode goal = nodes.get((i * 31) % nodes.size());
+				WeightedNodePath expected = finder.findShortestPath(start, goal);
+				assertSamePath(expected, offHeapFinder.findShortestPath(start, goal), Collections.singleton(goal));
+				assertSamePath(expected, idFinder.findShortestPath(Collections.singleton(start),
+						Collections.singleton(goal)), Collections.singleton(goal));
+				int[] ids = idFinder.findShortestPath(new int[] {offHeap.idOf(start.getEnd())},
+						new int[] {offHeap.idOf(goal)});
+				assertEquals(expected == null, ids == null);
+				if (ids != null) {
+					assertEquals(expected.length(), ids.length);
+					assertEquals(goal, offHeap.nodeAt(ids[ids.length - 1]));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testOffHeapGraphRejectsCorruptFile() throws IOException {
+		File file = File.createTempFile("graph", ".bin");
+		file.deleteOnExit();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write("CreateGraph g1\n".getBytes("UTF-8"));
+		}
+		try {
+			GraphFile.readOffHeap(file);
+			fail("a text file is not a graph file");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	// ==== Search Statistics Tests ====
+	@Test
+	public void testSearchStatsOfLoopBackToStart() {
+		WeightedNode a = new WeightedNode("A", 5);
+		WeightedNode b = new WeightedNode("B", 1);
+		WeightedNode c = new WeightedNode("C", 1);
+		graph.addNode(a);
+		graph.addNode(b);
+		graph.addNode(c);
+		graph.addEdge(a, b);
+		graph.addEdge(a, c);
+		graph.addEdge(b, c);
+		graph.addEdge(c, a);
+		PathFinder<WeightedNode> finder = new PathFinder<>(graph);
+		List<SearchStats> reported = new ArrayList<>();
+		finder.setSearchListener(reported::add);
+
+		// A is passed over once, and C is queued twice on the way back to A
+		WeightedNodePath start = new WeightedNodePath(a);
+		assertEquals(start.extend(c).extend(a), finder.findShortestPath(start, a));
+		assertEquals(1, reported.size());
+		SearchStats stats = reported.get(0);
+		assertTrue(stats.isFound());
+		assertEquals(3, stats.getNodesSettled());
+		assertEquals(finder.getNodesSettled(), stats.getNodesSettled());
+		assertEquals(4, stats.getEdgesRelaxed());
+		assertEquals(2, stats.getPeakQueueSize());
+		assertEquals(1, stats.getStalePops());
+		assertEquals(1, stats.getSecondChances());
+		assertTrue(stats.getWallNanos() >= 0);
+
+		finder.setSearchListener(null);
+		finder.findShortestPath(start, a);
+		assertEquals(1, reported.size());
+		assertEquals(3, finder.getNodesSettled());
+	}
+
+	@Test
+	public void testSearchStatsOfSeveralStarts() {
+		WeightedNode a = new WeightedNode("A", 1);
+		WeightedNode b = new WeightedNode("B", 6);
+		WeightedNode c = new WeightedNode("C", 2);
+		WeightedNode d = new WeightedNode("D", 4);
+		WeightedNode e = new WeightedNode("E", 1);
+		WeightedNode f = new WeightedNode("F", 1);
+		for (WeightedNode node : Arrays.asList(a, b, c, d, e, f)) {
+			graph.addNode(node);
+		}
+		graph.addEdge(a, c);
+		graph.addEdge(a, d);
+		graph.addEdge(c, e);
+		graph.addEdge(d, e);
+		graph.addEdge(e, a);
+		graph.addEdge(b, f);
+		graph.addEdge(f, b);
+		PathFinder<WeightedNode> finder = new PathFinder<>(graph);
+		List<SearchStats> reported = new ArrayList<>();
+		finder.setSearchListener(reported::add);
+
+		// A, C, E and D are settled before B is passed over and reached again by B-F-B;
+		// A-C, A-D, A-C-E, B-F and B-F-B are queued, at most 3 paths at once
+		Set<WeightedNodePath> starts = new HashSet<>(Arrays.asList(new WeightedNodePath(a), new WeightedNodePath(b)));
+		WeightedNodePath expected = new WeightedNodePath(b).extend(f).extend(b);
+		assertEquals(expected, finder.findShortestPath(starts, Collections.singleton(b)));
+		assertEquals(1, reported.size());
+		SearchStats stats = reported.get(0);
+		assertTrue(stats.isFound());
+		assertEquals(6, stats.getNodesSettled());
+		assertEquals(5, stats.getEdgesRelaxed());
+		assertEquals(3, stats.getPeakQueueSize());
+		assertEquals(0, stats.getStalePops());
+		assertEquals(1, stats.getSecondChances());
+
+		// F is only reachable from B, so searching from A settles A, C, D and E in vain
+		Set<WeightedNodePath> fromA = Collections.singleton(new WeightedNodePath(a));
+		assertNull(finder.findShortestPath(fromA, Collections.singleton(f)));
+		stats = reported.get(1);
+		assertFalse(stats.isFound());
+		assertEquals(4, stats.getNodesSettled());
+		assertEquals(3, stats.getEdgesRelaxed());
+		assertEquals(2, stats.getPeakQueueSize());
+		assertEquals(0, stats.getStalePops());
+		assertEquals(0, stats.getSecondChances());
+	}
+
+	@Test
+	public void testSearchHistograms() {
+		Random random = new Random(25);
+		Graph<WeightedNode> g = randomGraph(random, 50, 120);
+		List<WeightedNode> nodes = g.getListNodes();
+		PathFinder<WeightedNode> finder = new PathFinder<>(g, 4);
+		PathFinder<WeightedNode> plainFinder = new PathFinder<>(g);
+		SearchHistograms histograms = new SearchHistograms();
+		finder.setSearchListener(histograms);
+		long settled = 0;
+		int notFound = 0;
+		for (int query = 0; query < 20; query++) {
+			Set<WeightedNodePath> starts = Collections.singleton(new WeightedNodePath(nodes.get(query)));
+			Set<WeightedNode> goals = Collections.singleton(nodes.get(49 - query));
+			WeightedNodePath path = finder.findShortestPath(starts, goals);
+			if (path == null) {
+				notFound++;
+			}
+			settled += finder.getNodesSettled();
+			// the instrumented search finds what the plain one does
+			assertEquals(plainFinder.findShortestPath(starts, goals), path);
+			assertEquals(plainFinder.getNodesSettled(), finder.getNodesSettled());
+			// answered from the cache, so not searched again
+			finder.findShortestPath(starts, goals);
+		}
+		assertEquals(20, histograms.getSearches());
+		assertEquals(notFound, histograms.getNotFound());
+		assertEquals(settled, histograms.getNodesSettled().getSum());
+		for (SearchHistograms.Histogram histogram : histograms.getHistograms().values()) {
+			assertEquals(20, histogram.getCount());
+		}
+
+		SearchHistograms.Histogram histogram = new SearchHistograms.Histogram();
+		for (long value : new long[] {0, 1, 2, 3, 100}) {
+			histogram.record(value);
+		}
+		assertEquals(1, histogram.getBucketCount(0));
+		assertEquals(2, histogram.getBucketCount(2));
+		assertEquals(3, histogram.getPercentile(0.5));
+		assertEquals(100, histogram.getPercentile(1));
+		assertEquals(21.2, histogram.getMean(), 0.001);
+	}
+
+	// ==== TestDriver Tests ====
+	@Test
+	public void testTestDriverLineEndings() throws IOException {
+		String input = "CreateGraph g1\r\nCreateNode n1 3\rCreateNode n2 4\n"
+				+ "AddNode g1 n1\r\n\r\nAddNode g1 n2\n# comment\r"
+				+ "AddEdge g1 n1 n2\nAddEdge g1 n1 missing\nAddEdge\t g1   n2 n1\n"
+				+ "ListChildren g1 n1";
+		StringWriter output = new StringWriter();
+		new TestDriver(new StringReader(input), output).runTests();
+		String nl = System.lineSeparator();
+		String expected = "created graph g1" + nl
+				+ "created node n1 with cost 3" + nl
+				+ "created node n2 with cost 4" + nl
+				+ "added node n1 to g1" + nl
+				+ nl
+				+ "added node n2 to g1" + nl
+				+ "# comment" + nl
+				+ "added edge from n1 to n2 in g1" + nl
+				+ "Exception: java.lang.IllegalArgumentException: Node named missing does not exist" + nl
+				+ "added edge from n2 to n1 in g1" + nl
+				+ "the children of n1 in g1 are: n2" + nl;
+		assertEquals(expected, output.toString());
+	}
+
+	@Test
+	public void testTestDriverBatchedQueriesKeepOrder() throws IOException {
+		String input = "CreateGraph g1\nCreateNode a 1\nCreateNode b 2\nCreateNode c 3\n"
+				+ "AddNode g1 a\nAddNode g1 b\nAddNode g1 c\nAddEdge g1 a b\n"
+				+ "FindPath g1 a -> c\nListChildren g1 a\n# between queries\nFindPath g1 a -> b\n"
+				+ "FindPath g1 a -> c\nFindPath g1 a -> missing\n"
+				+ "AddEdge g1 b c\nFindPath g1 a -> c\nListNodes g1\n";
+		StringWriter output = new StringWriter();
+		new TestDriver(new StringReader(input), output).runTests();
+		String nl = System.lineSeparator();
+		String expected = "created graph g1" + nl
+				+ "created node a with cost 1" + nl
+				+ "created node b with cost 2" + nl
+				+ "created node c with cost 3" + nl
+				+ "added node a to g1" + nl
+				+ "added node b to g1" + nl
+				+ "added node c to g1" + nl
+				+ "added edge from a to b in g1" + nl
+				+ "no path found in g1" + nl
+				+ "the children of a in g1 are: b" + nl
+				+ "# between queries" + nl
+				+ "shortest path in g1: a b" + nl
+				+ "no path found in g1" + nl
+				+ "Exception: java.lang.IllegalArgumentException: Node named missing does not exist" + nl
+				+ "added edge from b to c in g1" + nl
+				+ "shortest path in g1: a b c" + nl
+				+ "g1 contains: a b c" + nl;
+		assertEquals(expected, output.toString());
+	}
+
+	@Test
+	public void testTestDriverBatchesShareTheCache() throws IOException {
+		String queries = "FindPath g1 a -> c\nFindPath g1 b -> c\nFindPath g1 c -> a\n";
+		// CreateGraph ends a batch without changing g1
+		String input = "CreateGraph g1\nCreateNode a 1\nCreateNode b 2\nCreateNode c 3\n"
+				+ "AddNode g1 a\nAddNode g1 b\nAddNode g1 c\nAddEdge g1 a b\nAddEdge g1 b c\n"
+				+ queries + "CreateGraph g2\n" + queries + "CreateGraph g3\nFindPath g1 b -> a c\n" + queries;
+		StringWriter output = new StringWriter();
+		TestDriver driver = new TestDriver(new StringReader(input), output);
+		driver.runTests();
+		String nl = System.lineSeparator();
+		String answers = "shortest path in g1: a b c" + nl
+				+ "shortest path in g1: b c" + nl
+				+ "no path found in g1" + nl;
+		assertTrue(output.toString().endsWith("created graph g2" + nl + answers + "created graph g3" + nl
+				+ "shortest path in g1: b c" + nl + answers));
+		// only the first batch and the new query of the last one were searched
+		assertEquals(4, driver.getFoundPathMisses());
+		assertEquals(6, driver.getFoundPathHits());
+	}
+
+	@Test
+	public void testTestDriverSearchesAgainAfterANameChanges() throws IOException {
+		String query = "FindPath g1 a -> c\n";
+		// a c with another cost is not in g1, and a new g1 has no nodes
+		String input = "CreateGraph g1\nCreateNode a 1\nCreateNode c 3\nAddNode g1 a\nAddNode g1 c\n"
+				+ "AddEdge g1 a c\n" + query + "CreateNode c 4\n" + query + "CreateNode c 3\n" + query
+				+ "CreateGraph g1\nAddNode g1 a\nAddNode g1 c\n" + query;
+		StringWriter output = new StringWriter();
+		TestDriver driver = new TestDriver(new StringReader(input), output);
+		driver.runTests();
+		String nl = System.lineSeparator();
+		assertTrue(output.toString().endsWith("created node c with cost 4" + nl + "no path found in g1" + nl
+				+ "created node c with cost 3" + nl + "shortest path in g1: a c" + nl + "created graph g1" + nl
+				+ "added node a to g1" + nl + "added node c to g1" + nl + "no path found in g1" + nl));
+		assertEquals(4, driver.getFoundPathMisses());
+		assertEquals(0, driver.getFoundPathHits());
+	}
+}
@@ -0,0 +1,35 @@
+package homework2;
+
+/**
+ * A Heuristic estimates, for a node, how much cost a path ending at that
+ * node must still gain before it reaches a goal. It is used by PathFinder
+ * to direct an A* search towards the goals.
+ * <p>
+ * A Heuristic is admissible if it never overestimates: for every node n,
+ * estimate(n) is at most the cost of the cheapest extension from n to a
+ * goal (not counting n itself). A* returns shortest paths only when given
+ * an admissible Heuristic.
+ *
+ * @param <T> the type of nodes in the graph
+ */
+public interface Heuristic<T> {
+
+	/**
+	 * Returns a lower bound on the cost still to be added to a path
+	 * ending at node before it reaches a goal.
+	 * @requires node != null
+	 * @return a lower bound on the remaining cost from node, which is
+	 *         0 when node is a goal
+	 */
+	public double estimate(T node);
+
+
+	/**
+	 * Returns the Heuristic which estimates 0 for every node, with which
+	 * A* behaves exactly like Dijkstra's algorithm.
+	 * @return a Heuristic which always estimates 0
+	 */
+	public static <T> Heuristic<T> zero() {
+		return node -> 0;
+	}
+}
@@ -0,0 +1,64 @@
+package homework2;
+
+/**
+ * A graph whose nodes have dense int ids, with the children of every node
+ * read by index as in compressed sparse row form:
+ * <pre>
+ *   for (int k = graph.childrenStart(u), end = graph.childrenEnd(u); k &lt; end; k++) {
+ *       int child = graph.childAt(k);
+ *   }
+ * </pre>
+ * This is what CompactPathFinder searches, so CompactGraph, WeightedNodeGraph
+ * and OffHeapGraph all share its search.
+ *
+ * @param <T> the type of nodes in the graph
+ */
+interface IdGraph<T> {
+
+	/**
+	 * Returns the number of nodes, whose ids are 0 .. size() - 1.
+	 */
+	public int size();
+
+
+	/**
+	 * Returns the id of the given node.
+	 * @return the id of node, or -1 if node is not in this graph
+	 */
+	public int idOf(T node);
+
+
+	/**
+	 * Returns the node with the given id.
+	 * @requires 0 <= id < size()
+	 */
+	public T nodeAt(int id);
+
+
+	/**
+	 * Returns the index of the first child of a node.
+	 * @requires 0 <= id < size()
+	 */
+	public int childrenStart(int id);
+
+
+	/**
+	 * Returns the index one past the last child of a node.
+	 * @requires 0 <= id < size()
+	 */
+	public int childrenEnd(int id);
+
+
+	/**
+	 * Returns the id of the child stored at the given index.
+	 * @requires childrenStart(u) <= index < childrenEnd(u) for some node u
+	 */
+	public int childAt(int index);
+
+
+	/**
+	 * Returns whether there is an edge between the nodes with the given ids.
+	 * @requires 0 <= parent < size() and 0 <= child < size()
+	 */
+	public boolean containsEdge(int parent, int child);
+}
@@ -0,0 +1,380 @@
+package homework2;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * IncrementalShortestPaths keeps the shortest paths from a fixed set of start
+ * paths to every reachable node of a Graph up to date while edges are added
+ * to the graph, so standing queries are answered without searching again.
+ * <p>
+ * It listens to the edges added to the graph. Adding an edge can only make
+ * paths shorter, and only through the new edge: if the edge from parent to
+ * child gives child a cheaper path, the cheaper costs are propagated from
+ * child with a Dijkstra search that only visits the nodes whose cost
+ * decreases. Every other edge is dismissed after two lookups.
+ * <p>
+ * Removing an edge only matters if it is in the tree of shortest paths. The
+ * subtree below it then loses its paths; every node of the subtree is given
+ * the cheapest path through its parents outside the subtree (found through
+ * the graph's reverse index), and these costs are propagated as above.
+ * Removing a start node from the graph removes it from the start nodes.
+ * <p>
+ * The cost model must be node-weighted, as in PathFinder.shortestPathTree,
+ * and node costs must not be negative. As there, every start node is reached
+ * by its own start path unless a cheaper path reaches it.
+ * <p>
+ * Like Graph, an IncrementalShortestPaths is not safe for use by several
+ * threads. Call detach() once it is no longer needed, so the graph stops
+ * updating it.
+ *
+ * @param <T> the type of nodes in the graph
+ * @param <P> the type of the paths
+ */
+public class IncrementalShortestPaths<T extends Comparable<? super T>, P extends Path<T, P>> {
+
+    /**
+     * Representation Invariant:
+     * - graph != null && nodeCost != null && startPaths != null && ids != null
+     * - nodes.length == costs.length == preds.length >= known == ids.size()
+     * - ids.get(nodes[i]) == i for every 0 <= i < known
+     * - reachable is the number of 0 <= i < known with costs[i] < infinity
+     * - for every i with costs[i] < infinity: preds[i] == -1 and startPaths
+     *   contains nodes[i], or 0 <= preds[i] < known and
+     *   costs[i] == costs[preds[i]] + nodeCost(nodes[i])
+     * - heap is empty between calls
+     * Abstraction Function:
+     * the nodes reachable from the start nodes are the nodes[i] with
+     * costs[i] < infinity (nodes which were reachable once keep their id). The
+     * shortest path to nodes[i] costs costs[i]; it is startPaths.get(nodes[i])
+     * if preds[i] == -1, and the shortest path to nodes[preds[i]] extended with
+     * nodes[i] otherwise.
+     */
+
+    private final Graph<T> graph;
+    private final ToDoubleFunction<? super T> nodeCost;
+    private final Map<T, P> startPaths = new HashMap<>();
+    private final Map<T, Integer> ids = new HashMap<>();
+    private Object[] nodes;
+    private double[] costs;
+    private int[] preds;
+    private int known;
+    private int reachable;
+    private final IndexedMinHeap heap;
+    // the number of times a node was reached or got a cheaper path after
+    // the graph changed, or lost its path when an edge was removed
+    private long nodesUpdated;
+    private final Graph.EdgeListener<T> listener = new Graph.EdgeListener<T>() {
+        public void edgeAdded(T parent, T child) {
+            IncrementalShortestPaths.this.edgeAdded(parent, child);
+        }
+
+        public void edgeRemoved(T parent, T child) {
+            IncrementalShortestPaths.this.edgeRemoved(parent, child);
+        }
+
+        public void nodeRemoved(T node) {
+            IncrementalShortestPaths.this.nodeRemoved(node);
+        }
+    };
+
+    /**
+     * Checks the representation invariant.
+     */
+    private void checkRep() {
+        assert graph != null && nodeCost != null && startPaths != null && ids != null :
+                "fields cannot be null";
+        assert costs.length == nodes.length && preds.length == nodes.length :
+                "there must be a cost and a predecessor for every node";
+        assert ids.size() == known && known <= nodes.length : "every known node must have an id";
+        assert 0 <= reachable && reachable <= known : "reachable nodes must be known";
+        assert heap.isEmpty() : "the heap must be empty between calls";
+    }
+
+    /**
+     * Finds the shortest paths from the start paths to every node reachable
+     * from them, and keeps them up to date as graph changes.
+     * @param graph the graph to find paths in
+     * @param startPaths a set of initial paths (each containing one start node)
+     * @param nodeCost the cost added to a path when it is extended with a node
+     * @requires graph != null && startPaths != null && nodeCost != null &&
+     *           all paths in startPaths are non-null, contain exactly one node
+     *           and end at a node of graph &&
+     *           extending any path with node n adds exactly nodeCost(n) >= 0 to its cost
+     * @effects registers this to be told about the changes to graph
+     */
+    public IncrementalShortestPaths(Graph<T> graph, Set<P> startPaths,
+                                    ToDoubleFunction<? super T> nodeCost) {
+        if (graph == null || startPaths == null || nodeCost == null) {
+            throw new IllegalArgumentException("Graph, start paths and node cost cannot be null");
+        }
+        this.graph = graph;
+        this.nodeCost = nodeCost;
+        int capacity = Math.max(16, graph.size());
+        nodes = new Object[capacity];
+        costs = new double[capacity];
+        preds = new int[capacity];
+        heap = new IndexedMinHeap(capacity);
+        for (P startPath : startPaths) {
+            if (startPath == null) {
+                throw new IllegalArgumentException("Start paths cannot be null");
+            }
+            T startNode = startPath.getEnd();
+            if (!graph.containsNode(startNode)) {
+                throw new IllegalArgumentException("Start nodes must be in the graph");
+            }
+            P previous = this.startPaths.get(startNode);
+            if (previous == null || startPath.getCost() < previous.getCost()) {
+                this.startPaths.put(startNode, startPath);
+            }
+        }
+        for (P startPath : this.startPaths.values()) {
+            relax(startPath.getEnd(), startPath.getCost(), -1);
+        }
+        propagate();
+        nodesUpdated = 0;
+        graph.addEdgeListener(listener);
+        checkRep();
+    }
+
+    /**
+     * Repairs the shortest paths after an edge was added to the graph.
+     */
+    private void edgeAdded(T parent, T child) {
+        Integer parentId = ids.get(parent);
+        if (parentId == null || costs[parentId] == Double.POSITIVE_INFINITY) {
+            // the edge is not reachable from the start nodes
+            return;
+        }
+        // a repair gives ids to graph.size() new nodes at most
+        heap.ensureCapacity(known + graph.size());
+        if (relax(child, costs[parentId] + nodeCost.applyAsDouble(child), parentId)) {
+            propagate();
+        }
+        checkRep();
+    }
+
+    /**
+     * Repairs the shortest paths after an edge was removed from the graph.
+     */
+    private void edgeRemoved(T parent, T child) {
+        Integer parentId = ids.get(parent);
+        Integer childId = ids.get(child);
+        if (parentId == null || childId == null || preds[childId] != parentId ||
+                costs[childId] == Double.POSITIVE_INFINITY) {
+            // no shortest path goes through the edge
+            return;
+        }
+        heap.ensureCapacity(known + graph.size());
+        int[] subtree = unreach(childId);
+        for (int v : subtree) {
+            @SuppressWarnings("unchecked")
+            T node = (T) nodes[v];
+            if (!graph.containsNode(node)) {
+                continue;
+            }
+            P startPath = startPaths.get(node);
+            if (startPath != null) {
+                relax(node, startPath.getCost(), -1);
+            }
+            double cost = nodeCost.applyAsDouble(node);
+            for (T nodeParent : graph.getListParents(node)) {
+                Integer id = ids.get(nodeParent);
+                if (id != null && costs[id] < Double.POSITIVE_INFINITY) {
+                    relax(node, costs[id] + cost, id);
+                }
+            }
+        }
+        propagate();
+        checkRep();
+    }
+
+    /**
+     * Removes a node which was removed from the graph from the start nodes.
+     * Its edges were removed before, so no other node has a path through it.
+     */
+    private void nodeRemoved(T node) {
+        startPaths.remove(node);
+        Integer id = ids.get(node);
+        if (id != null && costs[id] < Double.POSITIVE_INFINITY) {
+            costs[id] = Double.POSITIVE_INFINITY;
+            reachable--;
+            nodesUpdated++;
+        }
+        checkRep();
+    }
+
+    /**
+     * Makes the node root and all the nodes whose shortest path goes through
+     * it unreachable.
+     * @return the ids of these nodes
+     */
+    @SuppressWarnings("unchecked")
+    private int[] unreach(int root) {
+        int[] subtree = new int[8];
+        int size = 0;
+        subtree[size++] = root;
+        costs[root] = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < size; k++) {
+            int u = subtree[k];
+            T node = (T) nodes[u];
+            if (!graph.containsNode(node)) {
+                continue;
+            }
+            for (T child : graph.getListChildren(node)) {
+                Integer id = ids.get(child);
+                if (id != null && preds[id] == u && costs[id] < Double.POSITIVE_INFINITY) {
+                    if (size == subtree.length) {
+                        subtree = Arrays.copyOf(subtree, 2 * size);
+                    }
+                    subtree[size++] = id;
+                    costs[id] = Double.POSITIVE_INFINITY;
+                }
+            }
+        }
+        reachable -= size;
+        nodesUpdated += size;
+        return Arrays.copyOf(subtree, size);
+    }
+
+    /**
+     * Gives node the given cost and predecessor if that is cheaper than its
+     * current path, and queues it to propagate the new cost to its children.
+     * @return true iff node got a cheaper path
+     */
+    private boolean relax(T node, double cost, int pred) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            id = known++;
+            if (id == nodes.length) {
+                int capacity = Math.max(2 * id, graph.size());
+                nodes = Arrays.copyOf(nodes, capacity);
+                costs = Arrays.copyOf(costs, capacity);
+                preds = Arrays.copyOf(preds, capacity);
+            }
+            ids.put(node, id);
+            nodes[id] = node;
+            reachable++;
+        } else if (cost >= costs[id]) {
+            return false;
+        } else if (costs[id] == Double.POSITIVE_INFINITY) {
+            reachable++;
+        }
+        nodesUpdated++;
+        costs[id] = cost;
+        preds[id] = pred;
+        heap.insertOrDecrease(id, cost);
+        return true;
+    }
+
+    /**
+     * Settles the queued nodes in order of cost, relaxing their children,
+     * until no cost can decrease any further.
+     */
+    @SuppressWarnings("unchecked")
+    private void propagate() {
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            double cost = costs[u];
+            for (T child : graph.getListChildren((T) nodes[u])) {
+                relax(child, cost + nodeCost.applyAsDouble(child), u);
+            }
+        }
+    }
+
+    /**
+     * Stops updating this from the graph. The paths it holds no longer
+     * reflect edges added afterwards.
+     * @modifies graph
+     * @effects unregisters this from the graph
+     */
+    public void detach() {
+        graph.removeEdgeListener(listener);
+    }
+
+    /**
+     * Returns whether there is a path from a start node to the given node.
+     * @return true iff node is reachable from a start node
+     */
+    public boolean isReached(T node) {
+        return getCost(node) < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the cost of the shortest path to the given node.
+     * @return the cost of the shortest path from any start node to node,
+     *         or Double.POSITIVE_INFINITY if node is not reachable
+     */
+    public double getCost(T node) {
+        Integer id = ids.get(node);
+        return id == null ? Double.POSITIVE_INFINITY : costs[id];
+    }
+
+    /**
+     * Returns the shortest path to the given node.
+     * @return the shortest path from any start node to node,
+     *         or null if node is not reachable
+     */
+    @SuppressWarnings("unchecked")
+    public P getPath(T node) {
+        Integer id = ids.get(node);
+        if (id == null || costs[id] == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        int[] stack = new int[8];
+        int top = 0;
+        int v = id;
+        while (preds[v] >= 0) {
+            if (top == stack.length) {
+                stack = Arrays.copyOf(stack, 2 * top);
+            }
+            stack[top++] = v;
+            v = preds[v];
+        }
+        P path = startPaths.get((T) nodes[v]);
+        while (top > 0) {
+            path = path.extend((T) nodes[stack[--top]]);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the shortest path to any of the given goal nodes.
+     * @requires goalNodes != null
+     * @return the shortest path from any start node to any goal node,
+     *         or null if no goal node is reachable
+     */
+    public P getPath(Set<T> goalNodes) {
+        if (goalNodes == null) {
+            throw new IllegalArgumentException("Goal nodes cannot be null");
+        }
+        T best = null;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (T goal : goalNodes) {
+            double cost = getCost(goal);
+            if (cost < bestCost) {
+                best = goal;
+                bestCost = cost;
+            }
+        }
+        return best == null ? null : getPath(best);
+    }
+
+    /**
+     * Returns the number of nodes reachable from the start nodes.
+     * @return the number of reached nodes
+     */
+    public int size() {
+        return reachable;
+    }
+
+    /**
+     * Returns how many times a node was reached, got a cheaper path or lost
+     * its path because the graph changed, which is the work the repairs did
+     * beyond dismissing edges.
+     * @return the number of changed costs since this was created
+     */
+    public long getNodesUpdated() {
+        return nodesUpdated;
+    }
+}
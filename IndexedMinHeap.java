@@ -0,0 +1,179 @@
+package homework2;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int ids ordered by double keys, which supports
+ * decreasing the key of an id that is already in the heap.
+ * All storage is in primitive arrays which are reused after clear().
+ */
+final class IndexedMinHeap {
+
+	// RepInvariant:
+	//   0 <= size <= heap.length &&
+	//   pos[heap[i]] == i for every 0 <= i < size &&
+	//   pos[id] == -1 for every id which is not in heap[0..size) &&
+	//   keys[heap[(i-1)/2]] <= keys[heap[i]] for every 0 < i < size
+
+	private int[] heap;
+	private int[] pos;
+	private double[] keys;
+	private int size;
+
+
+	/**
+	 * Creates an empty heap which can hold ids in [0, capacity).
+	 */
+	IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		pos = new int[capacity];
+		keys = new double[capacity];
+		Arrays.fill(pos, -1);
+	}
+
+
+	/**
+	 * Makes sure ids in [0, capacity) can be held. Empties the heap if it
+	 * has to grow.
+	 */
+	void ensureCapacity(int capacity) {
+		if (capacity > pos.length) {
+			int newCapacity = Math.max(capacity, 2 * pos.length);
+			heap = new int[newCapacity];
+			pos = new int[newCapacity];
+			keys = new double[newCapacity];
+			Arrays.fill(pos, -1);
+			size = 0;
+		}
+	}
+
+
+	/**
+	 * Makes sure ids in [0, capacity) can be held, keeping the ids already
+	 * in the heap.
+	 */
+	void grow(int capacity) {
+		if (capacity > pos.length) {
+			int newCapacity = Math.max(capacity, 2 * pos.length);
+			int oldCapacity = pos.length;
+			heap = Arrays.copyOf(heap, newCapacity);
+			pos = Arrays.copyOf(pos, newCapacity);
+			keys = Arrays.copyOf(keys, newCapacity);
+			Arrays.fill(pos, oldCapacity, newCapacity, -1);
+		}
+	}
+
+
+	/**
+	 * Removes all ids from the heap, in time proportional to its size.
+	 */
+	void clear() {
+		for (int i = 0; i < size; i++) {
+			pos[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+
+	int size() {
+		return size;
+	}
+
+
+	boolean contains(int id) {
+		return pos[id] >= 0;
+	}
+
+
+	/**
+	 * Returns the key of the minimal id.
+	 * @requires !isEmpty()
+	 */
+	double minKey() {
+		return keys[heap[0]];
+	}
+
+
+	/**
+	 * Inserts id with the given key, or lowers its key if id is already in
+	 * the heap with a larger key.
+	 * @return true iff the heap changed
+	 */
+	boolean insertOrDecrease(int id, double key) {
+		int i = pos[id];
+		if (i < 0) {
+			i = size++;
+			heap[i] = id;
+			pos[id] = i;
+		} else if (key >= keys[id]) {
+			return false;
+		}
+		keys[id] = key;
+		siftUp(i);
+		return true;
+	}
+
+
+	/**
+	 * Removes and returns the id with the minimal key.
+	 * @requires !isEmpty()
+	 */
+	int poll() {
+		int min = heap[0];
+		pos[min] = -1;
+		size--;
+		if (size > 0) {
+			int last = heap[size];
+			heap[0] = last;
+			pos[last] = 0;
+			siftDown(0);
+		}
+		return min;
+	}
+
+
+	private void siftUp(int i) {
+		int id = heap[i];
+		double key = keys[id];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			int parentId = heap[parent];
+			if (keys[parentId] <= key) {
+				break;
+			}
+			heap[i] = parentId;
+			pos[parentId] = i;
+			i = parent;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+
+
+	private void siftDown(int i) {
+		int id = heap[i];
+		double key = keys[id];
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			int right = child + 1;
+			if (right < size && keys[heap[right]] < keys[heap[child]]) {
+				child = right;
+			}
+			int childId = heap[child];
+			if (key <= keys[childId]) {
+				break;
+			}
+			heap[i] = childId;
+			pos[childId] = i;
+			i = child;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+}
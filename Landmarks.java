@@ -0,0 +1,251 @@
+package homework2;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Landmarks holds the preprocessing of ALT (A*, Landmarks, Triangle
+ * inequality) for a graph: the distances from and to a few landmark nodes,
+ * from which lower bounds on the distance between any two nodes follow.
+ * <p>
+ * Distances are measured in node costs: the distance from a to b is the cost
+ * of the cheapest path from a to b, not counting a itself. For every landmark
+ * L and nodes v, t the triangle inequality gives
+ * dist(v,t) >= dist(L,t) - dist(L,v) and dist(v,t) >= dist(v,L) - dist(t,L).
+ * <p>
+ * The tables describe the graph as it was when they were built. Once the
+ * graph is changed they are no longer valid, and heuristicTo refuses to use
+ * them until rebuild() is called.
+ *
+ * @param <T> the type of nodes in the graph
+ */
+public class Landmarks<T extends Comparable<? super T>> {
+
+    /**
+     * Representation Invariant:
+     * - graph != null && nodeCost != null && compact != null && landmarks != null
+     * - fromLandmark.length == toLandmark.length == landmarks.length * compact.size()
+     * Abstraction Function:
+     * for the i-th landmark L and node id v,
+     * fromLandmark[i * n + v] == dist(L, v) and toLandmark[i * n + v] == dist(v, L),
+     * where n = compact.size() and unreachable distances are infinite,
+     * as long as graph.getVersion() == version
+     */
+
+    private final Graph<T> graph;
+    private final ToDoubleFunction<? super T> nodeCost;
+    private final int count;
+    private CompactGraph<T> compact;
+    private int[] landmarks;
+    private double[] fromLandmark;
+    private double[] toLandmark;
+    private long version;
+    private long preprocessingNanos;
+
+    /**
+     * Checks the representation invariant.
+     */
+    private void checkRep() {
+        assert graph != null && nodeCost != null : "graph and node cost cannot be null";
+        assert compact != null && landmarks != null : "tables must be built";
+        assert fromLandmark.length == landmarks.length * compact.size() &&
+                toLandmark.length == fromLandmark.length : "there must be a distance per landmark and node";
+    }
+
+    /**
+     * Selects up to count landmarks in graph and computes their distance tables.
+     * @param graph the graph to preprocess
+     * @param count the number of landmarks to select
+     * @param nodeCost the cost added to a path when it is extended with a node
+     * @requires graph != null && count > 0 && nodeCost != null
+     * @effects creates Landmarks for the current state of graph
+     */
+    public Landmarks(Graph<T> graph, int count, ToDoubleFunction<? super T> nodeCost) {
+        if (graph == null || nodeCost == null) {
+            throw new IllegalArgumentException("Graph and node cost cannot be null");
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("There must be at least one landmark");
+        }
+        this.graph = graph;
+        this.nodeCost = nodeCost;
+        this.count = count;
+        rebuild();
+    }
+
+    /**
+     * Recomputes the landmarks and their tables for the current state of the graph.
+     * @modifies this
+     * @effects makes this valid for the current state of the graph
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        compact = graph.freeze();
+        version = graph.getVersion();
+        int n = compact.size();
+        double[] cost = new double[n];
+        for (int v = 0; v < n; v++) {
+            cost[v] = nodeCost.applyAsDouble(compact.nodeAt(v));
+        }
+
+        int k = Math.min(count, n);
+        landmarks = new int[k];
+        fromLandmark = new double[k * n];
+        toLandmark = new double[k * n];
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        // how far each node is from the landmarks chosen so far
+        double[] separation = new double[n];
+        Arrays.fill(separation, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < k; i++) {
+            // pick the node farthest from all landmarks so far (unreachable
+            // nodes first), so the landmarks spread over the graph
+            int landmark = 0;
+            for (int v = 1; v < n; v++) {
+                if (separation[v] > separation[landmark]) {
+                    landmark = v;
+                }
+            }
+            landmarks[i] = landmark;
+            distances(landmark, true, cost, heap, fromLandmark, i * n);
+            distances(landmark, false, cost, heap, toLandmark, i * n);
+            for (int v = 0; v < n; v++) {
+                separation[v] = Math.min(separation[v],
+                        fromLandmark[i * n + v] + toLandmark[i * n + v]);
+            }
+        }
+        preprocessingNanos = System.nanoTime() - start;
+        checkRep();
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from source, over children if forward and
+     * over parents otherwise, writing the distances to dist[offset..offset+n).
+     */
+    private void distances(int source, boolean forward, double[] cost,
+                           IndexedMinHeap heap, double[] dist, int offset) {
+        int n = compact.size();
+        Arrays.fill(dist, offset, offset + n, Double.POSITIVE_INFINITY);
+        dist[offset + source] = 0;
+        heap.clear();
+        heap.insertOrDecrease(source, 0);
+        while (!heap.isEmpty()) {
+            double d = heap.minKey();
+            int u = heap.poll();
+            if (forward) {
+                for (int e = compact.childrenStart(u); e < compact.childrenEnd(u); e++) {
+                    int v = compact.childAt(e);
+                    double through = d + cost[v];
+                    if (through < dist[offset + v]) {
+                        dist[offset + v] = through;
+                        heap.insertOrDecrease(v, through);
+                    }
+                }
+            } else {
+                // u is reached backward, so its parents are one node (u) further away
+                double through = d + cost[u];
+                for (int e = compact.parentsStart(u); e < compact.parentsEnd(u); e++) {
+                    int v = compact.parentAt(e);
+                    if (through < dist[offset + v]) {
+                        dist[offset + v] = through;
+                        heap.insertOrDecrease(v, through);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the tables still describe the graph.
+     * @return true iff the graph was not changed since the tables were built
+     */
+    public boolean isValid() {
+        return version == graph.getVersion();
+    }
+
+    /**
+     * Returns the graph these landmarks were computed for.
+     */
+    public Graph<T> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the selected landmark nodes.
+     * @return a list of the landmark nodes
+     */
+    public List<T> getLandmarks() {
+        List<T> nodes = new ArrayList<>(landmarks.length);
+        for (int landmark : landmarks) {
+            nodes.add(compact.nodeAt(landmark));
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns how long the last (re)build took.
+     * @return the preprocessing time in nanoseconds
+     */
+    public long getPreprocessingNanos() {
+        return preprocessingNanos;
+    }
+
+    /**
+     * Returns the size of the distance tables of a single landmark.
+     * @return the number of bytes the tables take per landmark
+     */
+    public long getBytesPerLandmark() {
+        return 2L * Double.BYTES * compact.size();
+    }
+
+    /**
+     * Returns an admissible Heuristic towards the given goals: for every node,
+     * the best landmark lower bound on its distance to the nearest goal.
+     * @param goalNodes the goal nodes
+     * @requires goalNodes != null
+     * @return a Heuristic for A* searches towards goalNodes
+     * @throws IllegalStateException if the graph was changed since the tables were built
+     */
+    public Heuristic<T> heuristicTo(Set<T> goalNodes) {
+        if (!isValid()) {
+            throw new IllegalStateException("The graph was changed since the landmarks were built");
+        }
+        final int n = compact.size();
+        final int[] goals = new int[goalNodes.size()];
+        int goalCount = 0;
+        for (T goalNode : goalNodes) {
+            int id = compact.idOf(goalNode);
+            if (id >= 0) {
+                goals[goalCount++] = id;
+            }
+        }
+        final int goalsFound = goalCount;
+        return node -> {
+            int v = compact.idOf(node);
+            if (v < 0) {
+                return 0;
+            }
+            double nearest = Double.POSITIVE_INFINITY;
+            for (int g = 0; g < goalsFound; g++) {
+                int t = goals[g];
+                double bound = 0;
+                for (int i = 0; i < landmarks.length; i++) {
+                    int base = i * n;
+                    bound = Math.max(bound, difference(fromLandmark[base + t], fromLandmark[base + v]));
+                    bound = Math.max(bound, difference(toLandmark[base + v], toLandmark[base + t]));
+                }
+                nearest = Math.min(nearest, bound);
+            }
+            return nearest == Double.POSITIVE_INFINITY ? 0 : nearest;
+        };
+    }
+
+    /**
+     * Returns a - b as a lower bound, where an unknown (infinite) b gives no bound.
+     */
+    private static double difference(double a, double b) {
+        if (b == Double.POSITIVE_INFINITY) {
+            return 0;
+        }
+        return a - b;
+    }
+}
@@ -0,0 +1,136 @@
+package homework2;
+
+/**
+ * A map from names to values which can also be looked up by a range of a
+ * char array, so a name read from input can be found without first creating
+ * a String for it. Keys are kept in an open-addressing table with linear
+ * probing; the hash of a key is String.hashCode, computed over the chars.
+ */
+final class NameTable<V> {
+
+	// RepInvariant:
+	//   keys.length == values.length == hashes.length is a power of two &&
+	//   size < keys.length * 3 / 4 &&
+	//   every non-null keys[i] is distinct, hashes[i] == keys[i].hashCode(),
+	//   values[i] != null, and keys[i] is found by probing from its hash
+
+	private String[] keys = new String[16];
+	private Object[] values = new Object[16];
+	private int[] hashes = new int[16];
+	private int size;
+
+
+	/**
+	 * Returns the value of the given name, or null if it has none.
+	 */
+	V get(String name) {
+		return name == null ? null : get(name, name.hashCode());
+	}
+
+
+	/**
+	 * Returns the value of the name chars[from..to), or null if it has none.
+	 */
+	V get(char[] chars, int from, int to) {
+		int hash = 0;
+		for (int i = from; i < to; i++) {
+			hash = 31 * hash + chars[i];
+		}
+		int mask = keys.length - 1;
+		for (int i = spread(hash) & mask; keys[i] != null; i = (i + 1) & mask) {
+			if (hashes[i] == hash && matches(keys[i], chars, from, to)) {
+				return value(i);
+			}
+		}
+		return null;
+	}
+
+
+	boolean containsKey(String name) {
+		return get(name) != null;
+	}
+
+
+	/**
+	 * Maps name to value, replacing any previous value of name.
+	 */
+	void put(String name, V value) {
+		if (name == null || value == null) {
+			throw new IllegalArgumentException("Names and values cannot be null");
+		}
+		int hash = name.hashCode();
+		int mask = keys.length - 1;
+		int i = spread(hash) & mask;
+		for (; keys[i] != null; i = (i + 1) & mask) {
+			if (hashes[i] == hash && keys[i].equals(name)) {
+				values[i] = value;
+				return;
+			}
+		}
+		keys[i] = name;
+		values[i] = value;
+		hashes[i] = hash;
+		size++;
+		if (size >= keys.length * 3 / 4) {
+			grow();
+		}
+	}
+
+
+	private V get(String name, int hash) {
+		int mask = keys.length - 1;
+		for (int i = spread(hash) & mask; keys[i] != null; i = (i + 1) & mask) {
+			if (hashes[i] == hash && keys[i].equals(name)) {
+				return value(i);
+			}
+		}
+		return null;
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private V value(int i) {
+		return (V) values[i];
+	}
+
+
+	private static boolean matches(String key, char[] chars, int from, int to) {
+		if (key.length() != to - from) {
+			return false;
+		}
+		for (int i = from; i < to; i++) {
+			if (key.charAt(i - from) != chars[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+
+	private void grow() {
+		String[] oldKeys = keys;
+		Object[] oldValues = values;
+		int[] oldHashes = hashes;
+		int capacity = 2 * oldKeys.length;
+		keys = new String[capacity];
+		values = new Object[capacity];
+		hashes = new int[capacity];
+		int mask = capacity - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != null) {
+				int i = spread(oldHashes[j]) & mask;
+				while (keys[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+				hashes[i] = oldHashes[j];
+			}
+		}
+	}
+}
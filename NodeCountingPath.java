@@ -1,8 +1,8 @@
 package homework2;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.function.Consumer;
 
 
 /**
@@ -21,7 +21,9 @@ public class NodeCountingPath implements Path<WeightedNode, NodeCountingPath> {
 	// RepInvariant:
   	//   (node != null) &&
   	//   (path == null) ==> (cost == 1) &&
-  	//   (path != null) ==> (cost == 1 + path.cost)
+  	//   (path != null) ==> (cost == 1 + path.cost) &&
+  	//   (path == null) ==> (hash == node.hashCode()) &&
+  	//   (path != null) ==> (hash == node.hashCode() + 13 * path.hash)
   	//
 
   	// Abstraction Function:
@@ -58,6 +60,11 @@ public class NodeCountingPath implements Path<WeightedNode, NodeCountingPath> {
   	 */
   	private final int cost;
 
+  	/**
+  	 * The hash code of this path, which depends on all of its nodes.
+  	 */
+  	private final int hash;
+
 
   	/**
      * Creates a NodeCountingPath containing one node.
@@ -84,10 +91,13 @@ public class NodeCountingPath implements Path<WeightedNode, NodeCountingPath> {
     	this.node = node;
     	this.path = path;
 
-    	if (path != null)
+    	if (path != null) {
       		this.cost = 1 + path.cost;
-    	else
+      		this.hash = node.hashCode() + 13 * path.hash;
+    	} else {
       		this.cost = 1;
+      		this.hash = node.hashCode();
+    	}
   	}
 
 	
@@ -112,19 +122,59 @@ public class NodeCountingPath implements Path<WeightedNode, NodeCountingPath> {
   	}
 
 
+  	/**
+  	 * Returns the number of nodes in this path.
+  	 * @return the length of this.elements
+  	 */
+  	public int length() {
+  		return this.cost;
+  	}
+
+
+  	/**
+  	 * Returns the elements of this path in a new array. The array is not
+  	 * kept, so walking the prefixes of a long path does not keep an array
+  	 * for each of them.
+  	 */
+  	private WeightedNode[] elements() {
+  		WeightedNode[] result = new WeightedNode[length()];
+  		int i = result.length;
+  		for (NodeCountingPath curPath = this; curPath != null; curPath = curPath.path) {
+  			result[--i] = curPath.node;
+  		}
+  		return result;
+  	}
+
+
+  	/**
+  	 * Returns the elements of this path in a new array.
+  	 * @return an array of this.elements in order from start to end
+  	 */
+  	public WeightedNode[] toArray() {
+  		return elements();
+  	}
+
+
+  	/**
+  	 * Performs the given action for each element of this path in order from
+  	 * start to end, without creating an Iterator.
+  	 * @requires action != null
+  	 */
+  	public void forEachInOrder(Consumer<? super WeightedNode> action) {
+  		for (WeightedNode wn : elements()) {
+  			action.accept(wn);
+  		}
+  	}
+
+
   	/**
      * Returns an Iterator over the elements in the path .
      * @return an Iterator over the elements in the path in order from start
      *         to end.
      */
   	public Iterator<WeightedNode> iterator() {
-  		// reverse the linked list, so that elements are returned in order
-  		// from start to end of the path.
-  		List<WeightedNode> nodes = new LinkedList<WeightedNode>();
-  		for (NodeCountingPath curNode = this; curNode != null; curNode = curNode.path) {
-  			nodes.add(0, curNode.getEnd());
-  		}
-  		return nodes.iterator();
+  		// Arrays.asList does not support remove, so the array cannot change
+  		return Arrays.asList(elements()).iterator();
   	}
 
 
@@ -135,10 +185,10 @@ public class NodeCountingPath implements Path<WeightedNode, NodeCountingPath> {
 	 * 		   [NodeCountingPath: node1, node2, node3, ...].
 	 */
   	public String toString() {
-    	StringBuffer buff = new StringBuffer();
+    	StringBuilder buff = new StringBuilder(32 + 16 * length());
     	buff.append("[NodeCountingPath: ");
     	boolean first = true;
-    	for (WeightedNode wn : this) {
+    	for (WeightedNode wn : elements()) {
     		if (first)
     			first = false;
     		else
@@ -164,13 +214,23 @@ public class NodeCountingPath implements Path<WeightedNode, NodeCountingPath> {
 
 	/**
 	 * Standard equality operation.
+	 * Paths which differ in length (their cost) or hash code are told apart at
+	 * once; otherwise the nodes are compared from the end, until the two
+	 * paths reach a common prefix they share.
      * @return true iff wnp.elements is the same sequence as this.elements
      */
   	public boolean equals(NodeCountingPath wnp) {
-    	return (wnp != null) &&
-      		   this.node.equals(wnp.node) &&
-      		   (this.path == null ?
-      		   		wnp.path == null : this.path.equals(wnp.path));
+  		if (wnp == null || this.cost != wnp.cost ||
+  				this.hash != wnp.hash) {
+  			return false;
+  		}
+  		// both paths have the same length, so they reach their starts together
+  		for (NodeCountingPath a = this, b = wnp; a != b; a = a.path, b = b.path) {
+  			if (!a.node.equals(b.node)) {
+  				return false;
+  			}
+  		}
+  		return true;
   	}
 
 
@@ -179,7 +239,7 @@ public class NodeCountingPath implements Path<WeightedNode, NodeCountingPath> {
 	 * @return a hash code value for this.
 	 */
   	public int hashCode() {
-    	return node.hashCode() + (this.path == null ? 0 : 13*path.hashCode());
+    	return hash;
   	}
   	
   	
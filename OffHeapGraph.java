@@ -0,0 +1,469 @@
+package homework2;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * An immutable directed graph of WeightedNodes which keeps all of its data
+ * outside the Java heap, so graphs with tens of millions of edges add nothing
+ * for the garbage collector to trace.
+ * <p>
+ * The layout is the one of CompactGraph and GraphFile: node ids follow the
+ * sorted order of the nodes, and the children and parents of every node are
+ * stored in compressed sparse row form. Every array is an IntBuffer over a
+ * direct ByteBuffer (or over a mapped file, see GraphFile.readOffHeap):
+ * <pre>
+ *   costs[n]                  the cost of every node
+ *   nameOffsets[n + 1]        node i's name is the UTF-8 names[nameOffsets[i] .. nameOffsets[i+1])
+ *   offsets[n + 1], targets   the children of every node, increasing
+ *   parentOffsets[n + 1], parentTargets  the parents of every node, increasing
+ *   table                     an open-addressing hash table from names to id + 1
+ * </pre>
+ * Each array is limited to 2^31 - 1 bytes, which allows some 500 million
+ * edges.
+ * <p>
+ * WeightedNodePathFinder searches it by id, reading the children and costs
+ * straight from the buffers, so a search creates no nodes but those of the
+ * path it returns. As a DirectedGraph it can also be searched by PathFinder,
+ * but the WeightedNodes it returns are created whenever they are asked for,
+ * which costs a String and a WeightedNode per child of every settled node.
+ */
+public final class OffHeapGraph implements DirectedGraph<WeightedNode>, IdGraph<WeightedNode> {
+
+    /**
+     * Representation Invariant:
+     * costs, nameOffsets, names, offsets, targets, parentOffsets,
+     * parentTargets and table are not null
+     * costs.limit() == size, and nameOffsets, offsets and parentOffsets have
+     * size + 1 entries, start at 0, never decrease, and end at names.limit(),
+     * edgeCount and edgeCount respectively
+     * the nodes are sorted by WeightedNode.compareTo and distinct
+     * every target is a valid id, and the targets of each node are strictly
+     * increasing; i is a parent target of j iff j is a target of i
+     * table.limit() is a power of two greater than size * 4 / 3, and its
+     * non-zero entries are exactly id + 1 for every id, each found by probing
+     * linearly from the hash of its name
+     */
+
+    /**
+     * Abstraction Function:
+     * An OffHeapGraph is a directed graph G = (V, E)
+     * where V = {new WeightedNode(name(i), costs[i]) | 0 <= i < size}
+     * and E = {(node i, node targets[k]) | offsets[i] <= k < offsets[i+1]}
+     * (parentOffsets and parentTargets are a reverse index of E, and table
+     * an index of V by name)
+     */
+
+    private final int size;
+    private final int edgeCount;
+    private final IntBuffer costs;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer names;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer parentOffsets;
+    private final IntBuffer parentTargets;
+    private final IntBuffer table;
+
+    /**
+     * Checks the Representation Invariant
+     */
+    private void checkRep() {
+        assert costs.limit() == size && nameOffsets.limit() == size + 1 : "every node must have a cost and a name";
+        assert offsets.limit() == size + 1 && offsets.get(size) == edgeCount : "offsets must cover targets";
+        assert parentOffsets.limit() == size + 1 && parentTargets.limit() == edgeCount :
+                "every edge must appear in the reverse index";
+        assert table.limit() > size * 4L / 3 : "the name table must have room";
+    }
+
+    /**
+     * Copies the given graph outside the heap. Only the sorted node list of
+     * graph and one encoded name at a time are held on the heap meanwhile.
+     * @requires graph != null
+     * @effects creates an OffHeapGraph with the same nodes and edges as graph
+     */
+    public OffHeapGraph(DirectedGraph<WeightedNode> graph) {
+        this(Copy.of(graph));
+    }
+
+    private OffHeapGraph(Copy copy) {
+        this(copy.costs, copy.nameOffsets, copy.names, copy.offsets, copy.targets);
+    }
+
+    /**
+     * Creates an OffHeapGraph over the given buffers, which it takes
+     * ownership of. The parents and the name table are computed from them.
+     * @requires costs, nameOffsets, names, offsets and targets satisfy the
+     *           representation invariant, with their positions at 0
+     * @effects creates an OffHeapGraph with the given nodes and edges
+     */
+    OffHeapGraph(IntBuffer costs, IntBuffer nameOffsets, ByteBuffer names,
+                 IntBuffer offsets, IntBuffer targets) {
+        this.size = costs.limit();
+        this.edgeCount = targets.limit();
+        this.costs = costs;
+        this.nameOffsets = nameOffsets;
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+
+        // scanning parents in increasing id order keeps each parent list sorted
+        parentOffsets = allocate(size + 1);
+        parentTargets = allocate(edgeCount);
+        for (int k = 0; k < edgeCount; k++) {
+            int target = targets.get(k);
+            parentOffsets.put(target + 1, parentOffsets.get(target + 1) + 1);
+        }
+        for (int i = 0; i < size; i++) {
+            parentOffsets.put(i + 1, parentOffsets.get(i + 1) + parentOffsets.get(i));
+        }
+        IntBuffer next = allocate(size);
+        for (int i = 0; i < size; i++) {
+            next.put(i, parentOffsets.get(i));
+        }
+        for (int i = 0; i < size; i++) {
+            for (int k = offsets.get(i), end = offsets.get(i + 1); k < end; k++) {
+                int target = targets.get(k);
+                int slot = next.get(target);
+                parentTargets.put(slot, i);
+                next.put(target, slot + 1);
+            }
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(16, size + size / 3)) << 1;
+        table = allocate(capacity);
+        for (int id = 0; id < size; id++) {
+            int slot = nameHash(id) & (capacity - 1);
+            while (table.get(slot) != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            table.put(slot, id + 1);
+        }
+        checkRep();
+    }
+
+    /**
+     * The buffers of a graph being copied outside the heap.
+     */
+    private static final class Copy {
+        IntBuffer costs;
+        IntBuffer nameOffsets;
+        ByteBuffer names;
+        IntBuffer offsets;
+        IntBuffer targets;
+
+        static Copy of(DirectedGraph<WeightedNode> graph) {
+            if (graph == null) {
+                throw new IllegalArgumentException("Graph cannot be null");
+            }
+            List<WeightedNode> nodes = graph.getListNodes();
+            int n = nodes.size();
+            Copy copy = new Copy();
+            copy.costs = allocate(n);
+            copy.nameOffsets = allocate(n + 1);
+            copy.names = ByteBuffer.allocateDirect(Math.max(16, 8 * n));
+            for (int i = 0; i < n; i++) {
+                byte[] name = nodes.get(i).getName().getBytes(StandardCharsets.UTF_8);
+                if (copy.names.remaining() < name.length) {
+                    copy.names = grow(copy.names, name.length);
+                }
+                copy.names.put(name);
+                copy.costs.put(i, nodes.get(i).getCost());
+                copy.nameOffsets.put(i + 1, copy.names.position());
+            }
+            copy.names.flip();
+
+            // children are sorted, so their ids come out increasing; children
+            // which are not in the node list are dropped, as in CompactGraph
+            copy.offsets = allocate(n + 1);
+            ByteBuffer targets = ByteBuffer.allocateDirect(Math.max(16, 4 * n)).order(ByteOrder.nativeOrder());
+            for (int i = 0; i < n; i++) {
+                for (WeightedNode child : graph.getListChildren(nodes.get(i))) {
+                    int id = Collections.binarySearch(nodes, child);
+                    if (id >= 0) {
+                        if (targets.remaining() < Integer.BYTES) {
+                            targets = grow(targets, Integer.BYTES);
+                        }
+                        targets.putInt(id);
+                    }
+                }
+                copy.offsets.put(i + 1, targets.position() / Integer.BYTES);
+            }
+            targets.flip();
+            copy.targets = targets.asIntBuffer();
+            return copy;
+        }
+    }
+
+    /**
+     * Returns a new zeroed IntBuffer of the given length outside the heap.
+     */
+    private static IntBuffer allocate(int length) {
+        return ByteBuffer.allocateDirect(length * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * Returns a copy of buffer with room for at least extra more bytes.
+     */
+    private static ByteBuffer grow(ByteBuffer buffer, int extra) {
+        long capacity = Math.max(2L * buffer.capacity(), (long) buffer.position() + extra);
+        if (capacity > Integer.MAX_VALUE) {
+            capacity = Integer.MAX_VALUE;
+            if (buffer.position() + (long) extra > capacity) {
+                throw new IllegalArgumentException("The graph is too large for a buffer");
+            }
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity).order(buffer.order());
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    /**
+     * Returns the hash of the UTF-8 name of node id, spread over the low bits.
+     */
+    private int nameHash(int id) {
+        int hash = 0;
+        for (int i = nameOffsets.get(id), end = nameOffsets.get(id + 1); i < end; i++) {
+            hash = 31 * hash + names.get(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int nameHash(byte[] name) {
+        int hash = 0;
+        for (byte b : name) {
+            hash = 31 * hash + b;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the id of the given node.
+     * @return the id of node, or -1 if node is not in this graph
+     */
+    public int idOf(WeightedNode node) {
+        if (node == null) {
+            return -1;
+        }
+        byte[] name = node.getName().getBytes(StandardCharsets.UTF_8);
+        int mask = table.limit() - 1;
+        for (int slot = nameHash(name) & mask; table.get(slot) != 0; slot = (slot + 1) & mask) {
+            int id = table.get(slot) - 1;
+            if (costs.get(id) == node.getCost() && nameEquals(id, name)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private boolean nameEquals(int id, byte[] name) {
+        int start = nameOffsets.get(id);
+        if (nameOffsets.get(id + 1) - start != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (names.get(start + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the node with the given id, which is created by this call.
+     * @requires 0 <= id < size()
+     * @return the node whose id is id
+     */
+    public WeightedNode nodeAt(int id) {
+        int start = nameOffsets.get(id);
+        byte[] name = new byte[nameOffsets.get(id + 1) - start];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = names.get(start + i);
+        }
+        return new WeightedNode(new String(name, StandardCharsets.UTF_8), costs.get(id));
+    }
+
+    /**
+     * Returns the cost of the node with the given id.
+     * @requires 0 <= id < size()
+     */
+    public int costOf(int id) {
+        return costs.get(id);
+    }
+
+    /**
+     * Returns the index in the targets of the first child of a node.
+     * @requires 0 <= id < size()
+     */
+    public int childrenStart(int id) {
+        return offsets.get(id);
+    }
+
+    /**
+     * Returns the index in the targets one past the last child of a node.
+     * @requires 0 <= id < size()
+     */
+    public int childrenEnd(int id) {
+        return offsets.get(id + 1);
+    }
+
+    /**
+     * Returns the id of the child stored at the given index of the targets.
+     * @requires 0 <= index < edgeCount()
+     */
+    public int childAt(int index) {
+        return targets.get(index);
+    }
+
+    /**
+     * Returns the index in the parent targets of the first parent of a node.
+     * @requires 0 <= id < size()
+     */
+    public int parentsStart(int id) {
+        return parentOffsets.get(id);
+    }
+
+    /**
+     * Returns the index in the parent targets one past the last parent of a node.
+     * @requires 0 <= id < size()
+     */
+    public int parentsEnd(int id) {
+        return parentOffsets.get(id + 1);
+    }
+
+    /**
+     * Returns the id of the parent stored at the given index of the parent targets.
+     * @requires 0 <= index < edgeCount()
+     */
+    public int parentAt(int index) {
+        return parentTargets.get(index);
+    }
+
+    /**
+     * Returns whether there is an edge between the nodes with the given ids.
+     * @requires 0 <= parent < size() and 0 <= child < size()
+     */
+    public boolean containsEdge(int parent, int child) {
+        int low = offsets.get(parent);
+        int high = offsets.get(parent + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int target = targets.get(mid);
+            if (target < child) {
+                low = mid + 1;
+            } else if (target > child) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of edges in this graph.
+     * @return the number of edges in this graph
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns a sorted list of all nodes in the graph, all of which are
+     * created by this call.
+     */
+    public List<WeightedNode> getListNodes() {
+        List<WeightedNode> nodes = new ArrayList<>(size);
+        for (int id = 0; id < size; id++) {
+            nodes.add(nodeAt(id));
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns a sorted list of the children for the given node.
+     * @requires node exists in the graph and node != null
+     */
+    public List<WeightedNode> getListChildren(WeightedNode node) {
+        int id = existing(node);
+        return copy(targets, offsets.get(id), offsets.get(id + 1));
+    }
+
+    /**
+     * Returns a sorted list of the parents for the given node.
+     * @requires node exists in the graph and node != null
+     */
+    public List<WeightedNode> getListParents(WeightedNode node) {
+        int id = existing(node);
+        return copy(parentTargets, parentOffsets.get(id), parentOffsets.get(id + 1));
+    }
+
+    private int existing(WeightedNode node) {
+        int id = idOf(node);
+        if (id < 0) {
+            throw new IllegalArgumentException("The node is not in the graph");
+        }
+        return id;
+    }
+
+    /**
+     * Returns a list of the nodes whose ids are in ids[from..to).
+     */
+    private List<WeightedNode> copy(IntBuffer ids, int from, int to) {
+        List<WeightedNode> nodes = new ArrayList<>(to - from);
+        for (int k = from; k < to; k++) {
+            nodes.add(nodeAt(ids.get(k)));
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns whether this graph contains the given node.
+     * @param node the node to check
+     * @return true if this graph contains node, false otherwise
+     */
+    public boolean containsNode(WeightedNode node) {
+        return idOf(node) >= 0;
+    }
+
+    /**
+     * Returns whether this graph contains an edge from parent to child.
+     * @param parent the parent node
+     * @param child the child node
+     * @return true if there is an edge from parent to child, false otherwise
+     */
+    public boolean containsEdge(WeightedNode parent, WeightedNode child) {
+        int parentId = idOf(parent);
+        int childId = idOf(child);
+        return parentId >= 0 && childId >= 0 && containsEdge(parentId, childId);
+    }
+
+    /**
+     * Returns the number of nodes in this graph.
+     * @return the number of nodes in this graph
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether this graph is empty.
+     * @return true if this graph contains no nodes, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the modification version of this graph. An OffHeapGraph never
+     * changes, so its version is always 0.
+     * @return 0
+     */
+    public long getVersion() {
+        return 0;
+    }
+}
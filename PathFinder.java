@@ -1,6 +1,7 @@
 package homework2;
 
 import java.util.*;
+import java.util.function.ToDoubleFunction;
 
 /**
  * PathFinder provides functionality to find the shortest path in a node-weighted graph.
@@ -13,54 +14,280 @@ public class PathFinder<T extends Comparable<? super T>> {
     /**
      * Representation Invariant:
      * - graph != null
+     * - cache == null || cache.size() <= cacheCapacity
      * Abstraction Function:
      * PathFinder represents a utility class for finding shortest paths
      * in node-weighted directed graphs using a greedy algorithm.
+     * If cache != null, it maps recent queries to their results (NO_PATH
+     * standing for null) for the graph at version cacheVersion.
+     * If matrixFinder != null, it searches a copy of the graph at version
+     * matrixVersion with the node costs of matrixNodeCost.
      */
 
-    private final Graph<T> graph;
+    // the cached result of a search which found no path
+    private static final Object NO_PATH = new Object();
+
+    private final DirectedGraph<T> graph;
+    // the number of nodes settled by the last search
+    private int nodesSettled;
+    // told the statistics of every findShortestPath search, or null
+    private SearchListener listener;
+
+    // recent results in least recently used order, or null if caching is off;
+    // all entries were computed at graph version cacheVersion
+    private final LinkedHashMap<CacheKey, Object> cache;
+    private long cacheVersion;
+    private long cacheHits;
+    private long cacheMisses;
+    private long cacheEvictions;
+    private final int cacheCapacity;
+
+    // the finder of the last distanceMatrix and what it was built from, kept
+    // so that repeated matrices over an unchanged graph do not copy it again
+    private CompactPathFinder<T> matrixFinder;
+    private ToDoubleFunction<? super T> matrixNodeCost;
+    private long matrixVersion;
 
     /**
      * Checks the representation invariant.
      */
     private void checkRep() {
         assert graph != null : "graph cannot be null";
+        assert cache == null || cache.size() <= cacheCapacity : "cache cannot exceed its capacity";
     }
 
     /**
      * Creates a new PathFinder for the given graph.
+     * Any graph representation can be searched, e.g. a Graph or a CompactGraph
+     * obtained from Graph.freeze().
      * @param graph the graph to find paths in
      * @requires graph != null
      * @effects creates a new PathFinder for the given graph
      */
-    public PathFinder(Graph<T> graph) {
+    public PathFinder(DirectedGraph<T> graph) {
         if (graph == null) {
             throw new IllegalArgumentException("Graph cannot be null");
         }
         this.graph = graph;
+        this.cache = null;
+        this.cacheCapacity = 0;
+        checkRep();
+    }
+
+    /**
+     * Creates a new PathFinder for the given graph which caches the results
+     * of up to cacheCapacity findShortestPath queries. When the cache is full
+     * the least recently used result is evicted, and once the graph is
+     * modified (see DirectedGraph.getVersion) all cached results are dropped.
+     * @param graph the graph to find paths in
+     * @param cacheCapacity the maximal number of cached results
+     * @requires graph != null && cacheCapacity > 0
+     * @effects creates a new PathFinder for the given graph with an empty cache
+     */
+    public PathFinder(DirectedGraph<T> graph, final int cacheCapacity) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        if (cacheCapacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.graph = graph;
+        this.cacheCapacity = cacheCapacity;
+        this.cacheVersion = graph.getVersion();
+        this.cache = new LinkedHashMap<CacheKey, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, Object> eldest) {
+                if (size() > cacheCapacity) {
+                    cacheEvictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+        checkRep();
+    }
+
+    /**
+     * The query a cached result answers: the start paths and goal nodes,
+     * regardless of their order, the type of the paths and whether it came
+     * from the single or the multiple start version of findShortestPath.
+     */
+    private static final class CacheKey {
+        private final Set<?> startPaths;
+        private final Set<?> goalNodes;
+        private final Class<?> pathType;
+        private final boolean single;
+        private final int hash;
+
+        CacheKey(Set<?> startPaths, Set<?> goalNodes, Class<?> pathType, boolean single) {
+            this.startPaths = startPaths;
+            this.goalNodes = goalNodes;
+            this.pathType = pathType;
+            this.single = single;
+            this.hash = 31 * (31 * startPaths.hashCode() + goalNodes.hashCode()) +
+                    pathType.hashCode() + (single ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return hash == other.hash && single == other.single && pathType == other.pathType &&
+                    startPaths.equals(other.startPaths) && goalNodes.equals(other.goalNodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Returns the cached result of the given query, or null if it is not cached.
+     * Drops all cached results first if the graph changed since they were computed.
+     * @return the cached result, NO_PATH if the query found no path,
+     *         or null if it is not cached
+     */
+    private Object cacheLookup(CacheKey key) {
+        dropStaleResults();
+        Object result = cache.get(key);
+        if (result == null) {
+            cacheMisses++;
+        } else {
+            cacheHits++;
+            nodesSettled = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Drops all cached results if the graph changed since they were computed.
+     */
+    private void dropStaleResults() {
+        if (cacheVersion != graph.getVersion()) {
+            cache.clear();
+            cacheVersion = graph.getVersion();
+        }
+    }
+
+    /**
+     * Returns the cache key of a query of the multiple start findShortestPath.
+     * @requires startPaths and goalNodes are not null or empty
+     */
+    private static <P> CacheKey multipleKey(Set<P> startPaths, Set<?> goalNodes) {
+        // copy the sets, so later changes to them by the caller do not affect the key
+        return new CacheKey(new HashSet<>(startPaths), new HashSet<>(goalNodes),
+                startPaths.iterator().next().getClass(), false);
+    }
+
+    /**
+     * Finds the shortest path from a start node to a goal node.
+     * If this PathFinder caches results, a repeated query on an unchanged
+     * graph returns the same path without searching again.
+     * @param startPath the initial path (containing one start node)
+     * @param goalNode the goal node
+     * @requires startPath != null && goalNode != null
+     * @return the shortest path from the start node to the goal node,
+     *         or null if no path exists
+     */
+    @SuppressWarnings("unchecked")
+    public <P extends Path<T, P>> P findShortestPath(P startPath, T goalNode) {
+        if (cache == null || startPath == null || goalNode == null) {
+            return search(startPath, goalNode);
+        }
+        CacheKey key = new CacheKey(Collections.singleton(startPath),
+                Collections.singleton(goalNode), startPath.getClass(), true);
+        Object cached = cacheLookup(key);
+        if (cached != null) {
+            return cached == NO_PATH ? null : (P) cached;
+        }
+        P result = search(startPath, goalNode);
+        cache.put(key, result == null ? NO_PATH : result);
         checkRep();
+        return result;
     }
 
     /**
      * Finds the shortest path from any start node to any goal node.
+     * If this PathFinder caches results, a repeated query on an unchanged
+     * graph returns the same path without searching again.
+     * @param startPaths a set of initial paths (each containing one start node)
+     * @param goalNodes a set of goal nodes
+     * @requires startPaths != null && goalNodes != null &&
+     *          all paths in startPaths are non-null and contain exactly one node &&
+     *          all nodes in goalNodes are non-null
+     * @return the shortest path from any start node to any goal node,
+     *         or null if no path exists
+     */
+    @SuppressWarnings("unchecked")
+    public <P extends Path<T, P>> P findShortestPath(Set<P> startPaths, Set<T> goalNodes) {
+        if (cache == null || startPaths == null || goalNodes == null ||
+                startPaths.isEmpty() || goalNodes.isEmpty()) {
+            return search(startPaths, goalNodes);
+        }
+        CacheKey key = multipleKey(startPaths, goalNodes);
+        Object cached = cacheLookup(key);
+        if (cached != null) {
+            return cached == NO_PATH ? null : (P) cached;
+        }
+        P result = search(startPaths, goalNodes);
+        cache.put(key, result == null ? NO_PATH : result);
+        checkRep();
+        return result;
+    }
+
+    /**
+     * Returns the number of queries answered from the cache.
+     * @return the number of cache hits, 0 if this PathFinder does not cache
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Returns the number of cacheable queries which had to be searched.
+     * @return the number of cache misses, 0 if this PathFinder does not cache
+     */
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * Returns the number of results evicted from the full cache. Results
+     * dropped because the graph changed are not counted.
+     * @return the number of cache evictions, 0 if this PathFinder does not cache
+     */
+    public long getCacheEvictions() {
+        return cacheEvictions;
+    }
+
+    /**
+     * Finds the shortest path from a start node to a goal node.
      * @param startPath the initial path (containing one start node)
      * @param goalNode the goal nodes
-     * @requires startPath != null &&  != null &&
+     * @requires startPath != null && goalNode != null
      * @return the shortest path from  start node to  goal node,
      *         or null if no path exists
      */
-    public <P extends Path<T, P>> P findShortestPath(P startPath, T goalNode) {
+    private <P extends Path<T, P>> P search(P startPath, T goalNode) {
         checkRep();
+        nodesSettled = 0;
 
         if (startPath == null || goalNode == null) {
             throw new IllegalArgumentException("Start paths and goal nodes cannot be null");
         }
+        // the statistics for the listener are only kept if there is one
+        final boolean instrumented = listener != null;
+        long startNanos = instrumented ? System.nanoTime() : 0;
+        int relaxed = 0, peakQueueSize = 0, stalePops = 0, secondChances = 0;
         //check for self loop (n1 -> n1)
         boolean selfLoop = startPath.getEnd().equals(goalNode);
         boolean noEdgeSelfLoopFirstIter = false;
         if (selfLoop) {
             if (graph.containsEdge( startPath.getEnd(), goalNode)) {
-                return startPath;
+                return finish(instrumented, startPath, startNanos, relaxed, peakQueueSize, stalePops, secondChances);
            }
             else {
                 noEdgeSelfLoopFirstIter = true;
@@ -86,6 +313,9 @@ public class PathFinder<T extends Comparable<? super T>> {
         Set<T> finished = new HashSet<>();
 
         while (!active.isEmpty()) {
+            if (instrumented && active.size() > peakQueueSize) {
+                peakQueueSize = active.size();
+            }
             // queueMin is the path with the lowest cost
             P queueMinPath = active.poll();
             T queueMin = queueMinPath.getEnd();
@@ -96,15 +326,22 @@ public class PathFinder<T extends Comparable<? super T>> {
                 // when there is no edge from the node to itself
                 if (noEdgeSelfLoopFirstIter) {
                     noEdgeSelfLoopFirstIter = false;
+                    if (instrumented) {
+                        secondChances++;
+                    }
                 }
                 else {
                     checkRep();
-                    return queueMinPath;
+                    return finish(instrumented, queueMinPath, startNanos, relaxed, peakQueueSize, stalePops,
+                            secondChances);
                 }
             }
 
             // Skip if we've already processed this node with a better path
             if (finished.contains(queueMin)) {
+                if (instrumented) {
+                    stalePops++;
+                }
                 continue;
             }
             // Examine all children of the current node
@@ -122,6 +359,9 @@ public class PathFinder<T extends Comparable<? super T>> {
                                 childPath.getCost() < paths.get(child).getCost() || selfLoop) {
                             paths.put(child, childPath);
                             active.add(childPath);
+                            if (instrumented) {
+                                relaxed++;
+                            }
                         }
                     }
                 }
@@ -129,11 +369,12 @@ public class PathFinder<T extends Comparable<? super T>> {
 
             // Mark current node as finished
             finished.add(queueMin);
+            nodesSettled++;
         }
 
         // No path found
         checkRep();
-        return null;
+        return finish(instrumented, null, startNanos, relaxed, peakQueueSize, stalePops, secondChances);
     }
 
     /**
@@ -175,8 +416,9 @@ public class PathFinder<T extends Comparable<? super T>> {
         */
 
 
-    public <P extends Path<T, P>> P findShortestPath(Set<P> startPaths, Set<T> goalNodes) {
+    private <P extends Path<T, P>> P search(Set<P> startPaths, Set<T> goalNodes) {
         checkRep();
+        nodesSettled = 0;
 
         if (startPaths == null || goalNodes == null) {
             return null;
@@ -185,6 +427,10 @@ public class PathFinder<T extends Comparable<? super T>> {
         if (startPaths.isEmpty() || goalNodes.isEmpty()) {
             return null;
         }
+        // the statistics for the listener are only kept if there is one
+        final boolean instrumented = listener != null;
+        long startNanos = instrumented ? System.nanoTime() : 0;
+        int relaxed = 0, peakQueueSize = 0, stalePops = 0, secondChances = 0;
 
         // maps nodes -> paths (shortest path to reach each node)
         Map<T, P> paths = new HashMap<>();
@@ -208,6 +454,9 @@ public class PathFinder<T extends Comparable<? super T>> {
         Set<T> finished = new HashSet<>();
 
         while (!active.isEmpty()) {
+            if (instrumented && active.size() > peakQueueSize) {
+                peakQueueSize = active.size();
+            }
             // queueMin is the path with the lowest cost
             P queueMinPath = active.poll();
             T queueMin= queueMinPath.getEnd();
@@ -219,15 +468,22 @@ public class PathFinder<T extends Comparable<? super T>> {
                 if (startNodes.contains(queueMin) && !graph.containsEdge(queueMin,queueMin) &&
                 !startNodeLoopSecondChance.get(queueMin)) {
                     startNodeLoopSecondChance.put(queueMin, Boolean.TRUE);
+                    if (instrumented) {
+                        secondChances++;
+                    }
                 }
                 else {
                 checkRep();
-                return queueMinPath;
+                return finish(instrumented, queueMinPath, startNanos, relaxed, peakQueueSize, stalePops,
+                        secondChances);
                 }
             }
 
             // Skip if we've already processed this node with a better path
             if (finished.contains(queueMin)) {
+                if (instrumented) {
+                    stalePops++;
+                }
                 continue;
             }
 
@@ -249,6 +505,9 @@ public class PathFinder<T extends Comparable<? super T>> {
                                         && startNodeLoopSecondChance.get(child))) {
                             paths.put(child, childPath);
                             active.add(childPath);
+                            if (instrumented) {
+                                relaxed++;
+                            }
                         }
                     }
                 }
@@ -256,10 +515,538 @@ public class PathFinder<T extends Comparable<? super T>> {
 
             // Mark current node as finished
             finished.add(queueMin);
+            nodesSettled++;
+        }
+
+        // No path found
+        checkRep();
+        return finish(instrumented, null, startNanos, relaxed, peakQueueSize, stalePops, secondChances);
+    }
+
+    /**
+     * Returns the number of nodes settled (whose children were examined) by
+     * the last search run by this PathFinder.
+     * @return the number of nodes settled by the last search
+     */
+    public int getNodesSettled() {
+        return nodesSettled;
+    }
+
+    /**
+     * Ends a search: if it was instrumented, reports its statistics to the
+     * listener if there still is one.
+     * @return result
+     */
+    private <P> P finish(boolean instrumented, P result, long startNanos, int relaxed,
+                         int peakQueueSize, int stalePops, int secondChances) {
+        SearchListener listener = this.listener;
+        if (instrumented && listener != null) {
+            listener.searchFinished(new SearchStats(nodesSettled, relaxed, peakQueueSize, stalePops,
+                    secondChances, System.nanoTime() - startNanos, result != null));
+        }
+        return result;
+    }
+
+    /**
+     * A SearchListener is told the statistics of every search run by
+     * findShortestPath, e.g. to aggregate them (see SearchHistograms).
+     * Queries answered from the cache run no search and are not reported.
+     */
+    public interface SearchListener {
+
+        /**
+         * Called by the thread which ran a search, once it is over.
+         * @param stats the statistics of the search
+         */
+        void searchFinished(SearchStats stats);
+    }
+
+    /**
+     * Sets the listener told the statistics of every search run by
+     * findShortestPath. Without a listener, searches neither time themselves
+     * nor keep statistics beyond getNodesSettled.
+     * @param listener the listener, or null to stop reporting
+     * @modifies this
+     * @effects reports the statistics of later searches to listener
+     */
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * An item in a priority queue together with its priority, for searches
+     * which do not order their queue by path cost alone.
+     */
+    private static final class QueueEntry<E> implements Comparable<QueueEntry<E>> {
+        private final E item;
+        private final double priority;
+
+        QueueEntry(E item, double priority) {
+            this.item = item;
+            this.priority = priority;
+        }
+
+        public int compareTo(QueueEntry<E> other) {
+            return Double.compare(priority, other.priority);
+        }
+    }
+
+    /**
+     * Finds the shortest path from a start node to a goal node by searching
+     * from both ends at once.
+     * @see #findShortestPathBidirectional(Set, Set, ToDoubleFunction)
+     */
+    public <P extends Path<T, P>> P findShortestPathBidirectional(P startPath, T goalNode,
+                                                                ToDoubleFunction<? super T> nodeCost) {
+        if (startPath == null || goalNode == null) {
+            throw new IllegalArgumentException("Start paths and goal nodes cannot be null");
+        }
+        return findShortestPathBidirectional(Collections.singleton(startPath),
+                Collections.singleton(goalNode), nodeCost);
+    }
+
+    /**
+     * Finds the shortest path from any start node to any goal node by running
+     * Dijkstra's algorithm forward from the starts and backward (over parents)
+     * from the goals, until the two searches meet.
+     * <p>
+     * The forward cost of a node includes its own cost, while the backward cost
+     * of a node is the cost of the nodes after it, so the node where the
+     * searches meet is counted once. A path of a single node counts only if
+     * the node has an edge to itself, exactly as in findShortestPath.
+     * @param startPaths a set of initial paths (each containing one start node)
+     * @param goalNodes a set of goal nodes
+     * @param nodeCost the cost added to a path when it is extended with a node
+     * @requires all paths in startPaths are non-null and contain exactly one node &&
+     *          all nodes in goalNodes are non-null && nodeCost != null &&
+     *          for every path p and node n, p.extend(n).getCost() == p.getCost() + nodeCost(n)
+     * @return the shortest path from any start node to any goal node,
+     *         or null if no path exists
+     */
+    public <P extends Path<T, P>> P findShortestPathBidirectional(Set<P> startPaths, Set<T> goalNodes,
+                                                                ToDoubleFunction<? super T> nodeCost) {
+        checkRep();
+        nodesSettled = 0;
+        if (nodeCost == null) {
+            throw new IllegalArgumentException("Node cost cannot be null");
+        }
+        if (startPaths == null || goalNodes == null ||
+                startPaths.isEmpty() || goalNodes.isEmpty()) {
+            return null;
+        }
+
+        // forward search: the shortest known path to each node
+        Map<T, P> forward = new HashMap<>();
+        PriorityQueue<P> forwardActive = new PriorityQueue<>();
+        Set<T> forwardFinished = new HashSet<>();
+        // backward search: the cost after each node, and the next node towards a goal
+        Map<T, Double> backward = new HashMap<>();
+        Map<T, T> next = new HashMap<>();
+        PriorityQueue<QueueEntry<T>> backwardActive = new PriorityQueue<>();
+        Set<T> backwardFinished = new HashSet<>();
+
+        // the best path found so far is bestPrefix, extended with bestNode and its next nodes
+        double best = Double.POSITIVE_INFINITY;
+        P bestPrefix = null;
+        T bestNode = null;
+
+        for (P startPath : startPaths) {
+            T startNode = startPath.getEnd();
+            if (!graph.containsNode(startNode)) {
+                continue;
+            }
+            if (!forward.containsKey(startNode) ||
+                    startPath.getCost() < forward.get(startNode).getCost()) {
+                forward.put(startNode, startPath);
+                forwardActive.add(startPath);
+            }
+            // a single node is a path only through its self loop
+            if (goalNodes.contains(startNode) && graph.containsEdge(startNode, startNode) &&
+                    startPath.getCost() < best) {
+                best = startPath.getCost();
+                bestPrefix = startPath;
+                bestNode = null;
+            }
+        }
+        for (T goalNode : goalNodes) {
+            if (graph.containsNode(goalNode)) {
+                backward.put(goalNode, 0.0);
+                backwardActive.add(new QueueEntry<>(goalNode, 0.0));
+            }
+        }
+
+        // every path is found through one of its edges, when the search
+        // which reaches that edge second scans it
+        while (!forwardActive.isEmpty() && !backwardActive.isEmpty() &&
+                forwardActive.peek().getCost() + backwardActive.peek().priority < best) {
+            if (forwardActive.size() <= backwardActive.size()) {
+                P queueMinPath = forwardActive.poll();
+                T queueMin = queueMinPath.getEnd();
+                if (!forwardFinished.add(queueMin)) {
+                    continue;
+                }
+                nodesSettled++;
+                for (T child : graph.getListChildren(queueMin)) {
+                    Double after = backward.get(child);
+                    if (after != null) {
+                        double cost = queueMinPath.getCost() + nodeCost.applyAsDouble(child) + after;
+                        if (cost < best) {
+                            best = cost;
+                            bestPrefix = queueMinPath;
+                            bestNode = child;
+                        }
+                    }
+                    if (!forwardFinished.contains(child)) {
+                        P childPath = queueMinPath.extend(child);
+                        if (!forward.containsKey(child) ||
+                                childPath.getCost() < forward.get(child).getCost()) {
+                            forward.put(child, childPath);
+                            forwardActive.add(childPath);
+                        }
+                    }
+                }
+            } else {
+                QueueEntry<T> queueMin = backwardActive.poll();
+                if (!backwardFinished.add(queueMin.item)) {
+                    continue;
+                }
+                nodesSettled++;
+                double cost = queueMin.priority + nodeCost.applyAsDouble(queueMin.item);
+                for (T parent : graph.getListParents(queueMin.item)) {
+                    P parentPath = forward.get(parent);
+                    if (parentPath != null && parentPath.getCost() + cost < best) {
+                        best = parentPath.getCost() + cost;
+                        bestPrefix = parentPath;
+                        bestNode = queueMin.item;
+                    }
+                    if (!backwardFinished.contains(parent) &&
+                            (!backward.containsKey(parent) || cost < backward.get(parent))) {
+                        backward.put(parent, cost);
+                        next.put(parent, queueMin.item);
+                        backwardActive.add(new QueueEntry<>(parent, cost));
+                    }
+                }
+            }
+        }
+
+        if (bestPrefix == null) {
+            checkRep();
+            return null;
+        }
+        P path = bestPrefix;
+        for (T node = bestNode; node != null; node = next.get(node)) {
+            path = path.extend(node);
+        }
+        checkRep();
+        return path;
+    }
+
+    /**
+     * Finds the shortest path from a start node to a goal node with A*.
+     * @see #findShortestPathAStar(Set, Set, Heuristic)
+     */
+    public <P extends Path<T, P>> P findShortestPathAStar(P startPath, T goalNode,
+                                                        Heuristic<? super T> heuristic) {
+        if (startPath == null || goalNode == null) {
+            throw new IllegalArgumentException("Start paths and goal nodes cannot be null");
+        }
+        return findShortestPathAStar(Collections.singleton(startPath),
+                Collections.singleton(goalNode), heuristic);
+    }
+
+    /**
+     * Finds the shortest path from any start node to any goal node with A*:
+     * paths are examined in order of their cost plus the heuristic estimate
+     * of the cost remaining from their end, so the search heads towards the
+     * goals instead of spreading evenly around the starts.
+     * <p>
+     * Nodes are examined again when a cheaper path to them is found later,
+     * so the result is a shortest path whenever the heuristic is admissible.
+     * With Heuristic.zero() this is the search of findShortestPath.
+     * Use getNodesSettled() to see how many nodes were examined.
+     * @param startPaths a set of initial paths (each containing one start node)
+     * @param goalNodes a set of goal nodes
+     * @param heuristic a lower bound on the cost remaining from a node to a goal
+     * @requires all paths in startPaths are non-null and contain exactly one node &&
+     *          all nodes in goalNodes are non-null && heuristic != null
+     * @return the shortest path from any start node to any goal node,
+     *         or null if no path exists
+     */
+    public <P extends Path<T, P>> P findShortestPathAStar(Set<P> startPaths, Set<T> goalNodes,
+                                                        Heuristic<? super T> heuristic) {
+        checkRep();
+        nodesSettled = 0;
+        if (heuristic == null) {
+            throw new IllegalArgumentException("Heuristic cannot be null");
+        }
+        if (startPaths == null || goalNodes == null ||
+                startPaths.isEmpty() || goalNodes.isEmpty()) {
+            return null;
+        }
+
+        // maps nodes -> paths (shortest path found so far to each node)
+        Map<T, P> paths = new HashMap<>();
+        // paths with priority equal to their cost plus the estimate from their end
+        PriorityQueue<QueueEntry<P>> active = new PriorityQueue<>();
+        Set<T> startNodes = new HashSet<>();
+        Map<T, Boolean> startNodeLoopSecondChance = new HashMap<>();
+        for (P startPath : startPaths) {
+            T startNode = startPath.getEnd();
+            paths.put(startNode, startPath);
+            active.add(new QueueEntry<>(startPath,
+                    startPath.getCost() + heuristic.estimate(startNode)));
+            startNodes.add(startNode);
+            startNodeLoopSecondChance.put(startNode, Boolean.FALSE);
+        }
+
+        while (!active.isEmpty()) {
+            P queueMinPath = active.poll().item;
+            T queueMin = queueMinPath.getEnd();
+
+            if (goalNodes.contains(queueMin)) {
+                //meaning we have a loop path
+                if (startNodes.contains(queueMin) && !graph.containsEdge(queueMin, queueMin) &&
+                        !startNodeLoopSecondChance.get(queueMin)) {
+                    startNodeLoopSecondChance.put(queueMin, Boolean.TRUE);
+                } else {
+                    checkRep();
+                    return queueMinPath;
+                }
+            }
+
+            // Skip if a better path to this node was found after this one was queued
+            if (paths.get(queueMin) != queueMinPath) {
+                continue;
+            }
+
+            nodesSettled++;
+            if (graph.containsNode(queueMin)) {
+                for (T child : graph.getListChildren(queueMin)) {
+                    P childPath = queueMinPath.extend(child);
+                    boolean secondChance = startNodeLoopSecondChance.containsKey(child)
+                            && startNodeLoopSecondChance.get(child);
+                    if (!paths.containsKey(child) ||
+                            childPath.getCost() < paths.get(child).getCost() || secondChance) {
+                        paths.put(child, childPath);
+                        active.add(new QueueEntry<>(childPath,
+                                childPath.getCost() + heuristic.estimate(child)));
+                    }
+                }
+            }
         }
 
         // No path found
         checkRep();
         return null;
     }
+
+    /**
+     * Finds the shortest path from any start node to any goal node with A*,
+     * guided by the lower bounds of precomputed landmarks (ALT).
+     * If the graph was changed since the landmarks were built their tables
+     * are stale, so they are ignored and this is a plain Dijkstra search.
+     * @param startPaths a set of initial paths (each containing one start node)
+     * @param goalNodes a set of goal nodes
+     * @param landmarks landmarks built for the graph of this PathFinder, with
+     *        the node costs of P
+     * @requires all paths in startPaths are non-null and contain exactly one node &&
+     *          all nodes in goalNodes are non-null && landmarks != null
+     * @return the shortest path from any start node to any goal node,
+     *         or null if no path exists
+     */
+    public <P extends Path<T, P>> P findShortestPathALT(Set<P> startPaths, Set<T> goalNodes,
+                                                      Landmarks<T> landmarks) {
+        if (landmarks == null || landmarks.getGraph() != graph) {
+            throw new IllegalArgumentException("Landmarks must be built for the graph of this PathFinder");
+        }
+        if (goalNodes == null || !landmarks.isValid()) {
+            return findShortestPathAStar(startPaths, goalNodes, Heuristic.zero());
+        }
+        return findShortestPathAStar(startPaths, goalNodes, landmarks.heuristicTo(goalNodes));
+    }
+
+    /**
+     * Finds the shortest paths from a start node to every node reachable
+     * from it, in a single search.
+     * @param startPath the initial path (containing one start node)
+     * @param nodeCost the cost added to a path when it is extended with a node
+     * @requires startPath != null && nodeCost != null &&
+     *           extending any path with node n adds exactly nodeCost(n) to its cost
+     * @return the tree of shortest paths from the start node
+     * @see #shortestPathTree(Set, ToDoubleFunction)
+     */
+    public <P extends Path<T, P>> ShortestPathTree<T, P> shortestPathTree(P startPath,
+                                                                         ToDoubleFunction<? super T> nodeCost) {
+        if (startPath == null) {
+            throw new IllegalArgumentException("Start paths cannot be null");
+        }
+        return shortestPathTree(Collections.singleton(startPath), nodeCost);
+    }
+
+    /**
+     * Finds the shortest paths from any start node to every node reachable
+     * from the start nodes, in a single search run to exhaustion. The tree
+     * answers the cost to any node in constant time and only builds the
+     * paths which are asked for.
+     * <p>
+     * The search uses nodeCost rather than extending paths, so the cost model
+     * must be node-weighted, as in findShortestPathBidirectional.
+     * <p>
+     * Other threads may add to the graph during the search (see
+     * ConcurrentGraph); the nodes it reaches that were added meanwhile are
+     * in the tree too.
+     * @param startPaths a set of initial paths (each containing one start node)
+     * @param nodeCost the cost added to a path when it is extended with a node
+     * @requires startPaths != null && nodeCost != null &&
+     *           all paths in startPaths are non-null and contain exactly one node &&
+     *           extending any path with node n adds exactly nodeCost(n) to its cost
+     * @return the tree of shortest paths from the start nodes
+     */
+    public <P extends Path<T, P>> ShortestPathTree<T, P> shortestPathTree(Set<P> startPaths,
+                                                                         ToDoubleFunction<? super T> nodeCost) {
+        checkRep();
+        nodesSettled = 0;
+        if (startPaths == null || nodeCost == null) {
+            throw new IllegalArgumentException("Start paths and node cost cannot be null");
+        }
+
+        // nodes get ids in the order they are first reached; a graph which
+        // other threads add to (see ConcurrentGraph) may reach more nodes
+        // than it had at the start, so the arrays grow as needed
+        int capacity = Math.max(16, graph.size());
+        Map<T, Integer> ids = new HashMap<>();
+        Object[] nodes = new Object[capacity];
+        double[] dist = new double[capacity];
+        int[] pred = new int[capacity];
+        Map<T, P> roots = new HashMap<>();
+        IndexedMinHeap heap = new IndexedMinHeap(capacity);
+        int reached = 0;
+        for (P startPath : startPaths) {
+            T startNode = startPath.getEnd();
+            if (!graph.containsNode(startNode)) {
+                continue;
+            }
+            Integer id = ids.get(startNode);
+            if (id == null) {
+                if (reached == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, 2 * reached);
+                    dist = Arrays.copyOf(dist, 2 * reached);
+                    pred = Arrays.copyOf(pred, 2 * reached);
+                    heap.grow(2 * reached);
+                }
+                id = reached++;
+                ids.put(startNode, id);
+                nodes[id] = startNode;
+            } else if (startPath.getCost() >= dist[id]) {
+                continue;
+            }
+            dist[id] = startPath.getCost();
+            pred[id] = -1;
+            roots.put(startNode, startPath);
+            heap.insertOrDecrease(id, startPath.getCost());
+        }
+
+        int[] order = new int[nodes.length];
+        while (!heap.isEmpty()) {
+            double d = heap.minKey();
+            int u = heap.poll();
+            order[nodesSettled++] = u;
+            @SuppressWarnings("unchecked")
+            T node = (T) nodes[u];
+            for (T child : graph.getListChildren(node)) {
+                double childCost = d + nodeCost.applyAsDouble(child);
+                Integer id = ids.get(child);
+                if (id == null) {
+                    if (reached == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, 2 * reached);
+                        dist = Arrays.copyOf(dist, 2 * reached);
+                        pred = Arrays.copyOf(pred, 2 * reached);
+                        order = Arrays.copyOf(order, 2 * reached);
+                        heap.grow(2 * reached);
+                    }
+                    id = reached++;
+                    ids.put(child, id);
+                    nodes[id] = child;
+                } else if (childCost >= dist[id]) {
+                    continue;
+                }
+                dist[id] = childCost;
+                pred[id] = u;
+                heap.insertOrDecrease(id, childCost);
+            }
+        }
+
+        // renumber the nodes in settling order, so the tree arrays are
+        // exactly as long as the number of reached nodes
+        int[] rank = new int[reached];
+        for (int i = 0; i < reached; i++) {
+            rank[order[i]] = i;
+        }
+        Object[] treeNodes = new Object[reached];
+        double[] treeCosts = new double[reached];
+        int[] treePreds = new int[reached];
+        for (int i = 0; i < reached; i++) {
+            int u = order[i];
+            treeNodes[i] = nodes[u];
+            treeCosts[i] = dist[u];
+            treePreds[i] = pred[u] < 0 ? -1 : rank[pred[u]];
+        }
+        for (Map.Entry<T, Integer> entry : ids.entrySet()) {
+            entry.setValue(rank[entry.getValue()]);
+        }
+        checkRep();
+        return new ShortestPathTree<>(ids, treeNodes, treeCosts, treePreds, roots);
+    }
+
+    /**
+     * Computes the costs of the shortest paths from every source to every
+     * goal, searching from the sources in parallel.
+     * @see #distanceMatrix(List, List, ToDoubleFunction, boolean)
+     */
+    public <P extends Path<T, P>> DistanceMatrix<T> distanceMatrix(List<P> sources, List<T> goals,
+                                                                   ToDoubleFunction<? super T> nodeCost) {
+        return distanceMatrix(sources, goals, nodeCost, false);
+    }
+
+    /**
+     * Computes the costs of the shortest paths from every source to every
+     * goal, searching from the sources in parallel on the common ForkJoinPool.
+     * The graph is frozen into a CompactGraph, which all searches read, so
+     * it must not be modified during the computation. The frozen copy is
+     * kept until the graph is modified or another nodeCost is given, so
+     * repeated matrices over the same graph only copy it once.
+     * <p>
+     * The search uses nodeCost rather than extending paths, so the cost model
+     * must be node-weighted, and a goal which is the start node of a source
+     * is reached by the start path itself, as in shortestPathTree.
+     * @param sources the initial paths (each containing one start node)
+     * @param goals the goal nodes
+     * @param nodeCost the cost added to a path when it is extended with a node
+     * @param withPredecessors whether to also find the node before every
+     *        goal on the shortest path to it
+     * @requires sources != null && goals != null && nodeCost != null &&
+     *           all their elements are non-null
+     * @return a sources.size() by goals.size() matrix of the costs of the
+     *         shortest paths from sources to goals, with their predecessors if
+     *         withPredecessors
+     * @modifies this
+     * @effects keeps the frozen copy of the graph for later matrices
+     */
+    public <P extends Path<T, P>> DistanceMatrix<T> distanceMatrix(List<P> sources, List<T> goals,
+                                                                   ToDoubleFunction<? super T> nodeCost,
+                                                                   boolean withPredecessors) {
+        checkRep();
+        if (nodeCost == null) {
+            throw new IllegalArgumentException("Node cost cannot be null");
+        }
+        long version = graph.getVersion();
+        if (matrixFinder == null || matrixVersion != version || matrixNodeCost != nodeCost) {
+            CompactGraph<T> compact = graph instanceof CompactGraph ?
+                    (CompactGraph<T>) graph : new CompactGraph<>(graph);
+            matrixFinder = new CompactPathFinder<>(compact, nodeCost);
+            matrixNodeCost = nodeCost;
+            matrixVersion = version;
+        }
+        return matrixFinder.distanceMatrix(sources, goals, withPredecessors);
+    }
 }
@@ -0,0 +1,237 @@
+package homework2;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A SearchListener which aggregates the statistics of searches into one
+ * histogram per statistic. It can listen to several PathFinders, also on
+ * different threads, and its histograms can be read at any time, e.g. to
+ * export them to a metrics system:
+ * <pre>
+ *   SearchHistograms histograms = new SearchHistograms();
+ *   finder.setSearchListener(histograms);
+ *   ...
+ *   for (Map.Entry&lt;String, SearchHistograms.Histogram&gt; e : histograms.getHistograms().entrySet()) {
+ *       export(e.getKey(), e.getValue().getPercentile(0.99));
+ *   }
+ * </pre>
+ */
+public class SearchHistograms implements PathFinder.SearchListener {
+
+    private final Histogram nodesSettled = new Histogram();
+    private final Histogram edgesRelaxed = new Histogram();
+    private final Histogram peakQueueSize = new Histogram();
+    private final Histogram stalePops = new Histogram();
+    private final Histogram secondChances = new Histogram();
+    private final Histogram wallNanos = new Histogram();
+    private final AtomicLong notFound = new AtomicLong();
+
+    /**
+     * Adds the statistics of a search to the histograms.
+     * @requires stats != null
+     * @modifies this
+     * @effects records every statistic of stats in its histogram
+     */
+    @Override
+    public void searchFinished(SearchStats stats) {
+        nodesSettled.record(stats.getNodesSettled());
+        edgesRelaxed.record(stats.getEdgesRelaxed());
+        peakQueueSize.record(stats.getPeakQueueSize());
+        stalePops.record(stats.getStalePops());
+        secondChances.record(stats.getSecondChances());
+        wallNanos.record(stats.getWallNanos());
+        if (!stats.isFound()) {
+            notFound.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of searches recorded.
+     */
+    public long getSearches() {
+        return wallNanos.getCount();
+    }
+
+    /**
+     * Returns the number of searches recorded which found no path.
+     */
+    public long getNotFound() {
+        return notFound.get();
+    }
+
+    /**
+     * Returns the histogram of the numbers of nodes settled.
+     */
+    public Histogram getNodesSettled() {
+        return nodesSettled;
+    }
+
+    /**
+     * Returns the histogram of the numbers of edges relaxed.
+     */
+    public Histogram getEdgesRelaxed() {
+        return edgesRelaxed;
+    }
+
+    /**
+     * Returns the histogram of the peak queue sizes.
+     */
+    public Histogram getPeakQueueSize() {
+        return peakQueueSize;
+    }
+
+    /**
+     * Returns the histogram of the numbers of stale paths taken from the queue.
+     */
+    public Histogram getStalePops() {
+        return stalePops;
+    }
+
+    /**
+     * Returns the histogram of the numbers of second chances given to start nodes.
+     */
+    public Histogram getSecondChances() {
+        return secondChances;
+    }
+
+    /**
+     * Returns the histogram of the times the searches took, in nanoseconds.
+     */
+    public Histogram getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * Returns all histograms by the name of their statistic, in a fixed order.
+     * @return an unmodifiable map from statistic names to their histograms
+     */
+    public Map<String, Histogram> getHistograms() {
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        histograms.put("nodesSettled", nodesSettled);
+        histograms.put("edgesRelaxed", edgesRelaxed);
+        histograms.put("peakQueueSize", peakQueueSize);
+        histograms.put("stalePops", stalePops);
+        histograms.put("secondChances", secondChances);
+        histograms.put("wallNanos", wallNanos);
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    /**
+     * Returns a summary of all histograms, one line per statistic.
+     */
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        summary.append("searches=").append(getSearches()).append(" notFound=").append(getNotFound());
+        for (Map.Entry<String, Histogram> entry : getHistograms().entrySet()) {
+            summary.append('\n').append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return summary.toString();
+    }
+
+    /**
+     * A histogram of non-negative values in buckets of powers of two: bucket
+     * 0 counts the zeros, and bucket b > 0 the values in [2^(b-1), 2^b).
+     * Values can be recorded and read concurrently.
+     */
+    public static final class Histogram {
+
+        /**
+         * The number of buckets, enough for every non-negative long.
+         */
+        public static final int BUCKETS = 64;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram() {
+        }
+
+        /**
+         * Records a value; negative values are recorded as 0.
+         * @modifies this
+         * @effects adds value to the histogram
+         */
+        void record(long value) {
+            value = Math.max(0, value);
+            counts.incrementAndGet(bucketOf(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        private static int bucketOf(long value) {
+            return Long.SIZE - Long.numberOfLeadingZeros(value);
+        }
+
+        /**
+         * Returns the number of values recorded.
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * Returns the sum of the values recorded.
+         */
+        public long getSum() {
+            return sum.get();
+        }
+
+        /**
+         * Returns the largest value recorded, or 0 if there is none.
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Returns the mean of the values recorded, or 0 if there is none.
+         */
+        public double getMean() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) sum.get() / n;
+        }
+
+        /**
+         * Returns the number of values recorded in a bucket.
+         * @requires 0 <= bucket < BUCKETS
+         */
+        public long getBucketCount(int bucket) {
+            return counts.get(bucket);
+        }
+
+        /**
+         * Returns an upper bound of the given percentile of the values
+         * recorded: the largest value of the bucket it falls in, or the
+         * largest value recorded if that is smaller.
+         * @requires 0 <= fraction <= 1
+         * @return an upper bound of the percentile, or 0 if there are no values
+         */
+        public long getPercentile(double fraction) {
+            if (fraction < 0 || fraction > 1) {
+                throw new IllegalArgumentException("The fraction must be between 0 and 1");
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * count.get()));
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += counts.get(b);
+                if (seen >= rank) {
+                    long bucketMax = b == 0 ? 0 : b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1;
+                    return Math.min(bucketMax, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.1f p50<=%d p90<=%d p99<=%d max=%d", getCount(), getMean(),
+                    getPercentile(0.5), getPercentile(0.9), getPercentile(0.99), getMax());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package homework2;
+
+/**
+ * The statistics of one shortest path search run by PathFinder, as passed to
+ * its SearchListener.
+ */
+public final class SearchStats {
+
+    private final int nodesSettled;
+    private final int edgesRelaxed;
+    private final int peakQueueSize;
+    private final int stalePops;
+    private final int secondChances;
+    private final long wallNanos;
+    private final boolean found;
+
+    /**
+     * Creates the statistics of a search.
+     * @effects creates a SearchStats with the given values
+     */
+    SearchStats(int nodesSettled, int edgesRelaxed, int peakQueueSize, int stalePops,
+                int secondChances, long wallNanos, boolean found) {
+        this.nodesSettled = nodesSettled;
+        this.edgesRelaxed = edgesRelaxed;
+        this.peakQueueSize = peakQueueSize;
+        this.stalePops = stalePops;
+        this.secondChances = secondChances;
+        this.wallNanos = wallNanos;
+        this.found = found;
+    }
+
+    /**
+     * Returns the number of nodes whose children were examined.
+     */
+    public int getNodesSettled() {
+        return nodesSettled;
+    }
+
+    /**
+     * Returns the number of edges which improved the path to their child, so
+     * that a new path was queued.
+     */
+    public int getEdgesRelaxed() {
+        return edgesRelaxed;
+    }
+
+    /**
+     * Returns the largest number of paths that were queued at once.
+     */
+    public int getPeakQueueSize() {
+        return peakQueueSize;
+    }
+
+    /**
+     * Returns the number of paths taken from the queue and dropped, because a
+     * better path to their end had been settled already.
+     */
+    public int getStalePops() {
+        return stalePops;
+    }
+
+    /**
+     * Returns the number of times a start node which is also a goal was
+     * taken from the queue and passed over, to be reached again by a loop.
+     */
+    public int getSecondChances() {
+        return secondChances;
+    }
+
+    /**
+     * Returns the time the search took, in nanoseconds.
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * Returns whether the search found a path.
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    @Override
+    public String toString() {
+        return "settled=" + nodesSettled + " relaxed=" + edgesRelaxed + " peakQueue=" + peakQueueSize +
+                " stalePops=" + stalePops + " secondChances=" + secondChances +
+                " micros=" + wallNanos / 1000 + " found=" + found;
+    }
+}
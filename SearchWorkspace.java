@@ -0,0 +1,89 @@
+package homework2;
+
+import java.util.Arrays;
+
+/**
+ * The per-node scratch arrays of a search over int node ids. A workspace is
+ * reused across searches: instead of clearing every array, each search bumps
+ * an epoch, and a node's entries are only valid while its stamp equals the
+ * current epoch.
+ */
+final class SearchWorkspace {
+
+	// flag bits
+	static final byte GOAL = 1;
+	static final byte START = 2;
+	static final byte SETTLED = 4;
+	static final byte SECOND_CHANCE = 8;
+
+	private int epoch;
+	private int[] stamp = new int[0];
+	byte[] flags = new byte[0];
+	double[] dist = new double[0];
+	int[] pred = new int[0];
+	double[] loopDist = new double[0];
+	int[] loopPred = new int[0];
+	int[] stack = new int[0];
+	final IndexedMinHeap heap = new IndexedMinHeap(0);
+
+
+	/**
+	 * Starts a new search over node ids in [0, n), invalidating the entries
+	 * of all nodes.
+	 */
+	void begin(int n) {
+		if (n > stamp.length) {
+			int capacity = Math.max(n, 2 * stamp.length);
+			stamp = new int[capacity];
+			flags = new byte[capacity];
+			dist = new double[capacity];
+			pred = new int[capacity];
+			loopDist = new double[capacity];
+			loopPred = new int[capacity];
+			stack = new int[capacity + 1];
+			epoch = 0;
+		}
+		heap.ensureCapacity(n);
+		heap.clear();
+		epoch++;
+		if (epoch == 0) {
+			// the stamps wrapped around, so they can no longer be trusted
+			Arrays.fill(stamp, 0);
+			epoch = 1;
+		}
+	}
+
+
+	/**
+	 * Resets the entries of node v if it was not touched yet in this search.
+	 */
+	void touch(int v) {
+		if (stamp[v] != epoch) {
+			stamp[v] = epoch;
+			flags[v] = 0;
+			dist[v] = Double.POSITIVE_INFINITY;
+			pred[v] = -1;
+			loopDist[v] = Double.POSITIVE_INFINITY;
+			loopPred[v] = -1;
+		}
+	}
+
+
+	/**
+	 * Returns whether node v was touched in this search.
+	 */
+	boolean touched(int v) {
+		return stamp[v] == epoch;
+	}
+
+
+	boolean has(int v, byte flag) {
+		return stamp[v] == epoch && (flags[v] & flag) != 0;
+	}
+
+
+	void set(int v, byte flag) {
+		touch(v);
+		flags[v] |= flag;
+	}
+}
@@ -0,0 +1,140 @@
+package homework2;
+
+import java.util.*;
+
+/**
+ * A ShortestPathTree holds the result of a single Dijkstra search run to
+ * exhaustion from one or more start paths: the cost of the shortest path
+ * to every reachable node, and the tree of predecessors those paths follow.
+ * <p>
+ * Costs are looked up in constant time. A Path to a node is only built when
+ * it is asked for, by extending the start path it originates from along the
+ * tree. Every start node is reached by its own start path (so a start node
+ * is never reached through a cycle back to it).
+ * <p>
+ * A ShortestPathTree describes the graph as it was when it was computed and
+ * is not affected by later changes to the graph.
+ *
+ * @param <T> the type of nodes in the graph
+ * @param <P> the type of the paths
+ */
+public class ShortestPathTree<T, P extends Path<T, P>> {
+
+    /**
+     * Representation Invariant:
+     * - ids != null && nodes != null && costs != null && preds != null && startPaths != null
+     * - nodes.length == costs.length == preds.length
+     * - ids.get(nodes[i]) == i for every 0 <= i < nodes.length
+     * - preds[i] == -1 or 0 <= preds[i] < i, and if preds[i] == -1 then
+     *   startPaths contains nodes[i]
+     * Abstraction Function:
+     * nodes holds the reached nodes in the order they were settled. The
+     * shortest path to nodes[i] costs costs[i]; it is startPaths.get(nodes[i])
+     * if preds[i] == -1, and the shortest path to nodes[preds[i]] extended
+     * with nodes[i] otherwise.
+     */
+
+    private final Map<T, Integer> ids;
+    private final Object[] nodes;
+    private final double[] costs;
+    private final int[] preds;
+    private final Map<T, P> startPaths;
+
+    /**
+     * Checks the representation invariant.
+     */
+    private void checkRep() {
+        assert ids != null && nodes != null && costs != null && preds != null && startPaths != null :
+                "tree arrays cannot be null";
+        assert costs.length == nodes.length && preds.length == nodes.length :
+                "there must be a cost and a predecessor for every node";
+        assert ids.size() == nodes.length : "every reached node must have an id";
+    }
+
+    /**
+     * Creates a tree over the given search results, which it takes ownership of.
+     * @requires the arguments satisfy the representation invariant
+     */
+    ShortestPathTree(Map<T, Integer> ids, Object[] nodes, double[] costs, int[] preds,
+                     Map<T, P> startPaths) {
+        this.ids = ids;
+        this.nodes = nodes;
+        this.costs = costs;
+        this.preds = preds;
+        this.startPaths = startPaths;
+        checkRep();
+    }
+
+    /**
+     * Returns whether there is a path from a start node to the given node.
+     * @return true iff node was reached by the search
+     */
+    public boolean isReached(T node) {
+        return ids.containsKey(node);
+    }
+
+    /**
+     * Returns the cost of the shortest path to the given node.
+     * @return the cost of the shortest path from any start node to node,
+     *         or Double.POSITIVE_INFINITY if node was not reached
+     */
+    public double getCost(T node) {
+        Integer id = ids.get(node);
+        return id == null ? Double.POSITIVE_INFINITY : costs[id];
+    }
+
+    /**
+     * Returns the shortest path to the given node.
+     * @return the shortest path from any start node to node,
+     *         or null if node was not reached
+     */
+    @SuppressWarnings("unchecked")
+    public P getPath(T node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            return null;
+        }
+        int[] stack = new int[8];
+        int top = 0;
+        int v = id;
+        while (preds[v] >= 0) {
+            if (top == stack.length) {
+                stack = Arrays.copyOf(stack, 2 * top);
+            }
+            stack[top++] = v;
+            v = preds[v];
+        }
+        P path = startPaths.get((T) nodes[v]);
+        while (top > 0) {
+            path = path.extend((T) nodes[stack[--top]]);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the reached nodes, in order of increasing cost.
+     * @return an unmodifiable list of the nodes reached by the search
+     */
+    public List<T> getReachedNodes() {
+        return new AbstractList<T>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public T get(int index) {
+                return (T) nodes[index];
+            }
+
+            @Override
+            public int size() {
+                return nodes.length;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of nodes reached by the search.
+     * @return the number of reached nodes
+     */
+    public int size() {
+        return nodes.length;
+    }
+}
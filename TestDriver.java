@@ -14,11 +14,117 @@ import java.util.*;
 public class TestDriver {
 
 	// String -> Graph: maps the names of graphs to the actual graph
-  	private final Map<String, Graph<WeightedNode>> graphs = new HashMap<>();
+  	private final NameTable<Graph<WeightedNode>> graphs = new NameTable<>();
   	// String -> WeightedNode: maps the names of nodes to the actual node
-  	private final Map<String,WeightedNode> nodes = new HashMap<>();
-	private final BufferedReader input;
-  	private final PrintWriter output;
+  	private final NameTable<WeightedNode> nodes = new NameTable<>();
+  	// the tokens of recent FindPath commands -> the path they found, in least
+  	// recently used order, so repeated FindPath commands on an unchanged
+  	// graph are not searched again; only used by the thread running batches
+  	private final LinkedHashMap<List<String>, FoundPath> foundPaths =
+  			new LinkedHashMap<List<String>, FoundPath>(16, 0.75f, true) {
+  				@Override
+  				protected boolean removeEldestEntry(Map.Entry<List<String>, FoundPath> eldest) {
+  					return size() > PATH_CACHE_CAPACITY;
+  				}
+  			};
+  	private static final int PATH_CACHE_CAPACITY = 256;
+  	// incremented whenever a graph or node name is given a new value, which
+  	// changes what the tokens of earlier FindPath commands refer to
+  	private long namesVersion;
+  	private long foundPathHits;
+  	private long foundPathMisses;
+	private final Reader input;
+  	private final CommandOutput output;
+
+	// the commands, in the order of their dispatch constants below
+	private static final String[] COMMANDS = { "CreateGraph", "CreateNode", "AddNode",
+			"AddEdge", "ListNodes", "ListChildren", "FindPath" };
+	private static final int CREATE_GRAPH = 0;
+	private static final int CREATE_NODE = 1;
+	private static final int ADD_NODE = 2;
+	private static final int ADD_EDGE = 3;
+	private static final int LIST_NODES = 4;
+	private static final int LIST_CHILDREN = 5;
+	private static final int FIND_PATH = 6;
+	private static final int UNRECOGNIZED = -1;
+
+	// the input is read in chunks into buf; the current line is buf[lineStart..lineEnd)
+	private char[] buf = new char[1 << 16];
+	private int bufEnd;
+	private int lineStart;
+	private int lineEnd;
+	// the next line starts at buf[pos]; eof is set once the input is exhausted
+	private int pos;
+	private boolean eof;
+	// the tokens of the current line are buf[tokenStart[i]..tokenEnd[i]) for i < tokens
+	private int[] tokenStart = new int[8];
+	private int[] tokenEnd = new int[8];
+	private int tokens;
+
+	// the lines read since the last command which may modify a graph, whose
+	// output is not written yet (see runBatch), and the first query of the
+	// batch with each list of tokens
+	private final List<Query> batch = new ArrayList<>();
+	private final Map<List<String>, Query> batchQueries = new HashMap<>();
+	private static final int MAX_BATCH = 1024;
+
+
+	/**
+	 * A line of the input whose output is written by runBatch: a read-only
+	 * command, or a blank or comment line which is echoed.
+	 */
+	private static final class Query {
+		// the tokens of the command, or null for an echoed line
+		final List<String> tokens;
+		final CommandOutput result = new CommandOutput();
+		// an earlier query of the batch with the same tokens, whose output is repeated
+		Query same;
+		// an Error thrown by the command, which is rethrown instead of writing its output
+		Error error;
+		// the parsed arguments of a FindPath command, once runBatch parsed them
+		PathQuery path;
+
+		Query(List<String> tokens) {
+			this.tokens = tokens;
+		}
+	}
+
+
+	/**
+	 * The graph, start paths and goal nodes of a FindPath command, and the
+	 * path found for them by a search of runBatch.
+	 */
+	private static final class PathQuery {
+		final String graphName;
+		final Set<WeightedNodePath> sources;
+		final Set<WeightedNode> goals;
+		WeightedNodePath result;
+		boolean searched;
+
+		PathQuery(String graphName, Set<WeightedNodePath> sources, Set<WeightedNode> goals) {
+			this.graphName = graphName;
+			this.sources = sources;
+			this.goals = goals;
+		}
+	}
+
+
+	/**
+	 * The path an earlier FindPath command found, which answers the same
+	 * command as long as its graph and the names it used are unchanged.
+	 */
+	private static final class FoundPath {
+		final long graphVersion;
+		final long namesVersion;
+		// null if no path was found
+		final WeightedNodePath path;
+
+		FoundPath(long graphVersion, long namesVersion, WeightedNodePath path) {
+			this.graphVersion = graphVersion;
+			this.namesVersion = namesVersion;
+			this.path = path;
+		}
+	}
 
 
   	/**
@@ -28,14 +134,24 @@ public class TestDriver {
      * <tt>r</tt> and writes results to <tt>w</tt>.
      */
   	public TestDriver(Reader r, Writer w) {
-    	input = new BufferedReader(r);
-    	output = new PrintWriter(w);
+    	input = r;
+    	output = new CommandOutput(w);
   	}
 
 
   	/**
   	 * Executes the commands read from the input and writes results to the
   	 * output.
+  	 * <p>
+  	 * The input is read in large chunks and split into lines and tokens in
+  	 * place. AddNode, AddEdge and CreateNode commands with valid arguments
+  	 * are run straight from the buffer, without creating a String per line
+  	 * or token; all other lines go through executeCommand. Lines and tokens
+  	 * are split exactly as BufferedReader.readLine and StringTokenizer would.
+  	 * <p>
+  	 * Runs of ListNodes, ListChildren and FindPath commands, which do not
+  	 * modify any graph, are run concurrently; their output is still written
+  	 * in the order of the input.
      * @effects Executes the commands read from the input and writes
      * 		    results to the output.
      * @throws IOException - if the input or output sources encounter an
@@ -43,51 +159,452 @@ public class TestDriver {
      */
   	public void runTests() throws IOException {
 
-    	String inputLine;
-		while ((inputLine = input.readLine()) != null) {
+		try {
+			runLines();
+		} finally {
+			output.flush();
+		}
+  	}
+
+
+	/**
+	 * Executes the commands of all lines of the input.
+	 */
+	private void runLines() throws IOException {
+		while (nextLine()) {
 			// echo blank and comment lines
-      		if (inputLine.trim().length() == 0 ||
-      		    inputLine.charAt(0) == '#') {
-        		output.println(inputLine);
-        		continue;
-      		}
+			if (isBlankLine() || buf[lineStart] == '#') {
+				if (batch.isEmpty()) {
+					output.append(buf, lineStart, lineEnd).newline();
+				} else {
+					Query echo = new Query(null);
+					echo.result.append(buf, lineStart, lineEnd).newline();
+					addToBatch(echo);
+				}
+				continue;
+			}
 
-      		// separate the input line on white space
-      		StringTokenizer st = new StringTokenizer(inputLine);
-      		if (st.hasMoreTokens()) {
-        		String command = st.nextToken();
+			// separate the input line on white space
+			tokenize();
+			if (tokens == 0) {
+				continue;
+			}
+			int command = command();
+			if (command == LIST_NODES || command == LIST_CHILDREN || command == FIND_PATH) {
+				List<String> lineTokens = arguments(0);
+				Query query = new Query(lineTokens);
+				query.same = batchQueries.putIfAbsent(lineTokens, query);
+				addToBatch(query);
+				continue;
+			}
+			runBatch();
+			try {
+				if (!executeFast(command)) {
+					executeCommand(token(0), arguments(1));
+				}
+			} catch (Exception e) {
+				output.println("Exception: " + e.toString());
+			}
+		}
+		runBatch();
+	}
 
-        		List<String> arguments = new ArrayList<>();
-        		while (st.hasMoreTokens())
-          			arguments.add(st.nextToken());
 
-        		executeCommand(command, arguments);
-      		}
-    	}
+	private void addToBatch(Query query) {
+		batch.add(query);
+		if (batch.size() == MAX_BATCH) {
+			runBatch();
+		}
+	}
 
-    	output.flush();
-  	}
+
+	/**
+	 * Runs the commands of the batch and writes the output of all its lines
+	 * in input order. No graph changes while they run, so they run
+	 * concurrently, and a command which is repeated in the batch only runs once.
+	 * @effects writes the output of the batch and empties it
+	 * @throws Error if a command of the batch threw one; the output of the
+	 *         lines before it is written first
+	 */
+	private void runBatch() {
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			List<Query> distinct = new ArrayList<>();
+			for (Query query : batch) {
+				if (query.tokens != null && query.same == null) {
+					distinct.add(query);
+				}
+			}
+			// FindPath commands an earlier one already found the path of are
+			// answered here; the rest run concurrently, and the paths they
+			// find are kept for later batches
+			List<Query> remaining = new ArrayList<>();
+			for (Query query : distinct) {
+				if (!executeFound(query)) {
+					remaining.add(query);
+				}
+			}
+			if (remaining.size() == 1) {
+				execute(remaining.get(0));
+			} else {
+				remaining.parallelStream().forEach(this::execute);
+			}
+			for (Query query : remaining) {
+				PathQuery path = query.path;
+				if (path != null && path.searched) {
+					foundPaths.put(query.tokens, new FoundPath(
+							graphs.get(path.graphName).getVersion(), namesVersion, path.result));
+				}
+			}
+			for (Query query : batch) {
+				Query source = query.same != null ? query.same : query;
+				if (source.error != null) {
+					throw source.error;
+				}
+				output.append(source.result);
+			}
+		} finally {
+			batch.clear();
+			batchQueries.clear();
+		}
+	}
+
+
+	/**
+	 * Runs a read-only command of the batch, writing its output to its
+	 * result. Other commands may run at the same time.
+	 */
+	private void execute(Query query) {
+		List<String> arguments = query.tokens.subList(1, query.tokens.size());
+		try {
+			switch (query.tokens.get(0)) {
+				case "ListNodes":
+					listNodes(arguments, query.result);
+					break;
+				case "ListChildren":
+					listChildren(arguments, query.result);
+					break;
+				default:
+					searchPath(query, arguments);
+			}
+		} catch (Exception e) {
+			query.result.println("Exception: " + e.toString());
+		} catch (Error e) {
+			query.error = e;
+		}
+	}
+
+
+	/**
+	 * Returns the number of FindPath commands answered by the path an
+	 * earlier one found, for tests.
+	 */
+	long getFoundPathHits() {
+		return foundPathHits;
+	}
+
+
+	/**
+	 * Returns the number of valid FindPath commands which were searched, for tests.
+	 */
+	long getFoundPathMisses() {
+		return foundPathMisses;
+	}
+
+
+	/**
+	 * Runs a FindPath command of the batch if an earlier command with the
+	 * same tokens found its path, and neither the graph nor the names it
+	 * used changed since. Must be called by the thread running the batch.
+	 * @return true if the command was run
+	 */
+	private boolean executeFound(Query query) {
+		if (!query.tokens.get(0).equals("FindPath")) {
+			return false;
+		}
+		try {
+			query.path = pathQuery(query.tokens.subList(1, query.tokens.size()));
+		} catch (RuntimeException e) {
+			// execute reports it
+			return false;
+		}
+		FoundPath found = foundPaths.get(query.tokens);
+		if (found == null || found.namesVersion != namesVersion ||
+				found.graphVersion != graphs.get(query.path.graphName).getVersion()) {
+			foundPathMisses++;
+			return false;
+		}
+		foundPathHits++;
+		writePath(query.path.graphName, found.path, query.result);
+		return true;
+	}
+
+
+	/**
+	 * Finds the next line of the input, reading more of it as needed.
+	 * @return false if the input is exhausted
+	 */
+	private boolean nextLine() throws IOException {
+		int scan = pos;
+		while (true) {
+			for (int i = scan; i < bufEnd; i++) {
+				char c = buf[i];
+				if (c == '\n' || c == '\r') {
+					if (c == '\r' && i + 1 == bufEnd && !eof) {
+						// a '\n' may follow in the next chunk
+						break;
+					}
+					lineStart = pos;
+					lineEnd = i;
+					pos = c == '\r' && i + 1 < bufEnd && buf[i + 1] == '\n' ? i + 2 : i + 1;
+					return true;
+				}
+			}
+			if (eof) {
+				if (pos == bufEnd) {
+					return false;
+				}
+				// the last line has no terminator
+				lineStart = pos;
+				lineEnd = bufEnd;
+				pos = bufEnd;
+				return true;
+			}
+			// keep the partial line at the start of the buffer and read more
+			int partial = bufEnd - pos;
+			if (partial == buf.length) {
+				buf = Arrays.copyOf(buf, 2 * buf.length);
+			} else if (pos > 0) {
+				System.arraycopy(buf, pos, buf, 0, partial);
+			}
+			bufEnd = partial;
+			pos = 0;
+			scan = 0;
+			int read = input.read(buf, bufEnd, buf.length - bufEnd);
+			if (read < 0) {
+				eof = true;
+			} else {
+				bufEnd += read;
+			}
+		}
+	}
+
+
+	/**
+	 * Returns whether the current line only has white space, as String.trim sees it.
+	 */
+	private boolean isBlankLine() {
+		for (int i = lineStart; i < lineEnd; i++) {
+			if (buf[i] > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	private static boolean isDelimiter(char c) {
+		// the default delimiters of StringTokenizer
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+	}
+
+
+	/**
+	 * Splits the current line into tokens.
+	 */
+	private void tokenize() {
+		tokens = 0;
+		int i = lineStart;
+		while (true) {
+			while (i < lineEnd && isDelimiter(buf[i])) {
+				i++;
+			}
+			if (i == lineEnd) {
+				return;
+			}
+			if (tokens == tokenStart.length) {
+				tokenStart = Arrays.copyOf(tokenStart, 2 * tokens);
+				tokenEnd = Arrays.copyOf(tokenEnd, 2 * tokens);
+			}
+			tokenStart[tokens] = i;
+			while (i < lineEnd && !isDelimiter(buf[i])) {
+				i++;
+			}
+			tokenEnd[tokens++] = i;
+		}
+	}
+
+
+	private String token(int index) {
+		return new String(buf, tokenStart[index], tokenEnd[index] - tokenStart[index]);
+	}
+
+
+	/**
+	 * Returns the tokens from the given one on, as Strings.
+	 */
+	private List<String> arguments(int from) {
+		List<String> arguments = new ArrayList<>(tokens);
+		for (int i = from; i < tokens; i++) {
+			arguments.add(token(i));
+		}
+		return arguments;
+	}
+
+
+	/**
+	 * Returns the dispatch constant of the command token.
+	 */
+	private int command() {
+		int from = tokenStart[0];
+		int length = tokenEnd[0] - from;
+		for (int c = 0; c < COMMANDS.length; c++) {
+			String name = COMMANDS[c];
+			if (name.length() == length && matches(name, from)) {
+				return c;
+			}
+		}
+		return UNRECOGNIZED;
+	}
+
+
+	private boolean matches(String name, int from) {
+		for (int i = 0; i < name.length(); i++) {
+			if (buf[from + i] != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Runs the current command straight from the buffer if it is a common
+	 * command whose arguments are all valid.
+	 * @return false if the command must be run by executeCommand instead,
+	 *         in which case it has had no effect
+	 */
+	private boolean executeFast(int command) {
+		switch (command) {
+			case ADD_EDGE:
+				return tokens == 4 && addEdgeFast();
+			case ADD_NODE:
+				return tokens == 3 && addNodeFast();
+			case CREATE_NODE:
+				return tokens == 3 && createNodeFast();
+			default:
+				return false;
+		}
+	}
+
+
+	private <V> V lookup(NameTable<V> table, int token) {
+		return table.get(buf, tokenStart[token], tokenEnd[token]);
+	}
+
+
+	private void appendToken(int token) {
+		output.append(buf, tokenStart[token], tokenEnd[token]);
+	}
+
+
+	private boolean addEdgeFast() {
+		Graph<WeightedNode> graph = lookup(graphs, 1);
+		WeightedNode parent = lookup(nodes, 2);
+		WeightedNode child = lookup(nodes, 3);
+		if (graph == null || parent == null || child == null ||
+				!graph.containsNode(parent) || !graph.containsNode(child)) {
+			return false;
+		}
+		if (graph.addEdge(parent, child)) {
+			output.append("added edge from ");
+			appendToken(2);
+			output.append(" to ");
+			appendToken(3);
+			output.append(" in ");
+			appendToken(1);
+			output.newline();
+		}
+		return true;
+	}
+
+
+	private boolean addNodeFast() {
+		Graph<WeightedNode> graph = lookup(graphs, 1);
+		WeightedNode node = lookup(nodes, 2);
+		if (graph == null || node == null) {
+			return false;
+		}
+		if (!graph.containsNode(node)) {
+			graph.addNode(node);
+			output.append("added node ");
+			appendToken(2);
+			output.append(" to ");
+			appendToken(1);
+			output.newline();
+		}
+		return true;
+	}
+
+
+	private boolean createNodeFast() {
+		// only plain decimal costs which cannot overflow are parsed here
+		int from = tokenStart[2];
+		int to = tokenEnd[2];
+		boolean negative = buf[from] == '-';
+		int digits = negative ? from + 1 : from;
+		if (digits == to || to - digits > 9) {
+			return false;
+		}
+		int cost = 0;
+		for (int i = digits; i < to; i++) {
+			char c = buf[i];
+			if (c < '0' || c > '9') {
+				return false;
+			}
+			cost = 10 * cost + (c - '0');
+		}
+		String nodeName = token(1);
+		if (nodes.containsKey(nodeName)) {
+			namesVersion++;
+		}
+		nodes.put(nodeName, new WeightedNode(nodeName, negative ? -cost : cost));
+		output.append("created node ").append(nodeName).append(" with cost ");
+		appendToken(2);
+		output.newline();
+		return true;
+	}
 
 
   	private void executeCommand(String command, List<String> arguments) {
 
     	try {
-      		if (command.equals("CreateGraph")) {
-        		createGraph(arguments);
-      		} else if (command.equals("CreateNode")) {
-        		createNode(arguments);
-      		} else if (command.equals("AddNode")) {
-        		addNode(arguments);
-      		} else if (command.equals("AddEdge")) {
-        		addEdge(arguments);
-      		} else if (command.equals("ListNodes")) {
-        		listNodes(arguments);
-      		} else if (command.equals("ListChildren")) {
-        		listChildren(arguments);
-      		} else if (command.equals("FindPath")) {
-        		findPath(arguments);
-      		} else {
-        		output.println("Unrecognized command: " + command);
+      		switch (command) {
+      			case "CreateGraph":
+        			createGraph(arguments);
+        			break;
+      			case "CreateNode":
+        			createNode(arguments);
+        			break;
+      			case "AddNode":
+        			addNode(arguments);
+        			break;
+      			case "AddEdge":
+        			addEdge(arguments);
+        			break;
+      			case "ListNodes":
+        			listNodes(arguments, output);
+        			break;
+      			case "ListChildren":
+        			listChildren(arguments, output);
+        			break;
+      			case "FindPath":
+        			findPath(arguments, output);
+        			break;
+      			default:
+        			output.println("Unrecognized command: " + command);
       		}
     	} catch (Exception e) {
       		output.println("Exception: " + e.toString());
@@ -108,6 +625,9 @@ public class TestDriver {
 
   	private void createGraph(String graphName) {
 
+		if (graphs.containsKey(graphName)) {
+			namesVersion++;
+		}
 		graphs.put(graphName, new Graph<WeightedNode>());
 		output.println("created graph " + graphName);
   	}
@@ -128,6 +648,9 @@ public class TestDriver {
  	private void createNode(String nodeName, String cost) {
 
 		WeightedNode node = new WeightedNode(nodeName, Integer.parseInt(cost));
+		if (nodes.containsKey(nodeName)) {
+			namesVersion++;
+		}
 		nodes.put(nodeName, node);
 		output.println("created node " + nodeName + " with cost " + cost);
  		
@@ -203,34 +726,32 @@ public class TestDriver {
   	}
 
 
-  	private void listNodes(List<String> arguments) {
+  	private void listNodes(List<String> arguments, CommandOutput output) {
 
     	if (arguments.size() != 1)
       		throw new CommandException(
 				"Bad arguments to listNodes: " + arguments);
 
     	String graphName = arguments.get(0);
-    	listNodes(graphName);
+    	listNodes(graphName, output);
   	}
 
 
-  	private void listNodes(String graphName) {
+  	private void listNodes(String graphName, CommandOutput output) {
 
 		checkGraph (graphName);
 		Graph<WeightedNode> graph = graphs.get(graphName);
 		ArrayList<WeightedNode> nodes = graph.getListNodes();
-		StringBuilder outStr = new StringBuilder();
-		outStr.append(graphName).append(" contains:");
+		output.append(graphName).append(" contains:");
 		//Adding the nodes names
 		for (WeightedNode node : nodes) {
-			outStr.append(" ").append(node.getName());
+			output.append(' ').append(node.getName());
 		}
-
-		output.println(outStr);
+		output.newline();
   	}
 
 
-  	private void listChildren(List<String> arguments) {
+  	private void listChildren(List<String> arguments, CommandOutput output) {
 
     	if (arguments.size() != 2)
       		throw new CommandException(
@@ -238,31 +759,62 @@ public class TestDriver {
 
     	String graphName = arguments.get(0);
     	String parentName = arguments.get(1);
-    	listChildren(graphName, parentName);
+    	listChildren(graphName, parentName, output);
   	}
 
 
-  	private void listChildren(String graphName, String parentName) {
+  	private void listChildren(String graphName, String parentName, CommandOutput output) {
 
 		checkGraph (graphName);
 		Graph<WeightedNode> graph = graphs.get(graphName);
 		WeightedNode parent = nodes.get(parentName);
-		ArrayList<WeightedNode> nodes = new ArrayList<>(graph.getListChildren(parent));
+		List<WeightedNode> nodes = graph.getListChildren(parent);
 
-		StringBuilder outStr = new StringBuilder();
-		outStr.append("the children of ");
-		outStr.append(parentName).append(" in ");
-		outStr.append(graphName).append(" are:");
+		output.append("the children of ");
+		output.append(parentName).append(" in ");
+		output.append(graphName).append(" are:");
 		//Adding the children names
 		for (WeightedNode node : nodes) {
-			outStr.append(" ").append(node.getName());
+			output.append(' ').append(node.getName());
 		}
-		output.println(outStr);
+		output.newline();
   		
   	}
 
 
-  	private void findPath(List<String> arguments) {
+  	private void findPath(List<String> arguments, CommandOutput output) {
+
+		PathQuery query = pathQuery(arguments);
+		writePath(query.graphName,
+				new PathFinder<>(graphs.get(query.graphName)).findShortestPath(query.sources, query.goals),
+				output);
+  	}
+
+
+  	/**
+  	 * Runs a FindPath command of the batch while other commands may run at
+  	 * the same time. A PathFinder cannot be used by several threads at once,
+  	 * so the path is searched by a new PathFinder and kept in query.path,
+  	 * for runBatch to keep.
+  	 */
+  	private void searchPath(Query query, List<String> arguments) {
+
+		if (query.path == null) {
+			query.path = pathQuery(arguments);
+		}
+		PathQuery path = query.path;
+		path.result = new PathFinder<>(graphs.get(path.graphName)).findShortestPath(path.sources, path.goals);
+		path.searched = true;
+		writePath(path.graphName, path.result, query.result);
+  	}
+
+
+  	/**
+  	 * Parses the arguments of a FindPath command.
+  	 * @throws CommandException if they are malformed
+  	 * @throws IllegalArgumentException if the graph or a node does not exist
+  	 */
+  	private PathQuery pathQuery(List<String> arguments) {
 
     	String graphName;
     	List<String> sourceArgs = new ArrayList<>();
@@ -295,18 +847,14 @@ public class TestDriver {
       		throw new CommandException(
 				"Too few dest args for FindPath");
 
-    	findPath(graphName, sourceArgs, destArgs);
+    	return pathQuery(graphName, sourceArgs, destArgs);
   	}
 
 
-  	private void findPath(String graphName, List<String> sourceArgs,
+  	private PathQuery pathQuery(String graphName, List<String> sourceArgs,
   						  List<String> destArgs) {
 
 		checkGraph (graphName);
-		Graph<WeightedNode> graph = graphs.get(graphName);
-
-		PathFinder<WeightedNode> pathFinder = new PathFinder<>(graph);
-		WeightedNodePath optPath = null;
 		Set<WeightedNodePath> srcPaths = new HashSet<>();
 		Set<WeightedNode> dstNodes = new HashSet<>();
 		for (String sourceArg : sourceArgs) {
@@ -319,18 +867,22 @@ public class TestDriver {
 			WeightedNode dst = nodes.get(destArg);
 			dstNodes.add(dst);
 		}
-		optPath = pathFinder.findShortestPath(srcPaths,dstNodes);
-		StringBuilder outStr = new StringBuilder();
+		return new PathQuery(graphName, srcPaths, dstNodes);
+	  }
+
+
+  	private void writePath(String graphName, WeightedNodePath optPath, CommandOutput output) {
+
 		if (optPath == null) {
-			outStr.append("no path found in " + graphName);
+			output.append("no path found in ").append(graphName);
 		}
 		else {
-			outStr.append("shortest path in " + graphName + ":");
+			output.append("shortest path in ").append(graphName).append(':');
 			for (WeightedNode weightedNode : optPath) {
-				outStr.append(" ").append(weightedNode.getName());
+				output.append(' ').append(weightedNode.getName());
 			}
 		}
-		output.println(outStr);
+		output.newline();
 	  }
   		// ___ = graphs.get(graphName);
   		// ___ = nodes.get(sourceArgs.get(i));
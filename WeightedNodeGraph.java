@@ -0,0 +1,578 @@
+package homework2;
+
+import java.util.*;
+
+/**
+ * A directed graph of WeightedNodes which stores its nodes as primitives
+ * instead of objects. Every node has a dense int id, in the order the nodes
+ * were added:
+ * <ul>
+ * <li>the cost of node i is costs[i];</li>
+ * <li>its name is nameChars[nameStarts[i] .. nameStarts[i+1]), all names
+ *     sharing one char array;</li>
+ * <li>names are mapped to ids by an open-addressing hash table of ints;</li>
+ * <li>the children (and parents) of a node are a block of ids in one shared
+ *     int array, kept in the order of their names, so they are listed sorted
+ *     without sorting them. Like the children of a CompactGraph, they are
+ *     read by index: childAt(k) for childrenStart(id) &lt;= k &lt; childrenEnd(id).</li>
+ * </ul>
+ * A node takes about 35 bytes plus two bytes per character of its name,
+ * instead of a WeightedNode, a String and the entries of the maps of a Graph.
+ * An edge takes 8 bytes plus the free room of the blocks, about 13 bytes in
+ * all: a block has room for its number of ids rounded up to a power of two,
+ * and moves to the end of the shared array when it is full.
+ * WeightedNodePathFinder searches it by id.
+ * <p>
+ * Node names are unique in a WeightedNodeGraph. As a DirectedGraph it holds
+ * the WeightedNodes made of the names and costs of its nodes; they are
+ * created whenever they are asked for, so the id based methods should be
+ * preferred.
+ */
+public final class WeightedNodeGraph implements DirectedGraph<WeightedNode>, IdGraph<WeightedNode> {
+
+    /**
+     * Representation Invariant:
+     * 0 <= size <= costs.length && nameStarts.length >= costs.length + 1
+     * nameStarts[0] == 0 and nameStarts[0..size] is non-decreasing
+     * the names of the nodes are distinct
+     * table.length is a power of two, size < table.length * 3 / 4, and the
+     * non-zero entries of table are exactly id + 1 for every node id, each
+     * found by probing linearly from the hash of its name
+     * children and parents satisfy the representation invariant of
+     * Adjacency for size nodes, and each block lists its ids in increasing
+     * order of their names
+     * j is in the children block of i iff i is in the parents block of j,
+     * and edgeCount is the total number of children
+     */
+
+    /**
+     * Abstraction Function:
+     * A WeightedNodeGraph is a directed graph G = (V, E)
+     * where V = {new WeightedNode(name(i), costs[i]) | 0 <= i < size}
+     * and E = {(node i, node j) | j is in the children block of i}
+     */
+
+    private static final int NONE = -1;
+
+    private int size;
+    private int[] costs = new int[16];
+    private char[] nameChars = new char[128];
+    private int[] nameStarts = new int[17];
+    private int[] table = new int[32];
+
+    private int edgeCount;
+    private final Adjacency children = new Adjacency();
+    private final Adjacency parents = new Adjacency();
+
+    private long version;
+
+    /**
+     * Checks the Representation Invariant
+     */
+    private void checkRep() {
+        assert 0 <= size && size <= costs.length && nameStarts.length >= costs.length + 1 :
+                "every node must have a cost and a name";
+        assert size < table.length * 3 / 4 : "the name table must have room";
+        assert children.blocks.length >= 2 * costs.length && parents.blocks.length >= 2 * costs.length :
+                "every node must have a block of children and of parents";
+        assert edgeCount <= children.top && edgeCount <= parents.top : "edges must fit their blocks";
+    }
+
+    /**
+     * Creates an empty graph.
+     * @effects creates an empty graph
+     */
+    public WeightedNodeGraph() {
+        checkRep();
+    }
+
+    /**
+     * Adds a node to the graph.
+     * @requires name != null and no node named name exists yet in the graph
+     * @modifies this
+     * @effects adds a node with the given name and cost to the graph
+     * @return the id of the new node
+     * @throws IllegalArgumentException when a node with this name already exists
+     */
+    public int addNode(String name, int cost) {
+        if (name == null) {
+            throw new IllegalArgumentException("Names cannot be null");
+        }
+        int hash = name.hashCode();
+        int slot = find(name, hash);
+        if (table[slot] != 0) {
+            throw new IllegalArgumentException("The node already exists");
+        }
+        int id = size;
+        if (id == costs.length) {
+            int capacity = 2 * id;
+            costs = Arrays.copyOf(costs, capacity);
+            nameStarts = Arrays.copyOf(nameStarts, capacity + 1);
+            children.growNodes(capacity);
+            parents.growNodes(capacity);
+        }
+        int start = nameStarts[id];
+        if (start + name.length() > nameChars.length) {
+            nameChars = Arrays.copyOf(nameChars, Math.max(2 * nameChars.length, start + name.length()));
+        }
+        name.getChars(0, name.length(), nameChars, start);
+        nameStarts[id + 1] = start + name.length();
+        costs[id] = cost;
+        table[slot] = id + 1;
+        size++;
+        if (size >= table.length * 3 / 4) {
+            rehash();
+        }
+        version++;
+        checkRep();
+        return id;
+    }
+
+    /**
+     * Adds a node to the graph.
+     * @requires node != null and no node named node.getName() exists yet in the graph
+     * @see #addNode(String, int)
+     */
+    public int addNode(WeightedNode node) {
+        if (node == null) {
+            throw new IllegalArgumentException("Nodes cannot be null");
+        }
+        return addNode(node.getName(), node.getCost());
+    }
+
+    /**
+     * Adds a directed edge from parent to child. This takes time linear in
+     * the number of children of parent and parents of child, which are moved
+     * to keep them sorted.
+     * @requires parent and child are ids of nodes of the graph
+     * @modifies this
+     * @effects adds a directed edge from parent to child
+     * @return true if the edge was added, false if it already existed
+     */
+    public boolean addEdge(int parent, int child) {
+        checkId(parent);
+        checkId(child);
+        int index = indexIn(children, parent, child);
+        if (index >= 0) {
+            return false;
+        }
+        children.insert(parent, -index - 1, child, size);
+        parents.insert(child, -indexIn(parents, child, parent) - 1, parent, size);
+        edgeCount++;
+        version++;
+        checkRep();
+        return true;
+    }
+
+    /**
+     * Adds a directed edge between the nodes with the given names.
+     * @requires nodes with both names exist in the graph
+     * @see #addEdge(int, int)
+     */
+    public boolean addEdge(String parent, String child) {
+        int parentId = idOf(parent);
+        int childId = idOf(child);
+        if (parentId < 0 || childId < 0) {
+            throw new IllegalArgumentException("Both nodes must be in the graph");
+        }
+        return addEdge(parentId, childId);
+    }
+
+    /**
+     * Returns the index of id in the block of node in adjacency, or
+     * -(the index where it would be inserted) - 1 if it is not there.
+     */
+    private int indexIn(Adjacency adjacency, int node, int id) {
+        int[] ids = adjacency.ids;
+        int from = adjacency.blocks[2 * node];
+        int low = 0;
+        int high = adjacency.blocks[2 * node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = compareNames(ids[from + mid], id);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Compares the names of two nodes as String.compareTo does, which is the
+     * order of the nodes since their names are distinct.
+     */
+    private int compareNames(int a, int b) {
+        if (a == b) {
+            return 0;
+        }
+        int i = nameStarts[a];
+        int j = nameStarts[b];
+        int aEnd = nameStarts[a + 1];
+        int bEnd = nameStarts[b + 1];
+        for (; i < aEnd && j < bEnd; i++, j++) {
+            if (nameChars[i] != nameChars[j]) {
+                return nameChars[i] - nameChars[j];
+            }
+        }
+        return (aEnd - nameStarts[a]) - (bEnd - nameStarts[b]);
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("No node with id " + id);
+        }
+    }
+
+    /**
+     * Returns the table slot of the given name, or the empty slot where it
+     * would be inserted.
+     */
+    private int find(String name, int hash) {
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        while (table[slot] != 0 && !nameEquals(table[slot] - 1, name)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean nameEquals(int id, String name) {
+        int start = nameStarts[id];
+        if (nameStarts[id + 1] - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (nameChars[start + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns String.hashCode of the name of node id, without creating it.
+     */
+    private int nameHash(int id) {
+        int hash = 0;
+        for (int i = nameStarts[id]; i < nameStarts[id + 1]; i++) {
+            hash = 31 * hash + nameChars[i];
+        }
+        return hash;
+    }
+
+    private void rehash() {
+        table = new int[2 * table.length];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(nameHash(id)) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Returns the id of the node with the given name.
+     * @return the id of the node named name, or -1 if there is none
+     */
+    public int idOf(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        return table[find(name, name.hashCode())] - 1;
+    }
+
+    /**
+     * Returns the id of the given node.
+     * @return the id of node, or -1 if it is not in the graph
+     */
+    public int idOf(WeightedNode node) {
+        if (node == null) {
+            return NONE;
+        }
+        int id = idOf(node.getName());
+        return id >= 0 && costs[id] == node.getCost() ? id : NONE;
+    }
+
+    /**
+     * Returns the cost of node id.
+     * @requires 0 <= id < size()
+     */
+    public int costOf(int id) {
+        return costs[id];
+    }
+
+    /**
+     * Returns the name of node id, as a new String.
+     * @requires 0 <= id < size()
+     */
+    public String nameOf(int id) {
+        return new String(nameChars, nameStarts[id], nameStarts[id + 1] - nameStarts[id]);
+    }
+
+    /**
+     * Returns node id as a WeightedNode, which is created by this call.
+     * @requires 0 <= id < size()
+     */
+    public WeightedNode nodeAt(int id) {
+        return new WeightedNode(nameOf(id), costs[id]);
+    }
+
+    /**
+     * Returns the index of the first child of a node, which children are
+     * read at by childAt:
+     * <pre>
+     *   for (int k = graph.childrenStart(u), end = graph.childrenEnd(u); k &lt; end; k++) {
+     *       int child = graph.childAt(k);
+     *   }
+     * </pre>
+     * The children are sorted, and the indices are only valid until the next
+     * edge is added to the graph.
+     * @requires 0 <= id < size()
+     */
+    public int childrenStart(int id) {
+        return children.blocks[2 * id];
+    }
+
+    /**
+     * Returns the index one past the last child of a node.
+     * @requires 0 <= id < size()
+     */
+    public int childrenEnd(int id) {
+        return children.blocks[2 * id] + children.blocks[2 * id + 1];
+    }
+
+    /**
+     * Returns the id of the child stored at the given index.
+     * @requires childrenStart(u) <= index < childrenEnd(u) for some node u
+     */
+    public int childAt(int index) {
+        return children.ids[index];
+    }
+
+    /**
+     * Returns the index of the first parent of a node, which parents are read
+     * at by parentAt, as children are.
+     * @requires 0 <= id < size()
+     */
+    public int parentsStart(int id) {
+        return parents.blocks[2 * id];
+    }
+
+    /**
+     * Returns the index one past the last parent of a node.
+     * @requires 0 <= id < size()
+     */
+    public int parentsEnd(int id) {
+        return parents.blocks[2 * id] + parents.blocks[2 * id + 1];
+    }
+
+    /**
+     * Returns the id of the parent stored at the given index.
+     * @requires parentsStart(u) <= index < parentsEnd(u) for some node u
+     */
+    public int parentAt(int index) {
+        return parents.ids[index];
+    }
+
+    /**
+     * Returns whether there is an edge from parent to child, in time
+     * logarithmic in the number of children of parent.
+     * @requires parent and child are ids of nodes of the graph
+     */
+    public boolean containsEdge(int parent, int child) {
+        return indexIn(children, parent, child) >= 0;
+    }
+
+    /**
+     * Returns the number of edges in the graph.
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns a sorted list of all nodes in the graph.
+     */
+    public List<WeightedNode> getListNodes() {
+        List<WeightedNode> nodes = new ArrayList<>(size);
+        for (int id = 0; id < size; id++) {
+            nodes.add(nodeAt(id));
+        }
+        Collections.sort(nodes);
+        return nodes;
+    }
+
+    /**
+     * Returns a sorted list of the children for the given node.
+     * @requires node exists in the graph and node != null
+     */
+    public List<WeightedNode> getListChildren(WeightedNode node) {
+        return nodesOf(children, idOf(node));
+    }
+
+    /**
+     * Returns a sorted list of the parents for the given node, i.e. the nodes
+     * which have an edge to it.
+     * @requires node exists in the graph and node != null
+     */
+    public List<WeightedNode> getListParents(WeightedNode node) {
+        return nodesOf(parents, idOf(node));
+    }
+
+    /**
+     * Returns a list of the nodes in the block of the given node, which is
+     * already sorted.
+     */
+    private List<WeightedNode> nodesOf(Adjacency adjacency, int id) {
+        int from = adjacency.blocks[2 * id];
+        int count = adjacency.blocks[2 * id + 1];
+        List<WeightedNode> nodes = new ArrayList<>(count);
+        for (int k = from; k < from + count; k++) {
+            nodes.add(nodeAt(adjacency.ids[k]));
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns whether this graph contains the given node.
+     * @param node the node to check
+     * @return true if this graph contains node, false otherwise
+     */
+    public boolean containsNode(WeightedNode node) {
+        return idOf(node) >= 0;
+    }
+
+    /**
+     * Returns whether this graph contains an edge from parent to child.
+     * @param parent the parent node
+     * @param child the child node
+     * @return true if there is an edge from parent to child, false otherwise
+     */
+    public boolean containsEdge(WeightedNode parent, WeightedNode child) {
+        int parentId = idOf(parent);
+        int childId = idOf(child);
+        return parentId >= 0 && childId >= 0 && containsEdge(parentId, childId);
+    }
+
+    /**
+     * Returns the number of nodes in this graph.
+     * @return the number of nodes in this graph
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether this graph is empty.
+     * @return true if this graph contains no nodes, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the modification version of this graph, which grows every time
+     * a node or an edge is added.
+     * @return the modification version of this graph
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * The children (or the parents) of every node, as blocks of ids in one
+     * shared array.
+     */
+    private static final class Adjacency {
+
+        /**
+         * Representation Invariant:
+         * for every node i, with start = blocks[2 * i] and count =
+         * blocks[2 * i + 1], count >= 0 and ids[start .. start + room(count))
+         * lies within ids[0 .. top) and overlaps no other node's block
+         * Abstraction Function:
+         * the ids of node i are ids[start .. start + count)
+         */
+
+        int[] ids = new int[16];
+        int top;
+        // the start and count of each node next to each other, so that
+        // reading a block costs one cache miss less
+        int[] blocks = new int[32];
+
+        void growNodes(int capacity) {
+            blocks = Arrays.copyOf(blocks, 2 * capacity);
+        }
+
+        /**
+         * Inserts id at the given index of the block of node. A full block
+         * first moves to the end of ids, with twice the room.
+         * @requires 0 <= index <= the count of node && 0 <= node < nodes
+         * @modifies this
+         * @effects inserts id at index among the ids of node
+         */
+        void insert(int node, int index, int id, int nodes) {
+            int n = blocks[2 * node + 1];
+            if (n == room(n)) {
+                moveToEnd(node, room(n + 1), nodes);
+            }
+            int from = blocks[2 * node];
+            System.arraycopy(ids, from + index, ids, from + index + 1, n - index);
+            ids[from + index] = id;
+            blocks[2 * node + 1] = n + 1;
+        }
+
+        private void moveToEnd(int node, int capacity, int nodes) {
+            if (top + capacity > ids.length) {
+                compact(capacity, nodes);
+            }
+            System.arraycopy(ids, blocks[2 * node], ids, top, blocks[2 * node + 1]);
+            blocks[2 * node] = top;
+            top += capacity;
+        }
+
+        /**
+         * Copies the blocks of all nodes next to each other into a new ids
+         * array, leaving out the blocks abandoned by moves, with room for
+         * extra more ids and half as many again after them.
+         */
+        private void compact(int extra, int nodes) {
+            long used = 0;
+            for (int i = 0; i < nodes; i++) {
+                used += room(blocks[2 * i + 1]);
+            }
+            // grow by half unless the abandoned blocks free enough room
+            long length = Math.max(Math.max(16, ids.length), used + used / 2 + extra);
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Too many edges");
+            }
+            int[] compacted = new int[(int) length];
+            int next = 0;
+            for (int i = 0; i < nodes; i++) {
+                System.arraycopy(ids, blocks[2 * i], compacted, next, blocks[2 * i + 1]);
+                blocks[2 * i] = next;
+                next += room(blocks[2 * i + 1]);
+            }
+            ids = compacted;
+            top = next;
+        }
+
+        /**
+         * Returns the room of a block of count ids: count rounded up to a
+         * power of two, or 0 for an empty block.
+         */
+        static int room(int count) {
+            return count <= 1 ? count : Integer.highestOneBit(count - 1) << 1;
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package homework2;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * A WeightedNodePath characterizes a path of WeightedNodes. The cost for
@@ -16,7 +16,11 @@ public class WeightedNodePath implements Path<WeightedNode, WeightedNodePath> {
 	// RepInvariant:
   	//   (node != null) &&
   	//   (path == null) ==> (cost == node.cost) &&
-  	//   (path != null) ==> (cost == node.cost + path.cost)
+  	//   (path != null) ==> (cost == node.cost + path.cost) &&
+  	//   (path == null) ==> (length == 1) &&
+  	//   (path != null) ==> (length == 1 + path.length) &&
+  	//   (path == null) ==> (hash == node.hashCode()) &&
+  	//   (path != null) ==> (hash == node.hashCode() + 13 * path.hash)
   	//
 
   	// Abstraction Function:
@@ -53,6 +57,16 @@ public class WeightedNodePath implements Path<WeightedNode, WeightedNodePath> {
   	 */
   	private final int cost;
 
+  	/**
+  	 * The number of nodes in this WeightedNodePath.
+  	 */
+  	private final int length;
+
+  	/**
+  	 * The hash code of this path, which depends on all of its nodes.
+  	 */
+  	private final int hash;
+
 
   	/**
      * Creates a WeightedNodePath containing one node.
@@ -79,10 +93,15 @@ public class WeightedNodePath implements Path<WeightedNode, WeightedNodePath> {
     	this.node = node;
     	this.path = path;
 
-    	if (path != null)
+    	if (path != null) {
       		this.cost = node.getCost() + path.cost;
-    	else
+      		this.length = 1 + path.length;
+      		this.hash = node.hashCode() + 13 * path.hash;
+    	} else {
       		this.cost = node.getCost();
+      		this.length = 1;
+      		this.hash = node.hashCode();
+    	}
   	}
 
 	
@@ -107,19 +126,59 @@ public class WeightedNodePath implements Path<WeightedNode, WeightedNodePath> {
   	}
 
 
+  	/**
+  	 * Returns the number of nodes in this path.
+  	 * @return the length of this.elements
+  	 */
+  	public int length() {
+  		return this.length;
+  	}
+
+
+  	/**
+  	 * Returns the elements of this path in a new array. The array is not
+  	 * kept, so walking the prefixes of a long path does not keep an array
+  	 * for each of them.
+  	 */
+  	private WeightedNode[] elements() {
+  		WeightedNode[] result = new WeightedNode[length()];
+  		int i = result.length;
+  		for (WeightedNodePath curPath = this; curPath != null; curPath = curPath.path) {
+  			result[--i] = curPath.node;
+  		}
+  		return result;
+  	}
+
+
+  	/**
+  	 * Returns the elements of this path in a new array.
+  	 * @return an array of this.elements in order from start to end
+  	 */
+  	public WeightedNode[] toArray() {
+  		return elements();
+  	}
+
+
+  	/**
+  	 * Performs the given action for each element of this path in order from
+  	 * start to end, without creating an Iterator.
+  	 * @requires action != null
+  	 */
+  	public void forEachInOrder(Consumer<? super WeightedNode> action) {
+  		for (WeightedNode wn : elements()) {
+  			action.accept(wn);
+  		}
+  	}
+
+
   	/**
      * Returns an Iterator over the elements in the path .
      * @return an Iterator over the elements in the path in order from start
      *         to end.
      */
   	public Iterator<WeightedNode> iterator() {
-  		// reverse the linked list, so that elements are returned in order
-  		// from start to end of the path.
-  		List<WeightedNode> nodes = new LinkedList<WeightedNode>();
-  		for (WeightedNodePath curNode = this; curNode != null; curNode = curNode.path) {
-  			nodes.add(0, curNode.getEnd());
-  		}
-  		return nodes.iterator();
+  		// Arrays.asList does not support remove, so the array cannot change
+  		return Arrays.asList(elements()).iterator();
   	}
 
 
@@ -130,10 +189,10 @@ public class WeightedNodePath implements Path<WeightedNode, WeightedNodePath> {
 	 * 		   [WeightedNodePath: node1, node2, node3, ...].
 	 */
   	public String toString() {
-    	StringBuffer buff = new StringBuffer();
+    	StringBuilder buff = new StringBuilder(32 + 16 * length());
     	buff.append("[WeightedNodePath: ");
     	boolean first = true;
-    	for (WeightedNode wn : this) {
+    	for (WeightedNode wn : elements()) {
     		if (first)
     			first = false;
     		else
@@ -159,13 +218,23 @@ public class WeightedNodePath implements Path<WeightedNode, WeightedNodePath> {
 
 	/**
 	 * Standard equality operation.
+	 * Paths which differ in cost, length or hash code are told apart at
+	 * once; otherwise the nodes are compared from the end, until the two
+	 * paths reach a common prefix they share.
      * @return true iff wnp.elements is the same sequence as this.elements
      */
   	public boolean equals(WeightedNodePath wnp) {
-    	return (wnp != null) &&
-      		   this.node.equals(wnp.node) &&
-      		   (this.path == null ?
-      		   		wnp.path == null : this.path.equals(wnp.path));
+  		if (wnp == null || this.cost != wnp.cost ||
+  				this.length != wnp.length || this.hash != wnp.hash) {
+  			return false;
+  		}
+  		// both paths have the same length, so they reach their starts together
+  		for (WeightedNodePath a = this, b = wnp; a != b; a = a.path, b = b.path) {
+  			if (!a.node.equals(b.node)) {
+  				return false;
+  			}
+  		}
+  		return true;
   	}
 
 
@@ -174,7 +243,7 @@ public class WeightedNodePath implements Path<WeightedNode, WeightedNodePath> {
 	 * @return a hash code value for this.
 	 */
   	public int hashCode() {
-    	return node.hashCode() + (this.path == null ? 0 : 13*path.hashCode());
+    	return hash;
   	}
   	
   	
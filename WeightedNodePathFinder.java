@@ -0,0 +1,91 @@
+package homework2;
+
+import java.util.*;
+
+/**
+ * WeightedNodePathFinder finds shortest paths in a WeightedNodeGraph or an
+ * OffHeapGraph, with the same results as PathFinder on WeightedNodePaths.
+ * <p>
+ * The search is the one of CompactPathFinder, run on the node ids of the
+ * graph: the cost of a path is summed from the int costs of the graph as it
+ * is extended, and distances and predecessors live in a workspace of the
+ * finder which is reused across queries. Nodes are only created for the path
+ * that is returned, and not at all by the id based findShortestPath.
+ */
+public class WeightedNodePathFinder {
+
+    /**
+     * Representation Invariant:
+     * - finder != null
+     * - finder searches its graph with the costs of the graph's nodes
+     * Abstraction Function:
+     * WeightedNodePathFinder finds shortest paths in the graph of finder,
+     * where the cost of a path is the sum of the costs of its nodes.
+     */
+
+    private final CompactPathFinder<WeightedNode> finder;
+
+    /**
+     * Checks the representation invariant.
+     */
+    private void checkRep() {
+        assert finder != null : "finder cannot be null";
+    }
+
+    /**
+     * Creates a new WeightedNodePathFinder for the given graph. Nodes and
+     * edges added to the graph later are seen by later searches.
+     * @param graph the graph to find paths in
+     * @requires graph != null
+     * @effects creates a new WeightedNodePathFinder for the given graph
+     */
+    public WeightedNodePathFinder(WeightedNodeGraph graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        this.finder = CompactPathFinder.overIds(graph, graph::costOf);
+        checkRep();
+    }
+
+    /**
+     * Creates a new WeightedNodePathFinder for the given graph.
+     * @param graph the graph to find paths in
+     * @requires graph != null
+     * @effects creates a new WeightedNodePathFinder for the given graph
+     */
+    public WeightedNodePathFinder(OffHeapGraph graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        this.finder = CompactPathFinder.overIds(graph, graph::costOf);
+        checkRep();
+    }
+
+    /**
+     * Finds the shortest path from any start node to any goal node, by id.
+     * Every start node begins a path whose cost is its own cost.
+     * @param startIds the ids of the start nodes
+     * @param goalIds the ids of the goal nodes
+     * @requires startIds != null && goalIds != null && all ids are ids of
+     *           nodes of the graph
+     * @return the ids of the nodes of the shortest path from any start node to
+     *         any goal node, in order, or null if no path exists
+     */
+    public int[] findShortestPath(int[] startIds, int[] goalIds) {
+        return finder.findShortestPath(startIds, goalIds);
+    }
+
+    /**
+     * Finds the shortest path from any start node to any goal node.
+     * @param startPaths a set of initial paths (each containing one start node)
+     * @param goalNodes a set of goal nodes
+     * @requires all paths in startPaths are non-null and contain exactly one node &&
+     *          all nodes in goalNodes are non-null
+     * @return the shortest path from any start node to any goal node,
+     *         or null if no path exists
+     */
+    public WeightedNodePath findShortestPath(Set<WeightedNodePath> startPaths,
+                                             Set<WeightedNode> goalNodes) {
+        return finder.findShortestPath(startPaths, goalNodes);
+    }
+}
@@ -0,0 +1,446 @@
+package homework2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micro-benchmarks for Graph construction and PathFinder queries over
+ * synthetic graphs (see GraphGenerator).
+ * <p>
+ * The benchmarks are kept out of the main source tree. To run them, compile
+ * this directory together with the main sources, leaving out the JUnit tests
+ * (GraphTests and ScriptFileTests), and run, for example:
+ * <pre>
+ *   javac -encoding UTF-8 -d build $(ls *.java | grep -v 'Tests\.java$') bench/*.java
+ *   java -cp build homework2.GraphBenchmark 1000 10000 100000
+ * </pre>
+ * The arguments are the graph sizes to benchmark (default 1000 10000).
+ * Setting -Dbench.filter=text only runs the benchmarks whose name contains
+ * text, and -Dbench.millis=n changes the time spent measuring each one.
+ * <p>
+ * For every benchmark the throughput, the latency percentiles of single
+ * operations and the number of bytes allocated per operation are reported.
+ */
+public class GraphBenchmark {
+
+	private static final int OUT_DEGREE = 4;
+	private static final int QUERIES = 256;
+	private static final int MIXED_READERS = 3;
+	private static final int MIXED_WRITERS = 1;
+
+	private static final String FILTER = System.getProperty("bench.filter", "");
+	private static final long MEASURE_MILLIS = Long.getLong("bench.millis", 1000);
+	private static final long WARMUP_MILLIS = MEASURE_MILLIS / 2;
+
+	// results are folded in here so the JIT cannot drop the measured work
+	private static volatile long blackhole;
+
+	// the latency samples of the last measured run, grown as needed
+	private static long[] samples = new long[1024];
+
+
+	/**
+	 * A single operation which is measured. The returned value is consumed
+	 * so the work cannot be optimized away.
+	 */
+	interface Operation {
+		Object run(int iteration);
+	}
+
+
+	public static void main(String[] args) {
+		int[] sizes = args.length == 0 ? new int[] {1000, 10000} : new int[args.length];
+		for (int i = 0; i < args.length; i++) {
+			sizes[i] = Integer.parseInt(args[i]);
+		}
+
+		System.out.printf("%-52s %12s %10s %10s %10s %10s %12s%n", "benchmark",
+				"ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "bytes/op");
+		for (int size : sizes) {
+			for (GraphGenerator.Shape shape : GraphGenerator.Shape.values()) {
+				runShape(shape, size);
+			}
+		}
+		if (blackhole == 42) {
+			System.out.println();
+		}
+	}
+
+
+	private static void runShape(GraphGenerator.Shape shape, int size) {
+		String prefix = shape + "/" + size + "/";
+		GraphGenerator generator = new GraphGenerator(size * 31L + shape.ordinal());
+		final WeightedNode[] nodes = generator.nodes(size);
+		final int[] edges = generator.edges(shape, size, OUT_DEGREE);
+		final Graph<WeightedNode> graph = generator.graph(shape, nodes, OUT_DEGREE);
+		final PathFinder<WeightedNode> finder = new PathFinder<>(graph);
+		final CompactPathFinder<WeightedNode> compactFinder =
+				new CompactPathFinder<>(graph.freeze(), WeightedNode::getCost);
+
+		// fixed query sets, so every benchmark of a graph answers the same queries
+		final WeightedNode[] sources = new WeightedNode[QUERIES];
+		final WeightedNode[] goals = new WeightedNode[QUERIES];
+		final List<Set<WeightedNodePath>> multiSources = new ArrayList<>();
+		final List<Set<WeightedNode>> multiGoals = new ArrayList<>();
+		for (int q = 0; q < QUERIES; q++) {
+			sources[q] = nodes[generator.nextIndex(size)];
+			goals[q] = nodes[generator.nextIndex(size)];
+			Set<WeightedNodePath> starts = new HashSet<>();
+			Set<WeightedNode> ends = new HashSet<>();
+			for (int i = 0; i < 4; i++) {
+				starts.add(new WeightedNodePath(nodes[generator.nextIndex(size)]));
+				ends.add(nodes[generator.nextIndex(size)]);
+			}
+			multiSources.add(starts);
+			multiGoals.add(ends);
+		}
+
+		measure(prefix + "Graph.addEdge(all edges)", i -> {
+			Graph<WeightedNode> g = new Graph<>();
+			for (WeightedNode node : nodes) {
+				g.addNode(node);
+			}
+			for (int e = 0; e < edges.length; e += 2) {
+				g.addEdge(nodes[edges[e]], nodes[edges[e + 1]]);
+			}
+			return g;
+		});
+		measure(prefix + "GraphBuilder(all edges)", i -> {
+			GraphBuilder<WeightedNode> builder = new GraphBuilder<>(nodes.length, edges.length / 2);
+			for (WeightedNode node : nodes) {
+				builder.addNode(node);
+			}
+			for (int e = 0; e < edges.length; e += 2) {
+				builder.addEdge(nodes[edges[e]], nodes[edges[e + 1]]);
+			}
+			return builder.build();
+		});
+		measure(prefix + "Graph.freeze", i -> graph.freeze());
+		measureGraphFile(prefix, graph);
+		final Graph<WeightedNode> growing = generator.graph(shape, nodes, OUT_DEGREE);
+		final Random random = new Random(size);
+		growing.snapshot();
+		measure(prefix + "Graph.snapshot after 8 new edges", i -> {
+			for (int e = 0; e < 8; e++) {
+				growing.addEdge(nodes[random.nextInt(size)], nodes[random.nextInt(size)]);
+			}
+			return growing.snapshot();
+		});
+		// a standing query from one source, kept up to date as edges are added
+		final Graph<WeightedNode> standing = generator.graph(shape, nodes, OUT_DEGREE);
+		final Set<WeightedNodePath> standingStarts = Collections.singleton(new WeightedNodePath(sources[0]));
+		if ((prefix + "IncrementalShortestPaths addEdge").contains(FILTER)) {
+			final IncrementalShortestPaths<WeightedNode, WeightedNodePath> incremental =
+					new IncrementalShortestPaths<>(standing, standingStarts, WeightedNode::getCost);
+			measure(prefix + "IncrementalShortestPaths addEdge", i -> {
+				standing.addEdge(nodes[random.nextInt(size)], nodes[random.nextInt(size)]);
+				return incremental.getCost(goals[i % QUERIES]);
+			});
+			incremental.detach();
+		}
+		measure(prefix + "addEdge + shortestPathTree", i -> {
+			standing.addEdge(nodes[random.nextInt(size)], nodes[random.nextInt(size)]);
+			return new PathFinder<>(standing).shortestPathTree(standingStarts, WeightedNode::getCost)
+					.getCost(goals[i % QUERIES]);
+		});
+		measure(prefix + "Graph.getListChildren", i -> graph.getListChildren(nodes[i % size]));
+
+		measure(prefix + "PathFinder single->single", i ->
+				finder.findShortestPath(new WeightedNodePath(sources[i % QUERIES]), goals[i % QUERIES]));
+		measure(prefix + "PathFinder multi->multi", i ->
+				finder.findShortestPath(multiSources.get(i % QUERIES), multiGoals.get(i % QUERIES)));
+		measure(prefix + "PathFinder shortestPathTree", i ->
+				finder.shortestPathTree(new WeightedNodePath(sources[i % QUERIES]), WeightedNode::getCost));
+		final List<WeightedNodePath> matrixSources = new ArrayList<>();
+		for (int q = 0; q < 64; q++) {
+			matrixSources.add(new WeightedNodePath(sources[q]));
+		}
+		final List<WeightedNode> matrixGoals = Arrays.asList(goals);
+		final ToDoubleFunction<WeightedNode> matrixCost = WeightedNode::getCost;
+		measure(prefix + "PathFinder distanceMatrix 64x" + QUERIES, i ->
+				finder.distanceMatrix(matrixSources, matrixGoals, matrixCost));
+		final PathFinder<WeightedNode> cachedFinder = new PathFinder<>(graph, QUERIES);
+		measure(prefix + "PathFinder cached multi->multi", i ->
+				cachedFinder.findShortestPath(multiSources.get(i % QUERIES), multiGoals.get(i % QUERIES)));
+		final PathFinder<WeightedNode> recordingFinder = new PathFinder<>(graph);
+		final SearchHistograms histograms = new SearchHistograms();
+		recordingFinder.setSearchListener(histograms);
+		measure(prefix + "PathFinder multi->multi with SearchHistograms", i ->
+				recordingFinder.findShortestPath(multiSources.get(i % QUERIES), multiGoals.get(i % QUERIES)));
+		if (histograms.getSearches() > 0) {
+			System.out.println(histograms);
+		}
+		measure(prefix + "PathFinder single->single counting", i ->
+				finder.findShortestPath(new NodeCountingPath(sources[i % QUERIES]), goals[i % QUERIES]));
+		measure(prefix + "PathFinder self loop", i ->
+				finder.findShortestPath(new WeightedNodePath(sources[i % QUERIES]), sources[i % QUERIES]));
+		if ((prefix + "OffHeapGraph PathFinder single->single").contains(FILTER)) {
+			final PathFinder<WeightedNode> offHeapFinder = new PathFinder<>(new OffHeapGraph(graph));
+			measure(prefix + "OffHeapGraph PathFinder single->single", i ->
+					offHeapFinder.findShortestPath(new WeightedNodePath(sources[i % QUERIES]), goals[i % QUERIES]));
+		}
+		if ((prefix + "OffHeapGraph WeightedNodePathFinder ids single->single").contains(FILTER)) {
+			final OffHeapGraph offHeap = new OffHeapGraph(graph);
+			final WeightedNodePathFinder offHeapFinder = new WeightedNodePathFinder(offHeap);
+			measure(prefix + "OffHeapGraph WeightedNodePathFinder ids single->single", i ->
+					offHeapFinder.findShortestPath(new int[] {offHeap.idOf(sources[i % QUERIES])},
+							new int[] {offHeap.idOf(goals[i % QUERIES])}));
+		}
+		measure(prefix + "PathFinder bidirectional single->single", i ->
+				finder.findShortestPathBidirectional(new WeightedNodePath(sources[i % QUERIES]),
+						goals[i % QUERIES], WeightedNode::getCost));
+		// preprocessing is only run if its benchmark is selected
+		if ((prefix + "PathFinder ALT(8) single->single").contains(FILTER)) {
+			final Landmarks<WeightedNode> landmarks = new Landmarks<>(graph, 8, WeightedNode::getCost);
+			System.out.printf("%-52s preprocessing %.1f ms, %d bytes per landmark%n", prefix + "Landmarks(8)",
+					landmarks.getPreprocessingNanos() / 1e6, landmarks.getBytesPerLandmark());
+			measure(prefix + "PathFinder ALT(8) single->single", i ->
+					finder.findShortestPathALT(Collections.singleton(new WeightedNodePath(sources[i % QUERIES])),
+							Collections.singleton(goals[i % QUERIES]), landmarks));
+		}
+		// contraction hierarchies suit road-like graphs; on random and
+		// scale-free graphs the contracted core becomes dense
+		if ((shape == GraphGenerator.Shape.GRID || shape == GraphGenerator.Shape.DAG) &&
+				(prefix + "ContractionHierarchy single->single").contains(FILTER)) {
+			final ContractionHierarchy<WeightedNode> hierarchy =
+					new ContractionHierarchy<>(graph, WeightedNode::getCost);
+			System.out.printf("%-52s preprocessing %.1f ms, %d shortcuts%n", prefix + "ContractionHierarchy",
+					hierarchy.getPreprocessingNanos() / 1e6, hierarchy.getShortcutCount());
+			measure(prefix + "ContractionHierarchy single->single", i ->
+					hierarchy.findShortestPath(new WeightedNodePath(sources[i % QUERIES]), goals[i % QUERIES]));
+		}
+		measureMixed(prefix + "ConcurrentGraph mixed", nodes, edges, sources, goals, true);
+		measureMixed(prefix + "Graph+ReadWriteLock mixed", nodes, edges, sources, goals, false);
+		measure(prefix + "CompactPathFinder single->single", i ->
+				compactFinder.findShortestPath(new WeightedNodePath(sources[i % QUERIES]), goals[i % QUERIES]));
+		measure(prefix + "CompactPathFinder multi->multi", i ->
+				compactFinder.findShortestPath(multiSources.get(i % QUERIES), multiGoals.get(i % QUERIES)));
+		final WeightedNodeGraph weighted = new WeightedNodeGraph();
+		for (WeightedNode node : graph.getListNodes()) {
+			weighted.addNode(node);
+		}
+		for (int e = 0; e < edges.length; e += 2) {
+			weighted.addEdge(weighted.idOf(nodes[edges[e]]), weighted.idOf(nodes[edges[e + 1]]));
+		}
+		final WeightedNodePathFinder weightedFinder = new WeightedNodePathFinder(weighted);
+		measure(prefix + "WeightedNodePathFinder single->single", i ->
+				weightedFinder.findShortestPath(Collections.singleton(new WeightedNodePath(sources[i % QUERIES])),
+						Collections.singleton(goals[i % QUERIES])));
+		measure(prefix + "WeightedNodePathFinder ids single->single", i ->
+				weightedFinder.findShortestPath(new int[] {weighted.idOf(sources[i % QUERIES])},
+						new int[] {weighted.idOf(goals[i % QUERIES])}));
+	}
+
+
+	/**
+	 * Warms up and measures an operation, and prints its statistics.
+	 */
+	static void measure(String name, Operation operation) {
+		if (!name.contains(FILTER)) {
+			return;
+		}
+		run(operation, WARMUP_MILLIS, false);
+
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+		int count = run(operation, MEASURE_MILLIS, true);
+		long elapsed = System.nanoTime() - start;
+		long allocated = allocatedBytes() - allocatedBefore;
+
+		long[] sorted = Arrays.copyOf(samples, count);
+		Arrays.sort(sorted);
+		System.out.printf("%-52s %12.1f %10.2f %10.2f %10.2f %10.2f %12d%n", name,
+				count * 1e9 / elapsed, percentile(sorted, 0.5), percentile(sorted, 0.9),
+				percentile(sorted, 0.99), percentile(sorted, 0.999),
+				allocated < 0 ? -1 : allocated / Math.max(1, count));
+	}
+
+	/**
+	 * Measures reading a graph from a GraphFile written once to a temporary file.
+	 */
+	static void measureGraphFile(String prefix, Graph<WeightedNode> graph) {
+		if (!(prefix + "GraphFile.read").contains(FILTER) && !(prefix + "GraphFile.readOffHeap").contains(FILTER)) {
+			return;
+		}
+		try {
+			final File file = File.createTempFile("graph", ".bin");
+			file.deleteOnExit();
+			GraphFile.write(graph, file);
+			measure(prefix + "GraphFile.read", i -> {
+				try {
+					return GraphFile.read(file);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			measure(prefix + "GraphFile.readOffHeap", i -> {
+				try {
+					return GraphFile.readOffHeap(file);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			file.delete();
+		} catch (IOException e) {
+			System.out.println(prefix + "GraphFile.read failed: " + e);
+		}
+	}
+
+	/**
+	 * Measures a mixed load: MIXED_READERS threads search the graph while
+	 * MIXED_WRITERS threads add random edges to it. The graph is either a
+	 * ConcurrentGraph, or a Graph guarded by a read-write lock which every
+	 * search holds for reading.
+	 */
+	static void measureMixed(String name, final WeightedNode[] nodes, int[] edges,
+							 final WeightedNode[] sources, final WeightedNode[] goals, boolean concurrent) {
+		if (!name.contains(FILTER)) {
+			return;
+		}
+		final DirectedGraph<WeightedNode> graph;
+		final ReadWriteLock lock = new ReentrantReadWriteLock();
+		if (concurrent) {
+			ConcurrentGraph<WeightedNode> g = new ConcurrentGraph<>();
+			for (WeightedNode node : nodes) {
+				g.addNode(node);
+			}
+			for (int e = 0; e < edges.length; e += 2) {
+				g.addEdge(nodes[edges[e]], nodes[edges[e + 1]]);
+			}
+			graph = g;
+		} else {
+			Graph<WeightedNode> g = new Graph<>(Graph.RepCheck.OFF);
+			for (WeightedNode node : nodes) {
+				g.addNode(node);
+			}
+			for (int e = 0; e < edges.length; e += 2) {
+				g.addEdge(nodes[edges[e]], nodes[edges[e + 1]]);
+			}
+			graph = g;
+		}
+
+		final AtomicLong reads = new AtomicLong();
+		final AtomicLong writes = new AtomicLong();
+		final long deadline = System.nanoTime() + MEASURE_MILLIS * 1_000_000;
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < MIXED_WRITERS; t++) {
+			final Random random = new Random(t);
+			threads.add(new Thread(() -> {
+				long count = 0;
+				while (System.nanoTime() < deadline) {
+					WeightedNode parent = nodes[random.nextInt(nodes.length)];
+					WeightedNode child = nodes[random.nextInt(nodes.length)];
+					if (concurrent) {
+						((ConcurrentGraph<WeightedNode>) graph).addEdge(parent, child);
+					} else {
+						lock.writeLock().lock();
+						try {
+							((Graph<WeightedNode>) graph).addEdge(parent, child);
+						} finally {
+							lock.writeLock().unlock();
+						}
+					}
+					count++;
+				}
+				writes.addAndGet(count);
+			}));
+		}
+		for (int t = 0; t < MIXED_READERS; t++) {
+			final int first = t;
+			threads.add(new Thread(() -> {
+				PathFinder<WeightedNode> finder = new PathFinder<>(graph);
+				long count = 0;
+				long sink = 0;
+				while (System.nanoTime() < deadline) {
+					int q = (int) ((first + count * MIXED_READERS) % QUERIES);
+					if (!concurrent) {
+						lock.readLock().lock();
+					}
+					try {
+						sink += finder.findShortestPath(new WeightedNodePath(sources[q]), goals[q]) == null ? 0 : 1;
+					} finally {
+						if (!concurrent) {
+							lock.readLock().unlock();
+						}
+					}
+					count++;
+				}
+				reads.addAndGet(count);
+				blackhole += sink;
+			}));
+		}
+		long start = System.nanoTime();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%-52s %12.1f searches/s, %.1f edges added/s (%d readers, %d writers)%n", name,
+				reads.get() / seconds, writes.get() / seconds, MIXED_READERS, MIXED_WRITERS);
+	}
+
+	/**
+	 * Runs operation repeatedly for the given time.
+	 * @return the number of operations run
+	 */
+	private static int run(Operation operation, long millis, boolean record) {
+		long deadline = System.nanoTime() + millis * 1_000_000;
+		int count = 0;
+		long sink = 0;
+		while (System.nanoTime() < deadline) {
+			long before = System.nanoTime();
+			Object result = operation.run(count);
+			long after = System.nanoTime();
+			sink += result == null ? 0 : 1;
+			if (record) {
+				if (count == samples.length) {
+					samples = Arrays.copyOf(samples, 2 * samples.length);
+				}
+				samples[count] = after - before;
+			}
+			count++;
+		}
+		blackhole += sink;
+		return count;
+	}
+
+
+	/**
+	 * Returns the given percentile of sorted nanosecond samples, in microseconds.
+	 */
+	private static double percentile(long[] sorted, double p) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+		return sorted[Math.max(0, index)] / 1000.0;
+	}
+
+
+	/**
+	 * Returns the number of bytes allocated so far by the current thread,
+	 * or -1 if the JVM does not track it.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
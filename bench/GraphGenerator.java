@@ -0,0 +1,161 @@
+package homework2;
+
+import java.util.*;
+
+/**
+ * Generates synthetic Graph<WeightedNode> instances for benchmarking.
+ * All generators are deterministic for a given seed. Node costs are drawn
+ * uniformly from [1, MAX_COST].
+ */
+public class GraphGenerator {
+
+	/**
+	 * The shapes of graphs which can be generated.
+	 * RANDOM - every node has outDegree children chosen uniformly.
+	 * GRID - a square grid where every cell points to its four neighbours.
+	 * SCALE_FREE - preferential attachment: new nodes point to existing
+	 *              nodes with probability proportional to their degree,
+	 *              and get an edge back.
+	 * DAG - every node has outDegree children among the nodes after it.
+	 */
+	public enum Shape { RANDOM, GRID, SCALE_FREE, DAG }
+
+	public static final int MAX_COST = 100;
+
+	private final Random random;
+
+
+	/**
+	 * Creates a new GraphGenerator.
+	 * @effects creates a generator whose graphs are determined by seed
+	 */
+	public GraphGenerator(long seed) {
+		random = new Random(seed);
+	}
+
+
+	/**
+	 * Creates the nodes of a graph, named n0 .. n(size-1).
+	 * @return an array of size new WeightedNodes
+	 */
+	public WeightedNode[] nodes(int size) {
+		WeightedNode[] nodes = new WeightedNode[size];
+		for (int i = 0; i < size; i++) {
+			nodes[i] = new WeightedNode("n" + i, 1 + random.nextInt(MAX_COST));
+		}
+		return nodes;
+	}
+
+
+	/**
+	 * Creates the edges of a graph over size nodes, as pairs of node indices.
+	 * @requires size > 1 && outDegree > 0
+	 * @return an array of 2*m ints where edges[2i] -> edges[2i+1] is an edge
+	 */
+	public int[] edges(Shape shape, int size, int outDegree) {
+		switch (shape) {
+			case RANDOM:
+				return randomEdges(size, outDegree);
+			case GRID:
+				return gridEdges(size);
+			case SCALE_FREE:
+				return scaleFreeEdges(size, outDegree);
+			case DAG:
+				return dagEdges(size, outDegree);
+			default:
+				throw new IllegalArgumentException("Unknown shape: " + shape);
+		}
+	}
+
+
+	/**
+	 * Builds a graph of the given shape.
+	 * @requires size > 1 && outDegree > 0
+	 * @return a new graph over nodes with the generated edges
+	 */
+	public Graph<WeightedNode> graph(Shape shape, WeightedNode[] nodes, int outDegree) {
+		Graph<WeightedNode> graph = new Graph<>();
+		for (WeightedNode node : nodes) {
+			graph.addNode(node);
+		}
+		int[] edges = edges(shape, nodes.length, outDegree);
+		for (int i = 0; i < edges.length; i += 2) {
+			graph.addEdge(nodes[edges[i]], nodes[edges[i + 1]]);
+		}
+		return graph;
+	}
+
+
+	/**
+	 * Returns a uniformly chosen index in [0, size).
+	 */
+	public int nextIndex(int size) {
+		return random.nextInt(size);
+	}
+
+
+	private int[] randomEdges(int size, int outDegree) {
+		int[] edges = new int[2 * size * outDegree];
+		int e = 0;
+		for (int i = 0; i < size; i++) {
+			for (int d = 0; d < outDegree; d++) {
+				edges[e++] = i;
+				edges[e++] = random.nextInt(size);
+			}
+		}
+		return edges;
+	}
+
+
+	private int[] gridEdges(int size) {
+		int side = (int) Math.sqrt(size);
+		int[] edges = new int[2 * 4 * side * side];
+		int e = 0;
+		for (int row = 0; row < side; row++) {
+			for (int col = 0; col < side; col++) {
+				int cell = row * side + col;
+				if (row > 0) { edges[e++] = cell; edges[e++] = cell - side; }
+				if (row < side - 1) { edges[e++] = cell; edges[e++] = cell + side; }
+				if (col > 0) { edges[e++] = cell; edges[e++] = cell - 1; }
+				if (col < side - 1) { edges[e++] = cell; edges[e++] = cell + 1; }
+			}
+		}
+		return Arrays.copyOf(edges, e);
+	}
+
+
+	private int[] scaleFreeEdges(int size, int outDegree) {
+		// every edge endpoint is recorded, so picking a uniform endpoint
+		// picks a node with probability proportional to its degree
+		int[] endpoints = new int[4 * size * outDegree + 2];
+		int endpointCount = 0;
+		int[] edges = new int[4 * size * outDegree];
+		int e = 0;
+		endpoints[endpointCount++] = 0;
+		for (int i = 1; i < size; i++) {
+			for (int d = 0; d < Math.min(outDegree, i); d++) {
+				int target = endpoints[random.nextInt(endpointCount)];
+				edges[e++] = i;
+				edges[e++] = target;
+				edges[e++] = target;
+				edges[e++] = i;
+				endpoints[endpointCount++] = i;
+				endpoints[endpointCount++] = target;
+			}
+		}
+		return Arrays.copyOf(edges, e);
+	}
+
+
+	private int[] dagEdges(int size, int outDegree) {
+		int[] edges = new int[2 * size * outDegree];
+		int e = 0;
+		for (int i = 0; i < size - 1; i++) {
+			for (int d = 0; d < outDegree; d++) {
+				edges[e++] = i;
+				edges[e++] = i + 1 + random.nextInt(size - i - 1);
+			}
+		}
+		return Arrays.copyOf(edges, e);
+	}
+}